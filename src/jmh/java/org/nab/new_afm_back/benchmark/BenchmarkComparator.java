@@ -0,0 +1,102 @@
+package org.nab.new_afm_back.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two directories of JMH JSON results. Benchmarks are matched by name, parameters and thread
+ * count. A change is a regression when the score moves the wrong way by more than the threshold and by
+ * more than the combined error of both runs, so noise alone does not fail a build.
+ */
+public final class BenchmarkComparator {
+
+    record Result(String mode, double score, double error, String unit) {
+
+        boolean higherIsBetter() {
+            return mode.equals("thrpt");
+        }
+    }
+
+    private BenchmarkComparator() {
+    }
+
+    /**
+     * Usage: {@code BenchmarkComparator <baseline dir> <current dir> [threshold]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparator <baseline dir> <current dir> [threshold, default 0.10]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        int regressions = compare(Path.of(args[0]), Path.of(args[1]), threshold, System.out);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * Prints a line per benchmark present in both runs.
+     *
+     * @return number of regressions
+     */
+    public static int compare(Path baseline, Path current, double threshold, PrintStream out) throws IOException {
+        Map<String, Result> before = load(baseline);
+        Map<String, Result> after = load(current);
+
+        int regressions = 0;
+        out.printf("%-100s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, Result> entry : after.entrySet()) {
+            Result old = before.get(entry.getKey());
+            if (old == null) {
+                out.printf("%-100s %14s %14.3f %9s%n", entry.getKey(), "-", entry.getValue().score(), "new");
+                continue;
+            }
+            Result now = entry.getValue();
+            double change = (now.score() - old.score()) / old.score();
+            double worse = now.higherIsBetter() ? old.score() - now.score() : now.score() - old.score();
+            boolean regression = worse > old.score() * threshold && worse > old.error() + now.error();
+            if (regression) {
+                regressions++;
+            }
+            out.printf("%-100s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), old.score(), now.score(),
+                    change * 100, now.unit(), regression ? "  REGRESSION" : "");
+        }
+        out.printf("%d regressions beyond %.0f%%%n", regressions, threshold * 100);
+        return regressions;
+    }
+
+    static Map<String, Result> load(Path directory) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, Result> results = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+            for (Path file : files) {
+                for (JsonNode run : objectMapper.readTree(file.toFile())) {
+                    JsonNode metric = run.path("primaryMetric");
+                    double error = metric.path("scoreError").asDouble();
+                    results.put(key(run), new Result(run.path("mode").asText(), metric.path("score").asDouble(),
+                            Double.isNaN(error) ? 0 : error, metric.path("scoreUnit").asText()));
+                }
+            }
+        }
+        return results;
+    }
+
+    private static String key(JsonNode run) {
+        StringBuilder key = new StringBuilder(run.path("benchmark").asText()
+                .replace("org.nab.new_afm_back.benchmark.", ""));
+        Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+        while (params.hasNext()) {
+            Map.Entry<String, JsonNode> param = params.next();
+            key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+        }
+        return key.append(" threads=").append(run.path("threads").asInt()).toString();
+    }
+}
@@ -0,0 +1,62 @@
+package org.nab.new_afm_back.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.NoBenchmarksException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+/**
+ * Entry point of the {@code jmh} Maven profile. Writes JMH's JSON results to {@code jmh.results}, one
+ * file per run; {@link CaseAccessTrackerBenchmark} is repeated at every thread count in
+ * {@code jmh.threads}. When {@code jmh.baseline} names the results directory of an earlier run, both are
+ * compared with {@link BenchmarkComparator} and the run fails on regressions beyond {@code jmh.threshold}.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String include = System.getProperty("jmh.include", "");
+        Path results = Files.createDirectories(Path.of(System.getProperty("jmh.results", "target/jmh")));
+        String tracker = CaseAccessTrackerBenchmark.class.getSimpleName();
+
+        run(new OptionsBuilder()
+                .include(include.isBlank() ? ".*" : include)
+                .exclude(tracker), results.resolve("benchmarks.json"));
+
+        if (include.isBlank() || Pattern.compile(include).matcher(CaseAccessTrackerBenchmark.class.getName()).find()) {
+            for (String threads : System.getProperty("jmh.threads", "1,4,16,64").split(",")) {
+                run(new OptionsBuilder()
+                        .include(tracker)
+                        .threads(Integer.parseInt(threads.trim())), results.resolve("case-access-tracker-t" + threads.trim() + ".json"));
+            }
+        }
+
+        String baseline = System.getProperty("jmh.baseline", "");
+        if (!baseline.isBlank()) {
+            double threshold = Double.parseDouble(System.getProperty("jmh.threshold", "0.10"));
+            if (BenchmarkComparator.compare(Path.of(baseline), results, threshold, System.out) > 0) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void run(ChainedOptionsBuilder options, Path resultFile) throws RunnerException {
+        try {
+            new Runner(options
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(resultFile.toString())
+                    .build()).run();
+        } catch (NoBenchmarksException e) {
+            System.out.println("No benchmarks match for " + resultFile.getFileName());
+        }
+    }
+}
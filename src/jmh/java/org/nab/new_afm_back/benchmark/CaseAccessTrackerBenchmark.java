@@ -0,0 +1,109 @@
+package org.nab.new_afm_back.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.nab.new_afm_back.util.CaseAccessTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every public {@link CaseAccessTracker} operation on a list of {@value #CASES} recent cases. All
+ * instances share one static list, so {@link BenchmarkRunner} runs this class at several thread counts
+ * to show contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaseAccessTrackerBenchmark {
+
+    private static final int CASES = 200;
+
+    private CaseAccessTracker tracker;
+    private Path stateFile;
+    private String[] caseNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        stateFile = Files.createTempFile("accessed_cases", ".json");
+        tracker = new CaseAccessTracker(new SimpleMeterRegistry());
+        // Skips init(), which would start the periodic save and read the file next to the classes.
+        ReflectionTestUtils.setField(tracker, "filePath", stateFile.toString());
+
+        caseNumbers = new String[CASES];
+        for (int i = 0; i < CASES; i++) {
+            caseNumbers[i] = "CASE-2024-" + i;
+        }
+        tracker.clearAccessedCases();
+        for (String caseNumber : caseNumbers) {
+            tracker.addCaseNumber(caseNumber);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        tracker.clearAccessedCases();
+        Files.deleteIfExists(stateFile);
+    }
+
+    private String randomCase() {
+        return caseNumbers[ThreadLocalRandom.current().nextInt(CASES)];
+    }
+
+    @Benchmark
+    public void addCaseNumber() {
+        tracker.addCaseNumber(randomCase());
+    }
+
+    @Benchmark
+    public boolean removeAndAddCaseNumber() {
+        String caseNumber = randomCase();
+        boolean removed = tracker.removeCaseNumber(caseNumber);
+        tracker.addCaseNumber(caseNumber);
+        return removed;
+    }
+
+    @Benchmark
+    public boolean containsCaseNumber() {
+        return tracker.containsCaseNumber(randomCase());
+    }
+
+    @Benchmark
+    public List<String> getAccessedCaseNumbers() {
+        return tracker.getAccessedCaseNumbers();
+    }
+
+    @Benchmark
+    public List<String> getLastAccessedCaseNumbers() {
+        return tracker.getLastAccessedCaseNumbers(10);
+    }
+
+    @Benchmark
+    public String getLastAccessedCaseNumber() {
+        return tracker.getLastAccessedCaseNumber();
+    }
+
+    @Benchmark
+    public int getAccessedCasesCount() {
+        return tracker.getAccessedCasesCount();
+    }
+}
@@ -0,0 +1,125 @@
+package org.nab.new_afm_back.benchmark;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.nab.new_afm_back.dto.response.Document;
+import org.nab.new_afm_back.service.impl.DocumentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Document, predicate and risk lookups against a generated documents file, with the in-memory tree
+ * and with the lazily parsed index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentServiceBenchmark {
+
+    private static final int DOCUMENTS = 2000;
+    private static final int PREDICATES = 12;
+    private static final int RISKS = 6;
+
+    @Param({"false", "true"})
+    public boolean lazyIndex;
+
+    private DocumentService documentService;
+    private Path documentsFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        documentsFile = Files.createTempFile("documents", ".json");
+        writeDocuments(objectMapper, documentsFile);
+
+        documentService = new DocumentService(objectMapper, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(documentService, "documentsPath", documentsFile.toString());
+        ReflectionTestUtils.setField(documentService, "lazyIndex", lazyIndex);
+        ReflectionTestUtils.setField(documentService, "cacheSize", 256);
+        ReflectionTestUtils.setField(documentService, "watch", false);
+        documentService.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        documentService.shutdown();
+        Files.deleteIfExists(documentsFile);
+    }
+
+    private static void writeDocuments(ObjectMapper objectMapper, Path file) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(file.toFile(), JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            for (int d = 0; d < DOCUMENTS; d++) {
+                json.writeObjectFieldStart(String.valueOf(d));
+                json.writeStringField("header", "Article " + d + " of the criminal code");
+                json.writeArrayFieldStart("predicates");
+                for (int p = 0; p < PREDICATES; p++) {
+                    writeItem(json, "P" + p, d, p);
+                }
+                json.writeEndArray();
+                json.writeArrayFieldStart("risks");
+                for (int r = 0; r < RISKS; r++) {
+                    writeItem(json, "R" + r, d, r);
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+        }
+    }
+
+    private static void writeItem(JsonGenerator json, String label, int document, int item) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("label", label);
+        json.writeStringField("subLabel", label + "." + item);
+        json.writeStringField("text", ("Text of " + label + " in document " + document + ". ").repeat(8));
+        json.writeEndObject();
+    }
+
+    private static String randomNumber() {
+        return String.valueOf(ThreadLocalRandom.current().nextInt(DOCUMENTS));
+    }
+
+    @Benchmark
+    public Document getDocument() {
+        return documentService.getDocument(randomNumber());
+    }
+
+    @Benchmark
+    public String getTextOfPredicate() {
+        return documentService.getTextOfPredicate(randomNumber(), "P" + ThreadLocalRandom.current().nextInt(PREDICATES));
+    }
+
+    @Benchmark
+    public String getTextOfRisk() {
+        return documentService.getTextOfRisk(randomNumber(), "R" + ThreadLocalRandom.current().nextInt(RISKS));
+    }
+
+    @Benchmark
+    public Document getMissingDocument() {
+        return documentService.getDocument("missing-" + ThreadLocalRandom.current().nextInt(DOCUMENTS));
+    }
+}
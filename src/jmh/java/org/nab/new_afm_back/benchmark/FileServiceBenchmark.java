@@ -0,0 +1,71 @@
+package org.nab.new_afm_back.benchmark;
+
+import org.nab.new_afm_back.service.impl.FileService;
+import org.nab.new_afm_back.util.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.objenesis.ObjenesisStd;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-file upload work that does not touch the database or storage: validation (extension, size and
+ * content sniffing) and generating the stored file name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileServiceBenchmark {
+
+    private FileService fileService;
+    private SnowflakeIdGenerator idGenerator;
+    private MockMultipartFile pdf;
+    private MockMultipartFile disallowedExtension;
+    private MockMultipartFile mismatchedContent;
+
+    @Setup
+    public void setUp() {
+        // validateUploadedFile uses none of the service's collaborators, so skip the constructor.
+        fileService = new ObjenesisStd().newInstance(FileService.class);
+        idGenerator = new SnowflakeIdGenerator(1);
+
+        byte[] pdfContent = ("%PDF-1.7\n" + "0".repeat(64 * 1024)).getBytes(StandardCharsets.US_ASCII);
+        pdf = new MockMultipartFile("additionalFiles", "statement.pdf", "application/pdf", pdfContent);
+        disallowedExtension = new MockMultipartFile("additionalFiles", "tool.exe", "application/octet-stream", pdfContent);
+        mismatchedContent = new MockMultipartFile("additionalFiles", "fake.pdf", "application/pdf",
+                "MZ this is not a pdf".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public boolean validatePdf() {
+        return fileService.validateUploadedFile(pdf);
+    }
+
+    @Benchmark
+    public boolean validateDisallowedExtension() {
+        return fileService.validateUploadedFile(disallowedExtension);
+    }
+
+    @Benchmark
+    public boolean validateMismatchedContent() {
+        return fileService.validateUploadedFile(mismatchedContent);
+    }
+
+    @Benchmark
+    public long nextStorageId() {
+        return idGenerator.nextId();
+    }
+}
@@ -0,0 +1,91 @@
+package org.nab.new_afm_back.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.nab.new_afm_back.model.Case;
+import org.nab.new_afm_back.model.CaseFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response serialization of a {@link Case} with its files and of a page of {@link CaseFile}s, using an
+ * object mapper configured like the application's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "100"})
+    public int files;
+
+    private ObjectMapper objectMapper;
+    private Case caseEntity;
+    private Page<CaseFile> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        caseEntity = Case.builder()
+                .id(42L)
+                .number("CASE-2024-042")
+                .uploadDate(LocalDate.now())
+                .author("John Smith")
+                .investigator("Detective Brown")
+                .policeman("Officer Johnson")
+                .articles(List.of("190", "217", "218"))
+                .object("Fraudulent transfers between related companies")
+                .damageAmount(new BigDecimal("125000000.50"))
+                .criminalIncomeAmount(new BigDecimal("98000000.00"))
+                .createdAt(LocalDateTime.now())
+                .caseFiles(new ArrayList<>())
+                .build();
+        for (int i = 0; i < files; i++) {
+            caseEntity.getCaseFiles().add(CaseFile.builder()
+                    .id((long) i)
+                    .fileName(370451626926501888L + i + ".pdf")
+                    .originalFileName("bank statement " + i + ".pdf")
+                    .fileSize(1_048_576L + i)
+                    .storedSize(1_048_576L + i)
+                    .fileType("pdf")
+                    .uploadedAt(LocalDateTime.now())
+                    .uploadedBy("John Smith")
+                    .caseEntity(caseEntity)
+                    .build());
+        }
+        page = new PageImpl<>(caseEntity.getCaseFiles(), PageRequest.of(0, files), files * 10L);
+    }
+
+    @Benchmark
+    public byte[] serializeCase() throws Exception {
+        return objectMapper.writeValueAsBytes(caseEntity);
+    }
+
+    @Benchmark
+    public byte[] serializeCaseFilePage() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
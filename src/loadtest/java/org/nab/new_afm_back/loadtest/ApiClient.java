@@ -0,0 +1,110 @@
+package org.nab.new_afm_back.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The REST calls the load suite drives, over plain HTTP/1.1 like the browser client uses.
+ * Each call returns the status code; response bodies are read completely so timings include the transfer.
+ */
+final class ApiClient {
+
+    private static final String BOUNDARY = "loadtest-boundary-7f3a9c";
+
+    private final HttpClient http;
+    private final String baseUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    ApiClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    record Upload(int status, List<Long> fileIds) {
+    }
+
+    /**
+     * Creates case {@code number} with one PDF through {@code /pdf/upload} and returns the ids of the stored files.
+     */
+    Upload uploadCase(String number, byte[] pdf, String uploader) throws IOException, InterruptedException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(pdf.length + 512);
+        body.writeBytes(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"caseData\"\r\n"
+                + "Content-Type: application/json\r\n\r\n"
+                + "{\"number\":\"" + number + "\",\"author\":\"loadtest\",\"articles\":[\"190\"]}\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"additionalFiles\"; filename=\"" + number + ".pdf\"\r\n"
+                + "Content-Type: application/pdf\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(pdf);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        HttpResponse<byte[]> response = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/pdf/upload"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .header("X-Uploader", uploader)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        List<Long> fileIds = new ArrayList<>();
+        if (response.statusCode() == 201) {
+            JsonNode caseFiles = objectMapper.readTree(response.body()).path("caseFiles");
+            for (JsonNode caseFile : caseFiles) {
+                fileIds.add(caseFile.path("id").asLong());
+            }
+        }
+        return new Upload(response.statusCode(), fileIds);
+    }
+
+    int getCase(String number) throws IOException, InterruptedException {
+        return get("/case/" + number);
+    }
+
+    int getRecentRequested() throws IOException, InterruptedException {
+        return get("/case/recentReq?page=0&size=10");
+    }
+
+    int downloadFile(String number, long fileId) throws IOException, InterruptedException {
+        return get("/case/" + number + "/file/" + fileId + "/download");
+    }
+
+    private int get(String path) throws IOException, InterruptedException {
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build(),
+                HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * A well-formed single-page PDF padded to roughly {@code size} bytes with a comment block, which
+     * passes the upload content checks without the cost of real rendering.
+     */
+    static byte[] syntheticPdf(int size, long seed) {
+        String head = "%PDF-1.4\n"
+                + "1 0 obj << /Type /Catalog /Pages 2 0 R >> endobj\n"
+                + "2 0 obj << /Type /Pages /Kids [3 0 R] /Count 1 >> endobj\n"
+                + "3 0 obj << /Type /Page /Parent 2 0 R /MediaBox [0 0 595 842] >> endobj\n";
+        String tail = "trailer << /Root 1 0 R >>\n%%EOF\n";
+        StringBuilder pdf = new StringBuilder(Math.max(size, 512)).append(head);
+        long state = seed;
+        while (pdf.length() + tail.length() < size) {
+            pdf.append('%');
+            for (int i = 0; i < 78; i++) {
+                state = state * 6364136223846793005L + 1442695040888963407L;
+                pdf.append((char) ('a' + (int) ((state >>> 33) % 26)));
+            }
+            pdf.append('\n');
+        }
+        return pdf.append(tail).toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
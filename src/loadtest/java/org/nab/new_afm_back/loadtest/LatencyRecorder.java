@@ -0,0 +1,133 @@
+package org.nab.new_afm_back.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint latency histograms (microseconds, 3 significant digits) and outcome counts for the
+ * measured part of a run. Failed requests are timed too, so a latency spike cannot hide behind errors.
+ */
+final class LatencyRecorder {
+
+    enum Endpoint {
+        UPLOAD("POST /pdf/upload"),
+        CASE("GET /case/{number}"),
+        RECENT("GET /case/recentReq"),
+        DOWNLOAD("GET /case/{number}/file/{id}/download");
+
+        final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+    }
+
+    record EndpointReport(String endpoint, long requests, long errors, double throughputPerSecond,
+                          double p50Ms, double p99Ms, double p999Ms, double maxMs, Map<Integer, Long> statuses) {
+    }
+
+    record RunReport(String mode, int clients, double targetRate, long durationSeconds, List<EndpointReport> endpoints) {
+    }
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, Map<Integer, LongAdder>> statuses = new EnumMap<>(Endpoint.class);
+    private volatile boolean measuring;
+
+    LatencyRecorder() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            histograms.put(endpoint, new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+            statuses.put(endpoint, new ConcurrentHashMap<>());
+        }
+    }
+
+    /** Starts the measured phase; everything recorded during warm-up is discarded. */
+    void startMeasuring() {
+        histograms.values().forEach(Histogram::reset);
+        statuses.values().forEach(Map::clear);
+        measuring = true;
+    }
+
+    void stopMeasuring() {
+        measuring = false;
+    }
+
+    /** Status 0 stands for a request that failed without a response. */
+    void record(Endpoint endpoint, int status, long latencyNanos) {
+        if (!measuring) {
+            return;
+        }
+        histograms.get(endpoint).recordValue(Math.min(MAX_LATENCY_MICROS, Math.max(1, latencyNanos / 1000)));
+        statuses.get(endpoint).computeIfAbsent(status, s -> new LongAdder()).increment();
+    }
+
+    RunReport report(String mode, int clients, double targetRate, long durationSeconds) {
+        List<EndpointReport> endpoints = histograms.entrySet().stream().map(entry -> {
+            Histogram histogram = entry.getValue();
+            Map<Integer, Long> counts = new LinkedHashMap<>();
+            statuses.get(entry.getKey()).entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(status -> counts.put(status.getKey(), status.getValue().sum()));
+            long errors = counts.entrySet().stream()
+                    .filter(status -> status.getKey() < 200 || status.getKey() >= 300)
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+            return new EndpointReport(entry.getKey().label, histogram.getTotalCount(), errors,
+                    histogram.getTotalCount() / (double) durationSeconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()), counts);
+        }).toList();
+        return new RunReport(mode, clients, targetRate, durationSeconds, endpoints);
+    }
+
+    /**
+     * Writes {@code report.json} and one {@code .hgrm} percentile distribution per endpoint, which
+     * HdrHistogram's plotter and most latency tooling read directly.
+     */
+    void write(RunReport report, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(directory.resolve("report.json").toFile(), report);
+        for (Map.Entry<Endpoint, Histogram> entry : histograms.entrySet()) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(
+                    directory.resolve(entry.getKey().name().toLowerCase() + ".hgrm")))) {
+                entry.getValue().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    static void print(RunReport report, PrintStream out) {
+        out.printf("%n%s, %d clients%s, %d s measured%n", report.mode(), report.clients(),
+                report.targetRate() > 0 ? String.format(", target %.0f req/s", report.targetRate()) : "",
+                report.durationSeconds());
+        out.printf("%-40s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (EndpointReport endpoint : report.endpoints()) {
+            out.printf("%-40s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", endpoint.endpoint(), endpoint.requests(),
+                    endpoint.errors(), endpoint.throughputPerSecond(), endpoint.p50Ms(), endpoint.p99Ms(),
+                    endpoint.p999Ms(), endpoint.maxMs());
+            if (endpoint.errors() > 0) {
+                out.printf("%-40s statuses %s%n", "", endpoint.statuses());
+            }
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
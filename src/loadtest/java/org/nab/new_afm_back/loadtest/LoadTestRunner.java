@@ -0,0 +1,230 @@
+package org.nab.new_afm_back.loadtest;
+
+import org.nab.new_afm_back.NewAfmBackApplication;
+import org.nab.new_afm_back.loadtest.LatencyRecorder.Endpoint;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Entry point of the {@code loadtest} Maven profile. Starts the application in this JVM against an
+ * in-memory H2 database in PostgreSQL mode and a throwaway upload directory, seeds cases through the
+ * API, then drives a weighted mix of uploads, case reads, recent-case listings and file downloads over
+ * real HTTP from {@code loadtest.clients} threads.
+ * <p>
+ * By default every client sends its next request as soon as the previous one returns (closed loop),
+ * which measures the sustainable throughput. With {@code loadtest.rate} the clients instead keep a fixed
+ * schedule and latency is measured from when each request was due, so a stalled server shows up in the
+ * percentiles instead of just slowing the clients down.
+ * <p>
+ * Arguments of the form {@code --key=value} override the application properties of the started instance.
+ */
+public final class LoadTestRunner {
+
+    private static final String DEFAULT_MIX = "upload:10,case:40,recent:20,download:30";
+
+    private record StoredFile(String caseNumber, long fileId) {
+    }
+
+    private final ApiClient api;
+    private final LatencyRecorder recorder = new LatencyRecorder();
+    private final List<String> caseNumbers = new CopyOnWriteArrayList<>();
+    private final List<StoredFile> files = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextCase = new AtomicInteger();
+    private final byte[] pdf;
+
+    private LoadTestRunner(ApiClient api, byte[] pdf) {
+        this.api = api;
+        this.pdf = pdf;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("loadtest.clients", 16);
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "0"));
+        long warmupSeconds = Long.getLong("loadtest.warmup-seconds", 10);
+        long durationSeconds = Long.getLong("loadtest.duration-seconds", 60);
+        int seedCases = Integer.getInteger("loadtest.seed-cases", 200);
+        int fileSize = Integer.getInteger("loadtest.file-size", 256 * 1024);
+        Map<Endpoint, Integer> mix = parseMix(System.getProperty("loadtest.mix", DEFAULT_MIX));
+        Path results = Path.of(System.getProperty("loadtest.results", "target/loadtest"));
+
+        Path workDirectory = Files.createTempDirectory("afm-loadtest");
+        ConfigurableApplicationContext context = SpringApplication.run(NewAfmBackApplication.class,
+                applicationArguments(workDirectory, args));
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadTestRunner runner = new LoadTestRunner(new ApiClient("http://127.0.0.1:" + port),
+                    ApiClient.syntheticPdf(fileSize, 42));
+
+            System.out.printf("Seeding %d cases with %d KB PDFs%n", seedCases, fileSize / 1024);
+            runner.seed(seedCases);
+
+            String mode = rate > 0 ? "open loop" : "closed loop";
+            System.out.printf("Running %s with %d clients, mix %s: %d s warm-up, %d s measured%n",
+                    mode, clients, mix, warmupSeconds, durationSeconds);
+            runner.run(clients, rate, mix, warmupSeconds, durationSeconds);
+
+            LatencyRecorder.RunReport report = runner.recorder.report(mode, clients, rate, durationSeconds);
+            LatencyRecorder.print(report, System.out);
+            runner.recorder.write(report, results);
+            System.out.println("Results written to " + results.toAbsolutePath());
+        } finally {
+            context.close();
+            FileSystemUtils.deleteRecursively(workDirectory);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Application properties for a throwaway instance on H2, as {@code --key=value} arguments; {@code overrides}
+     * in the same form take precedence.
+     */
+    static String[] applicationArguments(Path workDirectory, String[] overrides) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("management.server.port", "0");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("file.upload.directory", workDirectory.resolve("uploads").toString());
+        properties.put("app.pdf.cache-directory", workDirectory.resolve("render-cache").toString());
+        properties.put("app.case-tracker.file-path", workDirectory.resolve("accessed_cases.json").toString());
+        properties.put("app.storage.reconcile.enabled", "false");
+        properties.put("app.documents.watch", "false");
+        for (String override : overrides) {
+            int separator = override.indexOf('=');
+            if (!override.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --key=value: " + override);
+            }
+            properties.put(override.substring(2, separator), override.substring(separator + 1));
+        }
+        return properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            weights.put(Endpoint.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The request mix needs a positive weight: " + mix);
+        }
+        return weights;
+    }
+
+    private void seed(int count) throws IOException, InterruptedException {
+        for (int i = 0; i < count; i++) {
+            int status = upload("seed");
+            if (status != 201) {
+                throw new IllegalStateException("Seeding failed with HTTP " + status);
+            }
+        }
+        if (files.isEmpty() && count > 0) {
+            throw new IllegalStateException("Seeded cases have no downloadable files");
+        }
+    }
+
+    private void run(int clients, double rate, Map<Endpoint, Integer> mix, long warmupSeconds, long durationSeconds)
+            throws Exception {
+        Endpoint[] choices = mix.entrySet().stream()
+                .flatMap(weight -> Collections.nCopies(weight.getValue(), weight.getKey()).stream())
+                .toArray(Endpoint[]::new);
+        long intervalNanos = rate > 0 ? (long) (clients * 1_000_000_000L / rate) : 0;
+        long started = System.nanoTime();
+        long measureFrom = started + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long deadline = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int client = 0; client < clients; client++) {
+            String uploader = "loadtest-" + client;
+            // Spread the clients' schedules over one interval so they do not fire in lockstep.
+            long firstDue = started + (intervalNanos * client) / clients;
+            workers.add(executor.submit(() -> {
+                long due = firstDue;
+                while (true) {
+                    if (intervalNanos > 0) {
+                        long wait = due - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    } else {
+                        due = System.nanoTime();
+                    }
+                    if (due >= deadline) {
+                        return null;
+                    }
+                    Endpoint endpoint = choices[ThreadLocalRandom.current().nextInt(choices.length)];
+                    int status = call(endpoint, uploader);
+                    recorder.record(endpoint, status, System.nanoTime() - due);
+                    due += intervalNanos;
+                }
+            }));
+        }
+
+        LockSupport.parkNanos(measureFrom - System.nanoTime());
+        recorder.startMeasuring();
+        LockSupport.parkNanos(deadline - System.nanoTime());
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        recorder.stopMeasuring();
+        executor.shutdown();
+    }
+
+    private int call(Endpoint endpoint, String uploader) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            return switch (endpoint) {
+                case UPLOAD -> upload(uploader);
+                case CASE -> api.getCase(caseNumbers.get(random.nextInt(caseNumbers.size())));
+                case RECENT -> api.getRecentRequested();
+                case DOWNLOAD -> {
+                    StoredFile file = files.get(random.nextInt(files.size()));
+                    yield api.downloadFile(file.caseNumber(), file.fileId());
+                }
+            };
+        } catch (IOException e) {
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    private int upload(String uploader) throws IOException, InterruptedException {
+        String number = "LT-" + nextCase.incrementAndGet();
+        ApiClient.Upload upload = api.uploadCase(number, pdf, uploader);
+        if (upload.status() == 201) {
+            caseNumbers.add(number);
+            upload.fileIds().forEach(fileId -> files.add(new StoredFile(number, fileId)));
+        }
+        return upload.status();
+    }
+}
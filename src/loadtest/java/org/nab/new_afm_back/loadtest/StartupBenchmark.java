@@ -0,0 +1,223 @@
+package org.nab.new_afm_back.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.nab.new_afm_back.NewAfmBackApplication;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures time from JVM start to ready, as logged by the application's StartupReporter, for combinations
+ * of the fast-start measures: {@code faststart} (the Spring profile with lazy beans), {@code aot} (the
+ * AOT-processed context, which needs a jar built with {@code -Pfaststart}) and {@code cds} (a class data
+ * sharing archive from a training run that stops after the context refresh). {@code baseline} uses none.
+ * Modes combine with {@code +}, e.g. {@code faststart+aot+cds}.
+ * <p>
+ * The packaged jar is extracted the way the Dockerfile does it and runs on the load suite's H2 settings.
+ * For lazy modes the report also shows how long the background creation of the remaining beans took.
+ * <p>
+ * Run with {@code mvn -Ploadtest,faststart -DskipTests package exec:exec@startup-benchmark}.
+ */
+public final class StartupBenchmark {
+
+    private static final Pattern READY = Pattern.compile("Ready (\\d+) ms after JVM start");
+    private static final Pattern WARMED_UP = Pattern.compile("lazily initialized beans in the background in (\\d+) ms");
+    private static final String AOT_INITIALIZER = NewAfmBackApplication.class.getName().replace('.', '/')
+            + "__ApplicationContextInitializer.class";
+    private static final long STARTUP_TIMEOUT_SECONDS = 180;
+    private static final long WARM_UP_TIMEOUT_SECONDS = 60;
+
+    record ModeReport(String mode, List<Long> readyMs, long medianReadyMs, long minReadyMs, long maxReadyMs,
+                      long medianWarmUpMs) {
+    }
+
+    private record Run(long readyMs, long warmUpMs) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(System.getProperty("loadtest.startup.jar", "target/new_afm_back-0.0.1-SNAPSHOT.jar"))
+                .toAbsolutePath();
+        int runs = Integer.getInteger("loadtest.startup.runs", 5);
+        String heap = System.getProperty("loadtest.startup.heap", "512m");
+        Path results = Path.of(System.getProperty("loadtest.results", "target/loadtest")).toAbsolutePath();
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException("No application jar at " + jar + "; run the package phase first");
+        }
+
+        Path extracted = results.resolve("startup");
+        Path applicationJar = extract(jar, extracted);
+        boolean aotAvailable;
+        try (JarFile application = new JarFile(applicationJar.toFile())) {
+            aotAvailable = application.getEntry(AOT_INITIALIZER) != null;
+        }
+
+        List<ModeReport> reports = new ArrayList<>();
+        for (String mode : System.getProperty("loadtest.startup.modes",
+                "baseline,cds,faststart,faststart+aot,faststart+aot+cds").split(",")) {
+            Set<String> measures = Arrays.stream(mode.trim().split("\\+")).map(String::trim).collect(Collectors.toSet());
+            if (!Set.of("baseline", "faststart", "aot", "cds").containsAll(measures)) {
+                throw new IllegalArgumentException("Unknown startup mode: " + mode);
+            }
+            if (measures.contains("aot") && !aotAvailable) {
+                System.out.printf("%nSkipping %s: %s was not built with -Pfaststart%n", mode.trim(), jar.getFileName());
+                continue;
+            }
+            System.out.printf("%nRunning %s, %d starts%n", mode.trim(), runs);
+            reports.add(run(mode.trim(), measures, applicationJar, extracted, runs, heap));
+        }
+
+        reports.forEach(report -> print(report, System.out));
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(results.resolve("startup.json").toFile(), reports);
+        System.out.println("Results written to " + results);
+    }
+
+    /**
+     * Extracts the jar into an application jar with its libraries next to it, the layout class data sharing
+     * needs (it archives classes from plain jars only).
+     */
+    private static Path extract(Path jar, Path destination) throws IOException, InterruptedException {
+        FileSystemUtils.deleteRecursively(destination);
+        Files.createDirectories(destination.getParent());
+        // the extract command wants an empty destination, so its log goes next to it
+        Path extractLog = destination.resolveSibling("startup-extract.log");
+        Process extract = new ProcessBuilder(java(), "-Djarmode=tools", "-jar", jar.toString(),
+                "extract", "--destination", destination.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(extractLog.toFile())
+                .start();
+        if (!extract.waitFor(2, TimeUnit.MINUTES) || extract.exitValue() != 0) {
+            throw new IllegalStateException("Extracting " + jar + " failed, see " + extractLog);
+        }
+        try (Stream<Path> files = Files.list(destination)) {
+            return files.filter(file -> file.toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar extracted to " + destination));
+        }
+    }
+
+    private static ModeReport run(String mode, Set<String> measures, Path applicationJar, Path extracted, int runs,
+                                  String heap) throws Exception {
+        Path workDirectory = Files.createTempDirectory("afm-startup");
+        try {
+            List<String> jvmArguments = new ArrayList<>(List.of("-Xmx" + heap));
+            if (measures.contains("aot")) {
+                jvmArguments.add("-Dspring.aot.enabled=true");
+            }
+            if (measures.contains("faststart")) {
+                jvmArguments.add("-Dspring.profiles.active=faststart");
+            }
+            if (measures.contains("cds")) {
+                Path archive = extracted.resolve(mode.replace('+', '-') + ".jsa");
+                List<String> training = new ArrayList<>(jvmArguments);
+                training.add("-XX:ArchiveClassesAtExit=" + archive);
+                training.add("-Dspring.context.exit=onRefresh");
+                Process trainingRun = start(training, applicationJar, workDirectory);
+                trainingRun.getInputStream().transferTo(OutputStream.nullOutputStream());
+                if (!trainingRun.waitFor(STARTUP_TIMEOUT_SECONDS, TimeUnit.SECONDS) || !Files.exists(archive)) {
+                    trainingRun.destroyForcibly();
+                    throw new IllegalStateException("The training run did not produce " + archive);
+                }
+                jvmArguments.add("-XX:SharedArchiveFile=" + archive);
+            }
+
+            List<Run> measured = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                Run result = measure(jvmArguments, applicationJar, workDirectory, measures.contains("faststart"));
+                System.out.printf("  ready in %d ms%s%n", result.readyMs(),
+                        result.warmUpMs() >= 0 ? ", remaining beans created " + result.warmUpMs() + " ms later" : "");
+                measured.add(result);
+            }
+
+            List<Long> ready = measured.stream().map(Run::readyMs).toList();
+            List<Long> sorted = ready.stream().sorted().toList();
+            List<Long> warmUp = measured.stream().map(Run::warmUpMs).sorted().toList();
+            return new ModeReport(mode, ready, sorted.get(sorted.size() / 2), sorted.get(0),
+                    sorted.get(sorted.size() - 1), warmUp.get(warmUp.size() / 2));
+        } finally {
+            FileSystemUtils.deleteRecursively(workDirectory);
+        }
+    }
+
+    /**
+     * Starts the application and reads its log until it reports ready and, for lazy modes, until the
+     * background bean creation is done. A server that stays silent is killed, which ends its log.
+     */
+    private static Run measure(List<String> jvmArguments, Path applicationJar, Path workDirectory, boolean lazy)
+            throws Exception {
+        Process server = start(jvmArguments, applicationJar, workDirectory);
+        CompletableFuture.runAsync(server::destroyForcibly, CompletableFuture.delayedExecutor(
+                STARTUP_TIMEOUT_SECONDS + WARM_UP_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        try (BufferedReader log = new BufferedReader(new InputStreamReader(server.getInputStream(), StandardCharsets.UTF_8))) {
+            long readyMs = -1;
+            String line;
+            while ((line = log.readLine()) != null) {
+                Matcher ready = READY.matcher(line);
+                if (ready.find()) {
+                    readyMs = Long.parseLong(ready.group(1));
+                    if (!lazy) {
+                        break;
+                    }
+                }
+                Matcher warmedUp = WARMED_UP.matcher(line);
+                if (readyMs >= 0 && warmedUp.find()) {
+                    return new Run(readyMs, Long.parseLong(warmedUp.group(1)));
+                }
+            }
+            if (readyMs < 0) {
+                throw new IllegalStateException("The application did not report ready");
+            }
+            return new Run(readyMs, -1);
+        } finally {
+            server.destroy();
+            if (!server.waitFor(30, TimeUnit.SECONDS)) {
+                server.destroyForcibly();
+            }
+        }
+    }
+
+    private static Process start(List<String> jvmArguments, Path applicationJar, Path workDirectory) throws IOException {
+        // H2 comes after the application jar so the class path still starts with what the archive was built from.
+        Path h2 = Path.of(org.h2.Driver.class.getProtectionDomain().getCodeSource().getLocation().getPath());
+        List<String> command = new ArrayList<>();
+        command.add(java());
+        command.addAll(jvmArguments);
+        command.addAll(List.of("-cp", applicationJar + File.pathSeparator + h2,
+                NewAfmBackApplication.class.getName()));
+        command.addAll(List.of(LoadTestRunner.applicationArguments(workDirectory, new String[]{
+                "--spring.datasource.url=jdbc:h2:mem:startup;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"})));
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .start();
+    }
+
+    private static String java() {
+        return ProcessHandle.current().info().command().orElse("java");
+    }
+
+    private static void print(ModeReport report, PrintStream out) {
+        out.printf("%n%-20s ready median %6d ms, min %6d ms, max %6d ms%s%n", report.mode(), report.medianReadyMs(),
+                report.minReadyMs(), report.maxReadyMs(),
+                report.medianWarmUpMs() >= 0 ? ", then " + report.medianWarmUpMs() + " ms creating the remaining beans" : "");
+    }
+}
@@ -0,0 +1,302 @@
+package org.nab.new_afm_back.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.nab.new_afm_back.NewAfmBackApplication;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares request handling on Tomcat's platform thread pool with {@code spring.threads.virtual.enabled}.
+ * For each mode the application runs in its own JVM; the benchmark then holds an increasing number of
+ * downloads open by never reading their responses, so each one keeps a request blocked in a socket write,
+ * the way a slow client or a slow disk would.
+ * <p>
+ * At every level it reports how many of the held requests the server is actually working on (their
+ * response has started), whether a cheap probe request still gets through, the server's live platform
+ * threads, and its resident memory and live heap, each also per held request against an idle baseline.
+ * <p>
+ * Run with {@code mvn -Ploadtest -DskipTests test-compile exec:exec@thread-benchmark}. Linux only for
+ * resident memory (read from {@code /proc}); the other columns work everywhere.
+ */
+public final class ThreadModelBenchmark {
+
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(3);
+
+    record LevelReport(int held, int served, double probeMs, boolean probeTimedOut, long liveThreads,
+                       long rssKb, long heapKb, long rssKbPerServed, long heapKbPerServed) {
+    }
+
+    record ModeReport(String mode, long idleThreads, long idleRssKb, long idleHeapKb, List<LevelReport> levels) {
+    }
+
+    private record Sample(long liveThreads, long rssKb, long heapKb) {
+    }
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    public static void main(String[] args) throws Exception {
+        int[] levels = Arrays.stream(System.getProperty("loadtest.threads.levels", "50,100,200,400,800").split(","))
+                .mapToInt(level -> Integer.parseInt(level.trim()))
+                .sorted()
+                .toArray();
+        int fileSize = Integer.getInteger("loadtest.threads.file-size", 4 * 1024 * 1024);
+        long settleMillis = Long.getLong("loadtest.threads.settle-ms", 3000);
+        String heap = System.getProperty("loadtest.threads.heap", "512m");
+        Path results = Path.of(System.getProperty("loadtest.results", "target/loadtest"));
+
+        ThreadModelBenchmark benchmark = new ThreadModelBenchmark();
+        List<ModeReport> reports = new ArrayList<>();
+        for (String mode : System.getProperty("loadtest.threads.modes", "platform,virtual").split(",")) {
+            boolean virtual = switch (mode.trim()) {
+                case "platform" -> false;
+                case "virtual" -> true;
+                default -> throw new IllegalArgumentException("Unknown thread mode: " + mode);
+            };
+            System.out.printf("%nRunning %s threads: %d KB downloads held open at %s%n",
+                    mode.trim(), fileSize / 1024, Arrays.toString(levels));
+            reports.add(benchmark.run(mode.trim(), virtual, levels, fileSize, settleMillis, heap));
+        }
+
+        reports.forEach(report -> print(report, System.out));
+        Files.createDirectories(results);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(results.resolve("threads.json").toFile(), reports);
+        System.out.println("Results written to " + results.toAbsolutePath());
+    }
+
+    private ModeReport run(String mode, boolean virtual, int[] levels, int fileSize, long settleMillis, String heap)
+            throws Exception {
+        Path workDirectory = Files.createTempDirectory("afm-threads-" + mode);
+        int port = freePort();
+        int managementPort = freePort();
+        Process server = start(workDirectory, virtual, port, managementPort, heap);
+        List<Socket> held = new ArrayList<>();
+        try {
+            String base = "http://127.0.0.1:" + port;
+            String management = "http://127.0.0.1:" + managementPort;
+            awaitStartup(server, management + "/actuator/health");
+
+            ApiClient api = new ApiClient(base);
+            ApiClient.Upload upload = api.uploadCase("VT-1", ApiClient.syntheticPdf(fileSize, 7), "threads");
+            if (upload.status() != 201 || upload.fileIds().isEmpty()) {
+                throw new IllegalStateException("Seeding the download failed with HTTP " + upload.status());
+            }
+            String downloadPath = "/case/VT-1/file/" + upload.fileIds().get(0) + "/download";
+            api.downloadFile("VT-1", upload.fileIds().get(0));
+            probe(base);
+
+            Sample idle = sample(server, management);
+            List<LevelReport> reports = new ArrayList<>();
+            for (int level : levels) {
+                while (held.size() < level) {
+                    held.add(holdDownload(port, downloadPath));
+                }
+                Thread.sleep(settleMillis);
+
+                int served = 0;
+                for (Socket socket : held) {
+                    if (socket.getInputStream().available() > 0) {
+                        served++;
+                    }
+                }
+                long probeNanos = probe(base);
+                Sample sample = sample(server, management);
+                LevelReport report = new LevelReport(level, served,
+                        probeNanos < 0 ? -1 : probeNanos / 1e6, probeNanos < 0, sample.liveThreads(),
+                        sample.rssKb(), sample.heapKb(),
+                        perServed(sample.rssKb(), idle.rssKb(), served), perServed(sample.heapKb(), idle.heapKb(), served));
+                System.out.printf("  %5d held, %5d served, probe %s%n", level, served,
+                        report.probeTimedOut() ? "timed out" : String.format("%.1f ms", report.probeMs()));
+                reports.add(report);
+            }
+            return new ModeReport(mode, idle.liveThreads(), idle.rssKb(), idle.heapKb(), reports);
+        } finally {
+            for (Socket socket : held) {
+                socket.close();
+            }
+            server.destroy();
+            if (!server.waitFor(30, TimeUnit.SECONDS)) {
+                server.destroyForcibly();
+            }
+            FileSystemUtils.deleteRecursively(workDirectory);
+        }
+    }
+
+    /**
+     * Starts the application in a new JVM with the load suite's H2 settings. Idle connections must outlive
+     * the whole run, so the connection timeout is raised.
+     */
+    private static Process start(Path workDirectory, boolean virtual, int port, int managementPort, String heap)
+            throws IOException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<String> command = new ArrayList<>(List.of(java, "-Xmx" + heap,
+                "-cp", System.getProperty("java.class.path"), NewAfmBackApplication.class.getName()));
+        command.addAll(List.of(LoadTestRunner.applicationArguments(workDirectory, new String[]{
+                "--server.port=" + port,
+                "--management.server.port=" + managementPort,
+                "--server.tomcat.connection-timeout=10m",
+                "--spring.datasource.url=jdbc:h2:mem:threads;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--app.jfr.enabled=false"})));
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(workDirectory.resolve("application.log").toFile())
+                .start();
+    }
+
+    private void awaitStartup(Process server, String healthUrl) throws InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!server.isAlive()) {
+                throw new IllegalStateException("The application exited during startup with code " + server.exitValue());
+            }
+            try {
+                if (http.send(HttpRequest.newBuilder(URI.create(healthUrl)).build(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("The application did not start within " + STARTUP_TIMEOUT);
+    }
+
+    /**
+     * Sends a download request and never reads the response. The small receive window makes the server
+     * block in its socket write after the first few kilobytes.
+     */
+    private static Socket holdDownload(int port, String path) throws IOException {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(4096);
+        socket.connect(new InetSocketAddress("127.0.0.1", port), 10_000);
+        OutputStream out = socket.getOutputStream();
+        out.write(("GET " + path + " HTTP/1.1\r\nHost: 127.0.0.1\r\nAccept-Encoding: identity\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return socket;
+    }
+
+    /**
+     * @return latency of a cheap request in nanoseconds, or -1 if it did not complete within the probe timeout
+     */
+    private long probe(String base) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        try {
+            http.send(HttpRequest.newBuilder(URI.create(base + "/case/recentReq?page=0&size=10"))
+                    .timeout(PROBE_TIMEOUT).build(), HttpResponse.BodyHandlers.discarding());
+            return System.nanoTime() - started;
+        } catch (HttpTimeoutException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Runs a full GC first so the heap figure is live data, which includes the stacks of virtual threads.
+     * Thread and heap figures are -1 when the server does not answer in time.
+     */
+    private Sample sample(Process server, String management) throws IOException, InterruptedException {
+        Path jcmd = ProcessHandle.current().info().command()
+                .map(java -> Path.of(java).resolveSibling("jcmd"))
+                .filter(Files::isExecutable)
+                .orElse(null);
+        if (jcmd != null) {
+            new ProcessBuilder(jcmd.toString(), Long.toString(server.pid()), "GC.run")
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start()
+                    .waitFor(30, TimeUnit.SECONDS);
+        }
+        long rssKb = rssKb(server.pid());
+        try {
+            String metrics = http.send(HttpRequest.newBuilder(URI.create(management + "/actuator/prometheus"))
+                    .timeout(PROBE_TIMEOUT).build(), HttpResponse.BodyHandlers.ofString()).body();
+            return new Sample((long) metric(metrics, "jvm_threads_live_threads", Map.of()), rssKb,
+                    (long) (metric(metrics, "jvm_memory_used_bytes", Map.of("area", "heap")) / 1024));
+        } catch (HttpTimeoutException e) {
+            // The server is not answering at all, e.g. every carrier thread is pinned.
+            return new Sample(-1, rssKb, -1);
+        }
+    }
+
+    /**
+     * Sums the samples of a Prometheus metric whose labels include {@code labels}.
+     */
+    private static double metric(String metrics, String name, Map<String, String> labels) {
+        double sum = 0;
+        for (String line : metrics.split("\n")) {
+            if (!line.startsWith(name + "{") && !line.startsWith(name + " ")) {
+                continue;
+            }
+            boolean matches = labels.entrySet().stream()
+                    .allMatch(label -> line.contains(label.getKey() + "=\"" + label.getValue() + "\""));
+            if (matches) {
+                sum += Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+            }
+        }
+        return sum;
+    }
+
+    private static long rssKb(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .map(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                .findFirst()
+                .orElse(-1L);
+    }
+
+    private static long perServed(long value, long idle, int served) {
+        return value < 0 || idle < 0 || served == 0 ? -1 : (value - idle) / served;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void print(ModeReport report, PrintStream out) {
+        out.printf("%n%s threads, idle: %d live threads, %d MB resident, %d MB live heap%n", report.mode(),
+                report.idleThreads(), report.idleRssKb() / 1024, report.idleHeapKb() / 1024);
+        out.printf("%8s %8s %10s %8s %8s %10s %12s %12s%n",
+                "held", "served", "probe ms", "threads", "RSS MB", "heap MB", "RSS KB/req", "heap KB/req");
+        for (LevelReport level : report.levels()) {
+            out.printf("%8d %8d %10s %8s %8s %10s %12s %12s%n", level.held(), level.served(),
+                    level.probeTimedOut() ? "timeout" : String.format("%.1f", level.probeMs()),
+                    orDash(level.liveThreads()), orDash(level.rssKb() < 0 ? -1 : level.rssKb() / 1024),
+                    orDash(level.heapKb() < 0 ? -1 : level.heapKb() / 1024), orDash(level.rssKbPerServed()),
+                    orDash(level.heapKbPerServed()));
+        }
+    }
+
+    private static String orDash(long value) {
+        return value < 0 ? "-" : Long.toString(value);
+    }
+}
@@ -1,13 +1,22 @@
 package org.nab.new_afm_back;
 
+import org.nab.new_afm_back.config.NativeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(NativeHints.class)
 public class NewAfmBackApplication {
 
+    // Enough for every bean of the context; StartupReporter drains the buffer once the application is ready.
+    private static final int STARTUP_STEPS = 8192;
+
     public static void main(String[] args) {
-        SpringApplication.run(NewAfmBackApplication.class, args);
+        SpringApplication application = new SpringApplication(NewAfmBackApplication.class);
+        application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+        application.run(args);
     }
 
 }
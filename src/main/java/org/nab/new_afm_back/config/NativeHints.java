@@ -0,0 +1,69 @@
+package org.nab.new_afm_back.config;
+
+import net.ttddyy.dsproxy.proxy.ProxyJdbcObject;
+import org.nab.new_afm_back.dto.request.UploadCaseRequest;
+import org.nab.new_afm_back.dto.response.Document;
+import org.nab.new_afm_back.dto.response.FileDeletionResult;
+import org.nab.new_afm_back.dto.response.FileDownload;
+import org.nab.new_afm_back.dto.response.Predicate;
+import org.nab.new_afm_back.dto.response.QueryReport;
+import org.nab.new_afm_back.dto.response.ReconciliationReport;
+import org.nab.new_afm_back.dto.response.Risk;
+import org.nab.new_afm_back.dto.response.UploadJobStatus;
+import org.nab.new_afm_back.model.Case;
+import org.nab.new_afm_back.model.CaseFile;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import javax.sql.DataSource;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Reachability metadata for the native image ({@code mvn -Pnative native:compile}) that AOT processing
+ * cannot work out from the bean definitions. Only the native image reads it; on the JVM it has no effect.
+ * <ul>
+ *     <li>Types Jackson binds outside typed controller signatures: {@code ResponseEntity<?>} bodies
+ *     (entities included), the {@code caseData} part of an upload and the documents served from
+ *     documents.json.</li>
+ *     <li>Classpath resources opened at runtime: documents.json, the flight recording settings, the
+ *     PDFBox glyph lists, font metrics and color profile, and the iText standard font metrics and
+ *     messages used when the dossier falls back to Helvetica.</li>
+ *     <li>The JDK proxies datasource-proxy puts around JDBC objects when query reporting is enabled.</li>
+ * </ul>
+ * The upload job manifest is registered on {@link org.nab.new_afm_back.service.impl.UploadJobService}
+ * itself, as it is private to it.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    private final BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        bindingHints.registerReflectionHints(hints.reflection(),
+                Case.class, CaseFile.class,
+                UploadCaseRequest.class,
+                Document.class, Predicate.class, Risk.class,
+                FileDeletionResult.class, FileDownload.class, QueryReport.class, ReconciliationReport.class,
+                UploadJobStatus.class);
+
+        hints.resources()
+                .registerPattern("documents.json")
+                .registerPattern("jfr/*.jfc")
+                .registerPattern("org/apache/pdfbox/resources/**")
+                .registerPattern("org/apache/fontbox/**")
+                .registerPattern("com/itextpdf/text/pdf/fonts/*")
+                .registerPattern("com/itextpdf/text/l10n/error/*.lng");
+
+        // JdkJdbcProxyFactory lists ProxyJdbcObject first; a proxy hint has to name the interfaces in order.
+        for (Class<?> jdbcType : List.of(DataSource.class, Connection.class, Statement.class,
+                PreparedStatement.class, CallableStatement.class, ResultSet.class)) {
+            hints.proxies().registerJdkProxy(ProxyJdbcObject.class, jdbcType);
+        }
+    }
+}
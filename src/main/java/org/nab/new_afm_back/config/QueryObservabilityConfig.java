@@ -0,0 +1,75 @@
+package org.nab.new_afm_back.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.nab.new_afm_back.service.impl.QueryMonitor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Routes JDBC through a proxy so {@link QueryMonitor} can time statements and count them per request.
+ * Replaces {@code spring.jpa.show-sql}, which printed every statement synchronously to stdout.
+ * The pool is still reachable with {@code unwrap}, so its metrics and health check are unaffected.
+ */
+@Configuration
+public class QueryObservabilityConfig {
+
+    /**
+     * Static and lazy towards {@link QueryMonitor}, so the monitor and its meter registry are not created
+     * during post-processor registration.
+     */
+    @Bean
+    public static BeanPostProcessor queryObservingDataSourcePostProcessor(ObjectProvider<QueryMonitor> queryMonitor,
+                                                                          Environment environment) {
+        boolean enabled = environment.getProperty("app.db.observe.enabled", Boolean.class, true);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!enabled || !(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create(beanName, dataSource)
+                        .listener(new MonitorListener(queryMonitor))
+                        .build();
+            }
+        };
+    }
+
+    private static final class MonitorListener implements QueryExecutionListener {
+
+        private final ObjectProvider<QueryMonitor> provider;
+        private volatile QueryMonitor monitor;
+
+        private MonitorListener(ObjectProvider<QueryMonitor> provider) {
+            this.provider = provider;
+        }
+
+        private QueryMonitor monitor() {
+            QueryMonitor resolved = monitor;
+            if (resolved == null) {
+                resolved = provider.getObject();
+                monitor = resolved;
+            }
+            return resolved;
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+            monitor().beforeQuery(execution, queries);
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+            monitor().afterQuery(execution, queries);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.nab.new_afm_back.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.controller.ReactiveTransferHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+/**
+ * Second HTTP server, on Reactor Netty, for the file upload and download routes only. The rest of the API
+ * stays on the servlet stack; these routes answer the same paths on their own port, where a few
+ * event-loop threads carry any number of slow transfers. Uploads on this port are admitted against the
+ * same {@link UploadAdmission} budget as the servlet port's.
+ */
+@Component
+@ConditionalOnProperty(name = "app.transfer.reactive.enabled", havingValue = "true")
+@Slf4j
+public class ReactiveTransferServer implements SmartLifecycle {
+
+    private final ReactiveTransferHandler handler;
+    private final ObjectMapper objectMapper;
+    private final int port;
+    private final int eventLoopThreads;
+    private final Duration idleTimeout;
+
+    private LoopResources loops;
+    private DisposableServer server;
+
+    public ReactiveTransferServer(ReactiveTransferHandler handler, ObjectMapper objectMapper,
+                                  @Value("${app.transfer.reactive.port:5625}") int port,
+                                  @Value("${app.transfer.reactive.event-loop-threads:2}") int eventLoopThreads,
+                                  @Value("${app.transfer.reactive.idle-timeout-seconds:300}") long idleTimeoutSeconds) {
+        this.handler = handler;
+        this.objectMapper = objectMapper;
+        this.port = port;
+        this.eventLoopThreads = eventLoopThreads;
+        this.idleTimeout = Duration.ofSeconds(idleTimeoutSeconds);
+    }
+
+    @Override
+    public void start() {
+        RouterFunction<ServerResponse> routes = RouterFunctions.route()
+                .POST("/pdf/upload", handler::uploadCase)
+                .POST("/pdf/{caseNumber}/add-files", handler::addFiles)
+                .GET("/pdf/jobs/{jobId}", handler::jobStatus)
+                .GET("/case/{number}/file/{fileId}/download", handler::downloadCaseFile)
+                .build();
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                    codecs.defaultCodecs().maxInMemorySize(ReactiveTransferHandler.MAX_FIELD_SIZE);
+                })
+                .webFilter(new CorsWebFilter(corsConfigurationSource()))
+                .build();
+        HttpHandler httpHandler = RouterFunctions.toHttpHandler(routes, strategies);
+
+        loops = LoopResources.create("afm-transfer", eventLoopThreads, true);
+        server = HttpServer.create()
+                .port(port)
+                .runOn(loops)
+                .idleTimeout(idleTimeout)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        log.info("Non-blocking file transfers listening on port {} with {} event-loop threads",
+                server.port(), eventLoopThreads);
+    }
+
+    @Override
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+            server = null;
+        }
+        if (loops != null) {
+            loops.disposeLater().block();
+            loops = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Same policy as {@link SecurityConfig#corsConfigurationSource()}.
+     */
+    private static UrlBasedCorsConfigurationSource corsConfigurationSource() {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.addAllowedOriginPattern("*");
+        configuration.addAllowedMethod("*");
+        configuration.addAllowedHeader("*");
+        configuration.setAllowCredentials(false);
+        configuration.setMaxAge(3600L);
+
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", configuration);
+        return source;
+    }
+}
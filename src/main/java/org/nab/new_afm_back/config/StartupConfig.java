@@ -0,0 +1,66 @@
+package org.nab.new_afm_back.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Fast start (the faststart profile) sets {@code spring.main.lazy-initialization}, so only the web server,
+ * its filters and the database are created before the application reports ready. The database stays
+ * eager so that being ready still means the schema was checked, and a broken database still fails the
+ * start. {@link OpenApiConfig} adjusts the JSON converter, which has to happen before the first request.
+ * Everything else, including the services that resume upload jobs, sweep deleted files and keep the
+ * flight recording, is created right after by {@link #lazyBeanWarmUp}.
+ */
+@Configuration
+@Slf4j
+public class StartupConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter eagerBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(DataSource.class, EntityManagerFactory.class,
+                OpenApiConfig.class, VirtualThreadsCheck.class);
+    }
+
+    /**
+     * Creates the beans lazy initialization skipped on a background thread once the application is ready,
+     * so only requests arriving in the first seconds pay for them and background work starts a moment
+     * later than it would otherwise.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.main.lazy-initialization", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> lazyBeanWarmUp(ConfigurableListableBeanFactory beanFactory) {
+        return event -> Thread.ofPlatform().name("lazy-bean-warm-up").daemon(true).start(() -> {
+            long started = System.nanoTime();
+            int created = 0;
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                if (!event.getApplicationContext().isActive()) {
+                    return;
+                }
+                BeanDefinition definition = beanFactory.getMergedBeanDefinition(name);
+                if (definition.isAbstract() || !definition.isSingleton() || !definition.isLazyInit()
+                        || beanFactory.containsSingleton(name)) {
+                    continue;
+                }
+                try {
+                    beanFactory.getBean(name);
+                    created++;
+                } catch (BeansException e) {
+                    log.warn("Could not create lazily initialized bean {}: {}", name, e.getMessage());
+                }
+            }
+            log.info("Created {} lazily initialized beans in the background in {} ms", created,
+                    (System.nanoTime() - started) / 1_000_000);
+        });
+    }
+}
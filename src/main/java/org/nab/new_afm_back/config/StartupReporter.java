@@ -0,0 +1,99 @@
+package org.nab.new_afm_back.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Logs how long the application took to become ready, measured from JVM start, whether it ran from
+ * an AOT-processed context and a class data sharing archive, and the bean creations that took the most
+ * time of their own (excluding beans they pulled in). The startup steps are recorded by the
+ * {@link BufferingApplicationStartup} set in {@code main} and dropped after the report.
+ */
+@Component
+@Slf4j
+public class StartupReporter {
+
+    private static final String BEAN_INSTANTIATION = "spring.beans.instantiate";
+
+    @Value("${app.startup.report-top:10}")
+    private int top;
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        long readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        Duration contextTime = event.getTimeTaken();
+        log.info("Ready {} ms after JVM start (application context {} ms); AOT {}, class data sharing {} ({} archive)",
+                readyMillis, contextTime != null ? contextTime.toMillis() : -1,
+                AotDetector.useGeneratedArtifacts() ? "on" : "off", classDataSharing() ? "on" : "off", sharedArchive());
+
+        if (top > 0 && event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup startup) {
+            reportSlowestBeans(startup.drainBufferedTimeline());
+        }
+    }
+
+    private void reportSlowestBeans(StartupTimeline timeline) {
+        // A step's own time is its duration minus that of the steps nested in it.
+        Map<Long, Long> childNanos = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : timeline.getEvents()) {
+            Long parentId = event.getStartupStep().getParentId();
+            if (parentId != null) {
+                childNanos.merge(parentId, event.getDuration().toNanos(), Long::sum);
+            }
+        }
+
+        List<StartupTimeline.TimelineEvent> slowest = timeline.getEvents().stream()
+                .filter(event -> BEAN_INSTANTIATION.equals(event.getStartupStep().getName()))
+                .sorted(Comparator.comparingLong((StartupTimeline.TimelineEvent event) -> selfNanos(event, childNanos)).reversed())
+                .limit(top)
+                .toList();
+        StringBuilder report = new StringBuilder("Slowest bean creations (own time):");
+        for (StartupTimeline.TimelineEvent event : slowest) {
+            report.append(String.format("%n  %6d ms  %s", selfNanos(event, childNanos) / 1_000_000, beanName(event.getStartupStep())));
+        }
+        log.info(report.toString());
+    }
+
+    private static long selfNanos(StartupTimeline.TimelineEvent event, Map<Long, Long> childNanos) {
+        return event.getDuration().toNanos() - childNanos.getOrDefault(event.getStartupStep().getId(), 0L);
+    }
+
+    private static String beanName(StartupStep step) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if ("beanName".equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return step.getName();
+    }
+
+    /**
+     * The JVM reports "sharing" in java.vm.info once an archive is mapped; an archive it cannot use
+     * (built from another class path or JDK) only produces a warning, so the requested file alone says little.
+     */
+    private static boolean classDataSharing() {
+        return System.getProperty("java.vm.info", "").contains("sharing");
+    }
+
+    private static String sharedArchive() {
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-XX:SharedArchiveFile=")) {
+                return argument.substring("-XX:SharedArchiveFile=".length());
+            }
+        }
+        return "default";
+    }
+}
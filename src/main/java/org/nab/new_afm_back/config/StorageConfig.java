@@ -0,0 +1,75 @@
+package org.nab.new_afm_back.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.storage.BlobStore;
+import org.nab.new_afm_back.storage.InMemoryBlobStore;
+import org.nab.new_afm_back.storage.LocalFileSystemBlobStore;
+import org.nab.new_afm_back.storage.S3BlobStore;
+import org.nab.new_afm_back.storage.StagingArea;
+import org.nab.new_afm_back.util.SnowflakeIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Configuration
+@Slf4j
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.type", havingValue = "local", matchIfMissing = true)
+    public BlobStore localBlobStore(@Value("${file.upload.directory:./uploads}") String uploadDirectory) throws IOException {
+        return new LocalFileSystemBlobStore(Paths.get(uploadDirectory));
+    }
+
+    @Bean
+    public StagingArea stagingArea(BlobStore blobStore,
+                                   @Value("${app.storage.staging-directory:./uploads/.staging}") String stagingDirectory,
+                                   @Value("${app.storage.staging-stale-hours:24}") long staleHours) throws IOException {
+        return new StagingArea(Paths.get(stagingDirectory), blobStore, Duration.ofHours(staleHours));
+    }
+
+    @Bean
+    public SnowflakeIdGenerator fileIdGenerator(@Value("${app.storage.node-id:-1}") int nodeId) {
+        if (nodeId < 0) {
+            nodeId = hostNodeId();
+            log.warn("app.storage.node-id is not set, using {} derived from the host name; "
+                    + "set distinct ids when several instances share the storage", nodeId);
+        }
+        return new SnowflakeIdGenerator(nodeId);
+    }
+
+    private static int hostNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = String.valueOf(ProcessHandle.current().pid());
+        }
+        return Math.floorMod(host.hashCode(), SnowflakeIdGenerator.MAX_NODE_ID + 1);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.type", havingValue = "memory")
+    public BlobStore inMemoryBlobStore() {
+        return new InMemoryBlobStore();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.type", havingValue = "s3")
+    public BlobStore s3BlobStore(@Value("${app.storage.s3.endpoint}") String endpoint,
+                                 @Value("${app.storage.s3.bucket}") String bucket,
+                                 @Value("${app.storage.s3.region:us-east-1}") String region,
+                                 @Value("${app.storage.s3.access-key}") String accessKey,
+                                 @Value("${app.storage.s3.secret-key}") String secretKey,
+                                 @Value("${app.storage.s3.path-style:true}") boolean pathStyle) {
+        return new S3BlobStore(URI.create(endpoint), bucket, region, accessKey, secretKey, pathStyle);
+    }
+}
@@ -0,0 +1,247 @@
+package org.nab.new_afm_back.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUpload;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.UploadContext;
+import org.nab.new_afm_back.storage.StagingArea;
+import org.nab.new_afm_back.util.ContentSniffer;
+import org.nab.new_afm_back.util.SpooledMultipartFile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.support.DefaultMultipartHttpServletRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses multipart uploads as they stream in, instead of letting the container buffer the whole request
+ * first. The first bytes of every file part are checked with {@link ContentSniffer} against the file's
+ * extension, and the request is aborted with 415 at the first mismatch, before the rest of the body is
+ * transferred. Accepted parts are spooled to the staging directory and handed to the controllers as
+ * an ordinary multipart request.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+@Slf4j
+public class StreamingUploadFilter extends OncePerRequestFilter {
+
+    private static final List<String> UPLOAD_PATHS = List.of("/pdf/upload", "/pdf/*/add-files");
+    private static final int MAX_FIELD_SIZE = 1024 * 1024;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final StagingArea stagingArea;
+    private final long maxFileSize;
+    private final long maxRequestSize;
+
+    public StreamingUploadFilter(StagingArea stagingArea,
+                                 @Value("${spring.servlet.multipart.max-file-size:100MB}") DataSize maxFileSize,
+                                 @Value("${spring.servlet.multipart.max-request-size:100MB}") DataSize maxRequestSize) {
+        this.stagingArea = stagingArea;
+        this.maxFileSize = maxFileSize.toBytes();
+        this.maxRequestSize = maxRequestSize.toBytes();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod()) || request.getContentType() == null
+                || !request.getContentType().toLowerCase().startsWith("multipart/")) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return UPLOAD_PATHS.stream().noneMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        MultiValueMap<String, MultipartFile> files = new LinkedMultiValueMap<>();
+        Map<String, List<String>> fields = new HashMap<>();
+        Map<String, String> fieldContentTypes = new HashMap<>();
+        List<Path> spooled = new ArrayList<>();
+
+        try {
+            FileUpload upload = new FileUpload();
+            upload.setFileSizeMax(maxFileSize);
+            upload.setSizeMax(maxRequestSize);
+            if (request.getCharacterEncoding() == null) {
+                // Browsers send non-ASCII file names as UTF-8.
+                upload.setHeaderEncoding(StandardCharsets.UTF_8.name());
+            }
+
+            FileItemIterator items = upload.getItemIterator(new RequestUploadContext(request));
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                if (item.isFormField()) {
+                    fields.computeIfAbsent(item.getFieldName(), name -> new ArrayList<>()).add(readField(item));
+                    fieldContentTypes.put(item.getFieldName(),
+                            item.getContentType() != null ? item.getContentType() : "text/plain");
+                    continue;
+                }
+
+                String fileName = item.getName();
+                Path file = stagingArea.newSpoolFile();
+                spooled.add(file);
+                long size = spoolIfValid(item, file);
+                if (size < 0) {
+                    log.warn("Rejected upload {}: content does not match its extension", fileName);
+                    cleanUp(spooled);
+                    reject(response, HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                            "File '" + fileName + "' is not a valid " + extensionOf(fileName) + " file");
+                    return;
+                }
+                files.add(item.getFieldName(), new SpooledMultipartFile(item.getFieldName(), fileName,
+                        item.getContentType(), file, size));
+            }
+        } catch (FileUploadException | FileUploadBase.FileUploadIOException e) {
+            cleanUp(spooled);
+            // Limits hit while streaming surface as an IOException wrapping the real cause.
+            Throwable cause = e instanceof FileUploadBase.FileUploadIOException ? e.getCause() : e;
+            if (cause instanceof FileUploadBase.FileSizeLimitExceededException
+                    || cause instanceof FileUploadBase.SizeLimitExceededException) {
+                reject(response, HttpStatus.PAYLOAD_TOO_LARGE, cause.getMessage());
+            } else {
+                reject(response, HttpStatus.BAD_REQUEST, "Malformed multipart request: " + cause.getMessage());
+            }
+            return;
+        } catch (IOException | RuntimeException e) {
+            cleanUp(spooled);
+            throw e;
+        }
+
+        Map<String, String[]> parameters = new HashMap<>();
+        fields.forEach((name, values) -> parameters.put(name, values.toArray(String[]::new)));
+        try {
+            filterChain.doFilter(new DefaultMultipartHttpServletRequest(request, files, parameters, fieldContentTypes), response);
+        } finally {
+            // Files that were staged have been moved away already.
+            cleanUp(spooled);
+        }
+    }
+
+    /**
+     * Sniffs the part's header and, if it matches the extension, spools the whole part to {@code file}.
+     *
+     * @return bytes written, or -1 if the content does not match and the rest of the part was not read
+     */
+    private long spoolIfValid(FileItemStream item, Path file) throws IOException {
+        try (InputStream in = item.openStream()) {
+            byte[] header = ContentSniffer.buffer();
+            int length = in.readNBytes(header, 0, header.length);
+            if (length > 0 && !ContentSniffer.matches(extensionOf(item.getName()), header, length)) {
+                return -1;
+            }
+            try (OutputStream out = Files.newOutputStream(file)) {
+                out.write(header, 0, length);
+                return length + in.transferTo(out);
+            }
+        }
+    }
+
+    private static String readField(FileItemStream item) throws IOException {
+        try (InputStream in = item.openStream()) {
+            byte[] value = in.readNBytes(MAX_FIELD_SIZE + 1);
+            if (value.length > MAX_FIELD_SIZE) {
+                throw new FileUploadBase.FileUploadIOException(new FileUploadBase.SizeLimitExceededException(
+                        "Field '" + item.getFieldName() + "' exceeds " + MAX_FIELD_SIZE + " bytes", value.length, MAX_FIELD_SIZE));
+            }
+            return new String(value, charsetOf(item.getContentType()));
+        }
+    }
+
+    private static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                String[] pair = parameter.trim().split("=", 2);
+                if (pair.length == 2 && pair[0].equalsIgnoreCase("charset")) {
+                    try {
+                        return Charset.forName(pair[1].replace("\"", "").trim());
+                    } catch (IllegalArgumentException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static String extensionOf(String fileName) {
+        if (fileName == null || !fileName.contains(".")) {
+            return "";
+        }
+        return fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase();
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        // The rest of the body is not read; closing avoids draining it from the client.
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Error: " + message);
+    }
+
+    private static void cleanUp(List<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to remove spooled upload {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private record RequestUploadContext(HttpServletRequest request) implements UploadContext {
+
+        @Override
+        public String getCharacterEncoding() {
+            return request.getCharacterEncoding();
+        }
+
+        @Override
+        public String getContentType() {
+            return request.getContentType();
+        }
+
+        @Override
+        @Deprecated
+        public int getContentLength() {
+            return request.getContentLength();
+        }
+
+        @Override
+        public long contentLength() {
+            return request.getContentLengthLong();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return request.getInputStream();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.nab.new_afm_back.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.util.FairAdmissionQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The upload admission budget, shared by {@link UploadAdmissionFilter} on the servlet port and
+ * {@link org.nab.new_afm_back.controller.ReactiveTransferHandler} on the non-blocking port, so uploads on
+ * both ports queue for the same permits and are rejected with the same 429 and Retry-After.
+ */
+@Component
+@Slf4j
+public class UploadAdmission {
+
+    private final FairAdmissionQueue admissionQueue;
+    private final Duration maxWait;
+    @Getter
+    private final long retryAfterSeconds;
+    @Getter
+    private final String uploaderHeader;
+    private final long maxRequestBytes;
+    private final Counter rejected;
+    private final Timer waitTimer;
+
+    public UploadAdmission(MeterRegistry meterRegistry,
+                           @Value("${app.upload.admission.max-concurrent:4}") int maxConcurrent,
+                           @Value("${app.upload.admission.max-in-flight:400MB}") DataSize maxInFlight,
+                           @Value("${app.upload.admission.max-queued:8}") int maxQueued,
+                           @Value("${app.upload.admission.max-wait-ms:2000}") long maxWaitMs,
+                           @Value("${app.upload.admission.retry-after-seconds:5}") long retryAfterSeconds,
+                           @Value("${app.upload.admission.uploader-header:X-Uploader}") String uploaderHeader,
+                           @Value("${spring.servlet.multipart.max-request-size:100MB}") DataSize maxRequestSize) {
+        this.admissionQueue = new FairAdmissionQueue(maxConcurrent, maxInFlight.toBytes(), maxQueued);
+        this.maxWait = Duration.ofMillis(maxWaitMs);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.uploaderHeader = uploaderHeader;
+        this.maxRequestBytes = maxRequestSize.toBytes();
+
+        Gauge.builder("afm.upload.queue.depth", admissionQueue, FairAdmissionQueue::getQueued)
+                .description("Uploads waiting for admission")
+                .register(meterRegistry);
+        Gauge.builder("afm.upload.active", admissionQueue, FairAdmissionQueue::getActive)
+                .description("Uploads currently admitted")
+                .register(meterRegistry);
+        Gauge.builder("afm.upload.active.bytes", admissionQueue, FairAdmissionQueue::getActiveBytes)
+                .description("Declared bytes of uploads currently admitted")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("afm.upload.rejected")
+                .description("Uploads rejected with 429")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("afm.upload.admission.wait")
+                .description("Time uploads spent waiting for admission")
+                .register(meterRegistry);
+
+        log.info("Upload admission: {} concurrent, {} in flight, {} queued, {} ms max wait",
+                maxConcurrent, maxInFlight, maxQueued, maxWaitMs);
+    }
+
+    /**
+     * Blocks the calling thread until the upload is admitted.
+     *
+     * @return a permit, or null if the upload is rejected
+     */
+    public FairAdmissionQueue.Permit admit(String uploader, long contentLength) {
+        long bytes = declaredBytes(contentLength);
+        long waitStarted = System.nanoTime();
+        FairAdmissionQueue.Permit permit;
+        try {
+            permit = admissionQueue.tryAcquire(uploader, bytes, maxWait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permit = null;
+        }
+        waitTimer.record(Duration.ofNanos(System.nanoTime() - waitStarted));
+        if (permit == null) {
+            reject(uploader, bytes);
+        }
+        return permit;
+    }
+
+    /**
+     * Non-blocking form of {@link #admit}, for event-loop threads.
+     *
+     * @return a future completed with a permit, or with null if the upload is rejected
+     */
+    public CompletableFuture<FairAdmissionQueue.Permit> admitAsync(String uploader, long contentLength) {
+        long bytes = declaredBytes(contentLength);
+        long waitStarted = System.nanoTime();
+        return admissionQueue.acquire(uploader, bytes, maxWait)
+                .whenComplete((permit, error) -> {
+                    waitTimer.record(Duration.ofNanos(System.nanoTime() - waitStarted));
+                    if (error == null && permit == null) {
+                        reject(uploader, bytes);
+                    }
+                });
+    }
+
+    public String uploaderOf(String header, String remoteAddress) {
+        return header != null && !header.isBlank() ? header : remoteAddress;
+    }
+
+    public String busyMessage() {
+        return "Too many uploads in progress, retry in " + retryAfterSeconds + " s";
+    }
+
+    /**
+     * Without a declared length the request may be as large as multipart allows.
+     */
+    private long declaredBytes(long contentLength) {
+        return contentLength >= 0 ? contentLength : maxRequestBytes;
+    }
+
+    private void reject(String uploader, long bytes) {
+        rejected.increment();
+        log.warn("Upload rejected, server busy: uploader={}, {} bytes, {} queued",
+                uploader, bytes, admissionQueue.getQueued());
+    }
+}
@@ -0,0 +1,65 @@
+package org.nab.new_afm_back.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.nab.new_afm_back.util.FairAdmissionQueue;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Admission control for upload endpoints. Runs before the multipart body is parsed, so a rejected
+ * upload costs neither a request thread for its transfer nor temp space. Other endpoints are not
+ * affected, and the number of threads an ingest burst can hold is bounded by the concurrency
+ * budget plus the queue size. The budget is {@link UploadAdmission}, shared with the non-blocking port.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@RequiredArgsConstructor
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    private static final List<String> UPLOAD_PATHS = List.of("/pdf/upload", "/pdf/*/add-files");
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final UploadAdmission admission;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return UPLOAD_PATHS.stream().noneMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String uploader = admission.uploaderOf(request.getHeader(admission.getUploaderHeader()), request.getRemoteAddr());
+        FairAdmissionQueue.Permit permit = admission.admit(uploader, request.getContentLengthLong());
+
+        if (permit == null) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admission.getRetryAfterSeconds()));
+            // The body was not read; closing avoids draining up to max-request-size from the client.
+            response.setHeader(HttpHeaders.CONNECTION, "close");
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write(admission.busyMessage());
+            return;
+        }
+
+        try (permit) {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.nab.new_afm_back.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Up to JDK 23 a virtual thread that blocks inside a monitor pins its carrier thread, and Tomcat 10.1
+ * waits on a monitor while a socket write is blocked. Every download to a slow client then holds a
+ * carrier, and once the carrier pool ({@code jdk.virtualThreadScheduler.maxPoolSize}, 256 by default)
+ * is used up the server stops answering. JDK 24 (JEP 491) removes this; on older JDKs keep the
+ * number of connections below the carrier limit or stay on platform threads.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadsCheck {
+
+    private static final int UNPINNED_MONITORS_FEATURE = 24;
+
+    public VirtualThreadsCheck() {
+        int feature = Runtime.version().feature();
+        if (feature < UNPINNED_MONITORS_FEATURE) {
+            log.warn("Requests run on virtual threads on JDK {}: blocked socket writes pin carrier threads, so more than "
+                    + "jdk.virtualThreadScheduler.maxPoolSize slow downloads at once stall the server. "
+                    + "Use JDK {} or later, or cap server.tomcat.max-connections", feature, UNPINNED_MONITORS_FEATURE);
+        } else {
+            log.info("Requests run on virtual threads on JDK {}", feature);
+        }
+    }
+}
@@ -9,13 +9,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.dto.response.FileDownload;
 import org.nab.new_afm_back.model.Case;
 import org.nab.new_afm_back.model.CaseFile;
+import org.nab.new_afm_back.service.impl.CaseBundleService;
 import org.nab.new_afm_back.service.impl.CaseFileService;
 import org.nab.new_afm_back.service.impl.CaseService;
 import org.nab.new_afm_back.service.impl.FileService;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -23,6 +27,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 @Slf4j
 @RestController
@@ -33,6 +40,7 @@ public class CaseController {
     private final CaseService caseService;
     private final FileService fileService;
     private final CaseFileService caseFileService;
+    private final CaseBundleService caseBundleService;
 
     @Operation(
             summary = "Get case by number",
@@ -112,23 +120,33 @@ public class CaseController {
     @GetMapping("/{number}/file/{fileId}/download")
     public ResponseEntity<?> downloadCaseFile(
             @Parameter(description = "Case number", required = true) @PathVariable String number,
-            @Parameter(description = "File ID", required = true) @PathVariable Long fileId) {
+            @Parameter(description = "File ID", required = true) @PathVariable Long fileId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
 
         log.info("Downloading file ID " + fileId +  "from case ID " +  number);
 
         try {
-            Resource fileResource = fileService.downloadCaseFile(number, fileId);
+            FileDownload download = fileService.downloadCaseFile(number, fileId, acceptsGzip(acceptEncoding));
+            Resource fileResource = download.resource();
 
             if (fileResource == null || !fileResource.exists()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body("File not found.");
             }
 
-            String contentDisposition = "attachment; filename=\"" + fileResource.getFilename() + "\"";
+            // Original upload names may contain quotes or non-ASCII characters, so encode them per RFC 6266.
+            String contentDisposition = ContentDisposition.attachment()
+                    .filename(download.filename(), StandardCharsets.UTF_8)
+                    .build()
+                    .toString();
 
-            return ResponseEntity.ok()
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
                     .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
-                    .body(fileResource);
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (download.contentEncoding() != null) {
+                response.header(HttpHeaders.CONTENT_ENCODING, download.contentEncoding());
+            }
+            return response.body(fileResource);
 
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Error: " + e.getMessage());
@@ -138,6 +156,57 @@ public class CaseController {
         }
     }
 
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    @Operation(
+            summary = "Download all PDF files of a case as one document",
+            description = "Merge the PDF files attached to a case in upload order, with a bookmark per file"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Bundle generated successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_PDF_VALUE)),
+            @ApiResponse(responseCode = "404", description = "Case has no PDF files",
+                    content = @Content(schema = @Schema(implementation = String.class))),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(schema = @Schema(implementation = String.class)))
+    })
+    @GetMapping("/{number}/bundle.pdf")
+    public ResponseEntity<?> downloadCaseBundle(
+            @Parameter(description = "Case number", required = true) @PathVariable String number) {
+
+        log.info("Downloading PDF bundle of case {}", number);
+
+        try {
+            Path bundle = caseBundleService.getPdfBundle(number);
+            String contentDisposition = ContentDisposition.attachment()
+                    .filename("case_" + number + "_bundle.pdf", StandardCharsets.UTF_8)
+                    .build()
+                    .toString();
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .contentLength(Files.size(bundle))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
+                    .body(new FileSystemResource(bundle));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Error: " + e.getMessage());
+        } catch (IOException e) {
+            log.error("Error while building PDF bundle of case {}: {}", number, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error building bundle: " + e.getMessage());
+        }
+    }
 
     @GetMapping("/{number}/caseFiles")
     private ResponseEntity<Page<CaseFile>> getCaseFiles(@PathVariable String number,
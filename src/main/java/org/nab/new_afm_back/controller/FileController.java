@@ -9,6 +9,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.dto.response.FileDeletionResult;
+import org.nab.new_afm_back.dto.response.UploadJobStatus;
 import org.nab.new_afm_back.model.Case;
 import org.nab.new_afm_back.service.impl.FileService;
 import org.springframework.core.io.Resource;
@@ -29,40 +31,65 @@ public class FileController {
 
     private final FileControllerHandler handler;
 
-    @Operation(summary = "Upload case with PDF and additional files")
+    @Operation(summary = "Upload case with PDF and additional files",
+            description = "With async=true the files are parked in staging and the case is registered in the " +
+                    "background; the response is 202 with a job to poll at /pdf/jobs/{jobId}.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Case uploaded successfully",
                     content = @Content(schema = @Schema(implementation = Case.class))),
+            @ApiResponse(responseCode = "202", description = "Upload accepted as a background job",
+                    content = @Content(schema = @Schema(implementation = UploadJobStatus.class))),
             @ApiResponse(responseCode = "400", description = "Invalid request data"),
+            @ApiResponse(responseCode = "503", description = "Background job queue is full"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> uploadCaseWithFiles(
             @RequestPart("caseData") String caseDataJson,
-            @RequestPart(value = "additionalFiles", required = false) List<MultipartFile> additionalFiles) {
+            @RequestPart(value = "additionalFiles", required = false) List<MultipartFile> additionalFiles,
+            @Parameter(description = "Register the case in the background and answer 202 right away")
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
 
-        log.info("Starting case upload request. Additional files count: {}",
-                additionalFiles != null ? additionalFiles.size() : 0);
+        log.info("Starting case upload request. Additional files count: {}, async: {}",
+                additionalFiles != null ? additionalFiles.size() : 0, async);
 
-        return handler.handleUploadCase(caseDataJson, additionalFiles);
+        return handler.handleUploadCase(caseDataJson, additionalFiles, async);
     }
 
     @Operation(summary = "Add additional files to an existing case")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Files added successfully",
                     content = @Content(schema = @Schema(implementation = Case.class))),
+            @ApiResponse(responseCode = "202", description = "Files accepted as a background job",
+                    content = @Content(schema = @Schema(implementation = UploadJobStatus.class))),
             @ApiResponse(responseCode = "400", description = "Invalid case number or files"),
+            @ApiResponse(responseCode = "503", description = "Background job queue is full"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping(value = "/{caseNumber}/add-files", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> addAdditionalFilesToCase(
             @Parameter(description = "Case number", required = true) @PathVariable String caseNumber,
-            @Parameter(description = "Additional files", required = true) @RequestPart("additionalFiles") List<MultipartFile> additionalFiles) {
+            @Parameter(description = "Additional files", required = true) @RequestPart("additionalFiles") List<MultipartFile> additionalFiles,
+            @Parameter(description = "Register the files in the background and answer 202 right away")
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
 
-        log.info("Adding {} files to case: {}",
-                additionalFiles != null ? additionalFiles.size() : 0, caseNumber);
+        log.info("Adding {} files to case: {}, async: {}",
+                additionalFiles != null ? additionalFiles.size() : 0, caseNumber, async);
 
-        return handler.handleAddFiles(caseNumber, additionalFiles);
+        return handler.handleAddFiles(caseNumber, additionalFiles, async);
+    }
+
+    @Operation(summary = "Status of an asynchronous upload job",
+            description = "Reports the job state and the progress of each file. Finished jobs are kept for a limited time.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job found",
+                    content = @Content(schema = @Schema(implementation = UploadJobStatus.class))),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired job")
+    })
+    @GetMapping(value = "/jobs/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getUploadJob(
+            @Parameter(description = "Job ID returned by an asynchronous upload", required = true) @PathVariable String jobId) {
+        return handler.handleJobStatus(jobId);
     }
 
     @Operation(summary = "Delete a file from a case")
@@ -81,6 +108,27 @@ public class FileController {
         return handler.handleDeleteFile(caseNumber, fileId);
     }
 
+    @Operation(summary = "Delete many files from a case",
+            description = "Marks the given files (or all files with all=true) as deleted in one statement. " +
+                    "Stored files are removed in the background.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Files marked as deleted",
+                    content = @Content(schema = @Schema(implementation = FileDeletionResult.class))),
+            @ApiResponse(responseCode = "400", description = "Neither or both of ids and all given"),
+            @ApiResponse(responseCode = "404", description = "Case not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @DeleteMapping("/{caseNumber}/files")
+    public ResponseEntity<?> deleteFiles(
+            @Parameter(description = "Case number", required = true) @PathVariable String caseNumber,
+            @Parameter(description = "IDs of the files to delete") @RequestParam(value = "ids", required = false) List<Long> fileIds,
+            @Parameter(description = "Delete every file of the case") @RequestParam(value = "all", defaultValue = "false") boolean all) {
+
+        log.info("Bulk delete requested for case {}: ids={}, all={}", caseNumber, fileIds, all);
+
+        return handler.handleDeleteFiles(caseNumber, fileIds, all);
+    }
+
     @Operation(summary = "Download document by case number")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Document downloaded successfully"),
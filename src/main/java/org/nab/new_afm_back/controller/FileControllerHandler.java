@@ -6,8 +6,12 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.nab.new_afm_back.dto.request.UploadCaseRequest;
+import org.nab.new_afm_back.dto.response.FileDeletionResult;
+import org.nab.new_afm_back.dto.response.UploadJobStatus;
 import org.nab.new_afm_back.model.Case;
 import org.nab.new_afm_back.service.impl.FileService;
+import org.nab.new_afm_back.service.impl.UploadJobService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -17,7 +21,9 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @Component
 @RequiredArgsConstructor
@@ -25,14 +31,22 @@ import java.util.List;
 public class FileControllerHandler {
 
     private final FileService fileService;
+    private final UploadJobService uploadJobService;
     private final ObjectMapper objectMapper;
 
-    public ResponseEntity<?> handleUploadCase(String caseDataJson, List<MultipartFile> additionalFiles) {
+    @Value("${app.upload.async.retry-after-seconds:30}")
+    private long asyncRetryAfterSeconds;
+
+    public ResponseEntity<?> handleUploadCase(String caseDataJson, List<MultipartFile> additionalFiles, boolean async) {
         try {
             UploadCaseRequest request = objectMapper.readValue(caseDataJson, UploadCaseRequest.class);
             log.info("Parsed upload request for case number: {}, author: {}",
                     request.getNumber(), request.getAuthor());
 
+            if (async) {
+                return accepted(uploadJobService.submitUpload(request, additionalFiles));
+            }
+
             Case uploadedCase = fileService.uploadCaseWithFiles(request, additionalFiles);
             log.info("Case uploaded successfully with ID: {}", uploadedCase.getId());
 
@@ -44,6 +58,8 @@ public class FileControllerHandler {
         } catch (IllegalArgumentException e) {
             log.warn("Validation error: {}", e.getMessage());
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return queueFull();
         } catch (IOException e) {
             log.error("IO error during processing: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -55,8 +71,12 @@ public class FileControllerHandler {
         }
     }
 
-    public ResponseEntity<?> handleAddFiles(String caseNumber, List<MultipartFile> additionalFiles) {
+    public ResponseEntity<?> handleAddFiles(String caseNumber, List<MultipartFile> additionalFiles, boolean async) {
         try {
+            if (async) {
+                return accepted(uploadJobService.submitAddFiles(caseNumber, additionalFiles));
+            }
+
             Case updatedCase = fileService.addAdditionalFilesToCase(caseNumber, additionalFiles);
             log.info("Successfully added files to case: {}", caseNumber);
             return ResponseEntity.ok(updatedCase);
@@ -64,6 +84,8 @@ public class FileControllerHandler {
         } catch (IllegalArgumentException e) {
             log.warn("Invalid request for case {}: {}", caseNumber, e.getMessage());
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return queueFull();
         } catch (IOException e) {
             log.error("IO error for case {}: {}", caseNumber, e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -75,6 +97,25 @@ public class FileControllerHandler {
         }
     }
 
+    public ResponseEntity<?> handleJobStatus(String jobId) {
+        return uploadJobService.getStatus(jobId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Error: unknown or expired job " + jobId));
+    }
+
+    private ResponseEntity<?> accepted(UploadJobStatus job) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create("/pdf/jobs/" + job.id()))
+                .body(job);
+    }
+
+    private ResponseEntity<?> queueFull() {
+        log.warn("Upload job queue is full, rejecting asynchronous upload");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(asyncRetryAfterSeconds))
+                .body("Error: too many queued uploads, retry later");
+    }
+
     public ResponseEntity<?> handleDeleteFile(String caseNumber, int fileId) {
         try {
             fileService.deleteAdditionalFileById(caseNumber, fileId);
@@ -91,6 +132,27 @@ public class FileControllerHandler {
         }
     }
 
+    public ResponseEntity<?> handleDeleteFiles(String caseNumber, List<Long> fileIds, boolean all) {
+        boolean hasIds = fileIds != null && !fileIds.isEmpty();
+        if (hasIds == all) {
+            return ResponseEntity.badRequest().body("Error: pass either file ids or all=true");
+        }
+
+        try {
+            int deleted = fileService.deleteFiles(caseNumber, all ? null : fileIds);
+            log.info("Accepted deletion of {} files from case: {}", deleted, caseNumber);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(new FileDeletionResult(caseNumber, deleted));
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Case not found for bulk delete: {}", caseNumber);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Error: " + e.getMessage());
+        } catch (Exception e) {
+            log.error("Error deleting files from case: {}", caseNumber, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Unexpected error: " + e.getMessage());
+        }
+    }
+
     public ResponseEntity<?> handleDownloadDocument(String caseNumber, String format) {
         if (!isValidFormat(format)) {
             log.warn("Invalid format requested: {}", format);
@@ -0,0 +1,46 @@
+package org.nab.new_afm_back.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.service.impl.FlightRecorderService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@code GET /actuator/jfr} on the management port dumps the continuous flight recording (the last
+ * app.jfr.max-age-minutes) as a .jfr file for JDK Mission Control or the jfr tool. Answers 409 when no
+ * recording is running or it has no data yet.
+ */
+@Component
+@Endpoint(id = "jfr")
+@RequiredArgsConstructor
+@Slf4j
+public class FlightRecordingEndpoint {
+
+    private final FlightRecorderService flightRecorderService;
+
+    @ReadOperation(produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public WebEndpointResponse<Object> recording() {
+        log.info("Flight recording dump requested");
+        try {
+            Path dump = flightRecorderService.dump();
+            // the dump is a temporary file; it is removed once the response stream is closed
+            return new WebEndpointResponse<>(new InputStreamResource(Files.newInputStream(dump, StandardOpenOption.DELETE_ON_CLOSE)));
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>("Error: " + e.getMessage(), 409);
+        } catch (IOException e) {
+            log.error("Flight recording dump failed: {}", e.getMessage(), e);
+            return new WebEndpointResponse<>("Error writing recording: " + e.getMessage(),
+                    WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.nab.new_afm_back.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.nab.new_afm_back.dto.response.QueryReport;
+import org.nab.new_afm_back.service.impl.QueryStatisticsService;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Database query statistics on the management port. {@code GET /actuator/queries?top=10} returns
+ * Hibernate statistics, the costliest HQL queries and repository methods, recent slow statements with
+ * their parameter shapes, and recent requests that ran more than app.db.max-statements-per-request
+ * statements (likely N+1 selects). {@code DELETE /actuator/queries} clears them.
+ */
+@Component
+@Endpoint(id = "queries")
+@RequiredArgsConstructor
+public class QueryStatisticsEndpoint {
+
+    private static final int DEFAULT_TOP = 10;
+
+    private final QueryStatisticsService queryStatisticsService;
+
+    @ReadOperation
+    public QueryReport report(@Nullable Integer top) {
+        return queryStatisticsService.getReport(top != null ? Math.max(1, top) : DEFAULT_TOP);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        queryStatisticsService.reset();
+    }
+}
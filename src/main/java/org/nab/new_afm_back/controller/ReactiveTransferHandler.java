@@ -0,0 +1,426 @@
+package org.nab.new_afm_back.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.config.ReactiveTransferServer;
+import org.nab.new_afm_back.config.UploadAdmission;
+import org.nab.new_afm_back.dto.response.FileDownload;
+import org.nab.new_afm_back.service.impl.FileService;
+import org.nab.new_afm_back.storage.MeteredResource;
+import org.nab.new_afm_back.storage.StagingArea;
+import org.nab.new_afm_back.util.ContentSniffer;
+import org.nab.new_afm_back.util.FairAdmissionQueue;
+import org.nab.new_afm_back.util.SpooledMultipartFile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.FormPartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * The file transfer routes of {@link FileController} and {@link CaseController#downloadCaseFile}, served
+ * by {@link ReactiveTransferServer} without a thread per request. Multipart parts are streamed to the
+ * staging directory and stored files are streamed back with an
+ * {@link java.nio.channels.AsynchronousFileChannel}, so a slow client only costs a connection. Parsing
+ * the case, registering files and looking up a download still block on the database; they run on
+ * bounded elastic workers through the same {@link FileControllerHandler} and {@link FileService} code
+ * as the servlet endpoints, and answer with the same statuses and bodies. Uploads are admitted against the
+ * same {@link UploadAdmission} budget as on the servlet port, waiting without holding a thread.
+ */
+@Component
+@ConditionalOnProperty(name = "app.transfer.reactive.enabled", havingValue = "true")
+@Slf4j
+public class ReactiveTransferHandler {
+
+    public static final int MAX_FIELD_SIZE = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileControllerHandler handler;
+    private final FileService fileService;
+    private final StagingArea stagingArea;
+    private final UploadAdmission admission;
+    private final long maxFileSize;
+    private final long maxRequestSize;
+
+    public ReactiveTransferHandler(FileControllerHandler handler, FileService fileService, StagingArea stagingArea,
+                                   UploadAdmission admission,
+                                   @Value("${spring.servlet.multipart.max-file-size:100MB}") DataSize maxFileSize,
+                                   @Value("${spring.servlet.multipart.max-request-size:100MB}") DataSize maxRequestSize) {
+        this.handler = handler;
+        this.fileService = fileService;
+        this.stagingArea = stagingArea;
+        this.admission = admission;
+        this.maxFileSize = maxFileSize.toBytes();
+        this.maxRequestSize = maxRequestSize.toBytes();
+    }
+
+    public Mono<ServerResponse> uploadCase(ServerRequest request) {
+        boolean async = asyncParameter(request);
+        return receive(request, upload -> {
+            String caseData = upload.fields.getFirst("caseData");
+            if (caseData == null) {
+                return ResponseEntity.badRequest().body("Error: required part 'caseData' is not present");
+            }
+            log.info("Starting non-blocking case upload. Additional files count: {}, async: {}",
+                    upload.files.size(), async);
+            return handler.handleUploadCase(caseData, upload.files("additionalFiles"), async);
+        });
+    }
+
+    public Mono<ServerResponse> addFiles(ServerRequest request) {
+        String caseNumber = request.pathVariable("caseNumber");
+        boolean async = asyncParameter(request);
+        return receive(request, upload -> {
+            List<MultipartFile> files = upload.files("additionalFiles");
+            if (files == null) {
+                return ResponseEntity.badRequest().body("Error: required part 'additionalFiles' is not present");
+            }
+            log.info("Adding {} files to case {} without blocking, async: {}", files.size(), caseNumber, async);
+            return handler.handleAddFiles(caseNumber, files, async);
+        });
+    }
+
+    public Mono<ServerResponse> jobStatus(ServerRequest request) {
+        return blocking(() -> handler.handleJobStatus(request.pathVariable("jobId")));
+    }
+
+    public Mono<ServerResponse> downloadCaseFile(ServerRequest request) {
+        String number = request.pathVariable("number");
+        long fileId;
+        try {
+            fileId = Long.parseLong(request.pathVariable("fileId"));
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest().bodyValue("Error: invalid file ID " + request.pathVariable("fileId"));
+        }
+        boolean acceptsGzip = CaseController.acceptsGzip(request.headers().firstHeader(HttpHeaders.ACCEPT_ENCODING));
+
+        return Mono.fromCallable(() -> fileService.downloadCaseFile(number, fileId, acceptsGzip))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(download -> send(request, download))
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> ServerResponse.status(HttpStatus.NOT_FOUND).bodyValue("Error: " + e.getMessage()))
+                .onErrorResume(IOException.class, e -> {
+                    log.error("Error while reading file ID {}: {}", fileId, e.getMessage(), e);
+                    return ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .bodyValue("Error reading file: " + e.getMessage());
+                });
+    }
+
+    /**
+     * Streams the file, or the single range asked for; several ranges are answered with the whole file.
+     */
+    private Mono<ServerResponse> send(ServerRequest request, FileDownload download) {
+        Resource resource = download.resource();
+        if (resource == null || !resource.exists()) {
+            return ServerResponse.status(HttpStatus.NOT_FOUND).bodyValue("File not found.");
+        }
+
+        long length;
+        try {
+            length = resource.contentLength();
+        } catch (IOException e) {
+            return Mono.error(e);
+        }
+        long position = 0;
+        long count = length;
+        ServerResponse.BodyBuilder response = ServerResponse.ok();
+        List<HttpRange> ranges = parseRanges(request);
+        if (ranges.size() == 1) {
+            HttpRange range = ranges.get(0);
+            position = range.getRangeStart(length);
+            count = range.getRangeEnd(length) - position + 1;
+            if (position >= length || count <= 0) {
+                return ServerResponse.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+            response = ServerResponse.status(HttpStatus.PARTIAL_CONTENT)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + position + "-" + (position + count - 1) + "/" + length);
+        }
+
+        String contentDisposition = ContentDisposition.attachment()
+                .filename(download.filename(), StandardCharsets.UTF_8)
+                .build()
+                .toString();
+        response.contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(count)
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (download.contentEncoding() != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, download.contentEncoding());
+        }
+
+        var bufferFactory = request.exchange().getResponse().bufferFactory();
+        Flux<DataBuffer> body = resource instanceof MeteredResource metered
+                ? metered.read(position, count, bufferFactory, BUFFER_SIZE)
+                : DataBufferUtils.takeUntilByteCount(DataBufferUtils.read(resource, position, bufferFactory, BUFFER_SIZE)
+                        .subscribeOn(Schedulers.boundedElastic()), count);
+        return response.body(BodyInserters.fromDataBuffers(body));
+    }
+
+    private static List<HttpRange> parseRanges(ServerRequest request) {
+        try {
+            return request.headers().range();
+        } catch (IllegalArgumentException e) {
+            // A malformed Range header is ignored, as the servlet endpoint does.
+            return List.of();
+        }
+    }
+
+    /**
+     * Admits the upload, then spools every file part of the request to the staging directory and runs
+     * {@code registration} on a worker thread. The permit is held until the response is complete or the
+     * client goes away. Spooled files the registration did not move away are removed afterwards.
+     */
+    private Mono<ServerResponse> receive(ServerRequest request, RegistrationCall registration) {
+        long contentLength = request.headers().contentLength().orElse(-1);
+        if (contentLength > maxRequestSize) {
+            return reject(HttpStatus.PAYLOAD_TOO_LARGE, "the request was rejected because its size ("
+                    + contentLength + ") exceeds the configured maximum (" + maxRequestSize + ")");
+        }
+
+        String remoteAddress = request.remoteAddress()
+                .map(address -> address.getAddress() != null ? address.getAddress().getHostAddress() : address.getHostString())
+                .orElse(null);
+        String uploader = admission.uploaderOf(request.headers().firstHeader(admission.getUploaderHeader()), remoteAddress);
+        return Mono.fromFuture(() -> admission.admitAsync(uploader, contentLength))
+                .doOnDiscard(FairAdmissionQueue.Permit.class, FairAdmissionQueue.Permit::close)
+                .flatMap(permit -> transfer(request, registration).doFinally(signal -> permit.close()))
+                .switchIfEmpty(Mono.defer(this::busy));
+    }
+
+    private Mono<ServerResponse> transfer(ServerRequest request, RegistrationCall registration) {
+        Upload upload = new Upload();
+        return request.bodyToFlux(PartEvent.class)
+                .windowUntil(PartEvent::isLast)
+                .concatMap(part -> part.switchOnFirst((first, events) -> {
+                    if (!first.hasValue()) {
+                        return events.then();
+                    }
+                    PartEvent event = first.get();
+                    if (event instanceof FilePartEvent file) {
+                        return spool(upload, file, events);
+                    }
+                    if (event instanceof FormPartEvent form) {
+                        upload.fields.add(form.name(), form.value());
+                        return events.doOnNext(e -> DataBufferUtils.release(e.content())).then();
+                    }
+                    return readField(upload, event, events);
+                }))
+                .then(Mono.defer(() -> blocking(() -> registration.register(upload))))
+                .onErrorResume(UploadRejectedException.class, e -> {
+                    log.warn("Rejected non-blocking upload: {}", e.getMessage());
+                    return reject(e.status, e.getMessage());
+                })
+                .onErrorResume(DataBufferLimitException.class,
+                        e -> reject(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage()))
+                .onErrorResume(DecodingException.class,
+                        e -> reject(HttpStatus.BAD_REQUEST, "Malformed multipart request: " + e.getMessage()))
+                .doFinally(signal -> upload.cleanUp());
+    }
+
+    /**
+     * Writes a file part to a new spool file while checking its first bytes against its extension, like
+     * the servlet stack's streaming upload filter; a mismatch fails the upload before the rest is read.
+     */
+    private Mono<Void> spool(Upload upload, FilePartEvent first, Flux<PartEvent> events) {
+        String fileName = first.filename();
+        String contentType = first.headers().getContentType() != null ? first.headers().getContentType().toString() : null;
+        return Mono.fromCallable(stagingArea::newSpoolFile)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(file -> {
+                    upload.spooled.add(file);
+                    SniffedPart part = new SniffedPart(fileName);
+                    Flux<DataBuffer> content = events.map(PartEvent::content)
+                            .doOnNext(buffer -> {
+                                part.accept(buffer);
+                                if (part.size > maxFileSize) {
+                                    throw new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE, "The field "
+                                            + first.name() + " exceeds its maximum permitted size of " + maxFileSize + " bytes.");
+                                }
+                                upload.size += buffer.readableByteCount();
+                                if (upload.size > maxRequestSize) {
+                                    throw new UploadRejectedException(HttpStatus.PAYLOAD_TOO_LARGE,
+                                            "the request exceeds the configured maximum (" + maxRequestSize + ")");
+                                }
+                            });
+                    return DataBufferUtils.write(content, file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                            .then(Mono.fromRunnable(() -> {
+                                part.finish();
+                                upload.files.add(first.name(),
+                                        new SpooledMultipartFile(first.name(), fileName, contentType, file, part.size));
+                            }));
+                });
+    }
+
+    private static Mono<Void> readField(Upload upload, PartEvent first, Flux<PartEvent> events) {
+        MediaType contentType = first.headers().getContentType();
+        Charset charset = contentType != null && contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        return DataBufferUtils.join(events.map(PartEvent::content), MAX_FIELD_SIZE)
+                .map(buffer -> {
+                    try {
+                        return buffer.toString(charset);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                })
+                .defaultIfEmpty("")
+                .doOnNext(value -> upload.fields.add(first.name(), value))
+                .then();
+    }
+
+    private static Mono<ServerResponse> blocking(Callable<ResponseEntity<?>> call) {
+        return Mono.fromCallable(call)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(entity -> {
+                    ServerResponse.BodyBuilder response = ServerResponse.status(entity.getStatusCode())
+                            .headers(headers -> headers.addAll(entity.getHeaders()));
+                    return entity.getBody() != null ? response.bodyValue(entity.getBody()) : response.build();
+                });
+    }
+
+    private Mono<ServerResponse> busy() {
+        // The body was not read; closing avoids draining it from the client.
+        return ServerResponse.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admission.getRetryAfterSeconds()))
+                .header(HttpHeaders.CONNECTION, "close")
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .bodyValue(admission.busyMessage());
+    }
+
+    private static Mono<ServerResponse> reject(HttpStatus status, String message) {
+        // The rest of the body is not read; closing avoids draining it from the client.
+        return ServerResponse.status(status)
+                .header(HttpHeaders.CONNECTION, "close")
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .bodyValue("Error: " + message);
+    }
+
+    private static boolean asyncParameter(ServerRequest request) {
+        return request.queryParam("async").map(Boolean::parseBoolean).orElse(false);
+    }
+
+    private static String extensionOf(String fileName) {
+        if (fileName == null || !fileName.contains(".")) {
+            return "";
+        }
+        return fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase();
+    }
+
+    @FunctionalInterface
+    private interface RegistrationCall {
+        ResponseEntity<?> register(Upload upload) throws Exception;
+    }
+
+    private static final class Upload {
+
+        private final MultiValueMap<String, String> fields = new LinkedMultiValueMap<>();
+        private final MultiValueMap<String, MultipartFile> files = new LinkedMultiValueMap<>();
+        private final List<Path> spooled = new ArrayList<>();
+        private long size;
+
+        private List<MultipartFile> files(String name) {
+            return files.get(name);
+        }
+
+        private void cleanUp() {
+            // Files that were staged have been moved away already.
+            for (Path file : spooled) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Failed to remove spooled upload {}: {}", file, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects a part's first {@link ContentSniffer#HEADER_SIZE} bytes as they stream past. The header is
+     * per part rather than the sniffer's per-thread buffer, since a part's buffers may arrive on
+     * different threads.
+     */
+    private static final class SniffedPart {
+
+        private final String fileName;
+        private final byte[] header = new byte[ContentSniffer.HEADER_SIZE];
+        private int headerLength;
+        private boolean checked;
+        private long size;
+
+        private SniffedPart(String fileName) {
+            this.fileName = fileName;
+        }
+
+        private void accept(DataBuffer buffer) {
+            int readable = buffer.readableByteCount();
+            if (!checked) {
+                int start = buffer.readPosition();
+                int n = Math.min(readable, header.length - headerLength);
+                for (int i = 0; i < n; i++) {
+                    header[headerLength++] = buffer.getByte(start + i);
+                }
+                if (headerLength == header.length) {
+                    check();
+                }
+            }
+            size += readable;
+        }
+
+        private void finish() {
+            if (!checked) {
+                check();
+            }
+        }
+
+        private void check() {
+            checked = true;
+            if (headerLength > 0 && !ContentSniffer.matches(extensionOf(fileName), header, headerLength)) {
+                throw new UploadRejectedException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                        "File '" + fileName + "' is not a valid " + extensionOf(fileName) + " file");
+            }
+        }
+    }
+
+    private static final class UploadRejectedException extends RuntimeException {
+
+        private final HttpStatus status;
+
+        private UploadRejectedException(HttpStatus status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.nab.new_afm_back.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.service.impl.StorageReconciliationService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Storage reconciliation on the management port, so the public port does not serve it.
+ * {@code GET /actuator/reconcile} returns the last report (404 before the first run);
+ * {@code POST /actuator/reconcile} with {@code {"quarantine": true|false}} runs one now and answers 409
+ * while another run is in progress.
+ */
+@Component
+@Endpoint(id = "reconcile")
+@RequiredArgsConstructor
+@Slf4j
+public class StorageReconciliationEndpoint {
+
+    private final StorageReconciliationService storageReconciliationService;
+
+    @ReadOperation
+    public WebEndpointResponse<Object> lastReport() {
+        return storageReconciliationService.getLastReport()
+                .map(report -> new WebEndpointResponse<Object>(report))
+                .orElseGet(() -> new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND));
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Object> reconcile(@Nullable Boolean quarantine) {
+        boolean moveOrphans = Boolean.TRUE.equals(quarantine);
+        log.info("Manual storage reconciliation requested (quarantine={})", moveOrphans);
+        try {
+            return new WebEndpointResponse<>(storageReconciliationService.reconcile(moveOrphans));
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>("Error: " + e.getMessage(), 409);
+        } catch (IOException e) {
+            log.error("Storage reconciliation failed: {}", e.getMessage(), e);
+            return new WebEndpointResponse<>("Error reading storage: " + e.getMessage(),
+                    WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package org.nab.new_afm_back.dto.response;
+
+/**
+ * Files marked as deleted by a bulk request; their stored copies are removed in the background.
+ */
+public record FileDeletionResult(String caseNumber, int deletedFiles) {
+}
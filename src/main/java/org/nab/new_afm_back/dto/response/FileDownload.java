@@ -0,0 +1,9 @@
+package org.nab.new_afm_back.dto.response;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * A stored case file ready to stream; {@code contentEncoding} is set when the body is sent still compressed.
+ */
+public record FileDownload(Resource resource, String filename, String contentEncoding) {
+}
@@ -0,0 +1,52 @@
+package org.nab.new_afm_back.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Database activity since {@code since}: Hibernate statistics, the costliest HQL queries and repository
+ * methods, and the most recent slow statements and requests that ran more statements than allowed
+ * (usually an N+1 select). Slow statements carry parameter shapes (types and lengths), never values.
+ */
+public record QueryReport(
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime since,
+        Hibernate hibernate,
+        List<HqlQuery> topQueries,
+        List<RepositoryMethod> topRepositoryMethods,
+        long slowQueryThresholdMs,
+        long slowQueries,
+        List<SlowQuery> recentSlowQueries,
+        int maxStatementsPerRequest,
+        long flaggedRequests,
+        List<FlaggedRequest> recentFlaggedRequests) {
+
+    /**
+     * Entity and collection fetches are lazy loads issued one by one, the usual source of N+1 selects.
+     */
+    public record Hibernate(boolean statisticsEnabled, long sessionsOpened, long transactions,
+                            long statementsPrepared, long queryExecutions, long queryExecutionMaxTimeMs,
+                            String slowestQuery, long entityLoads, long entityFetches, long collectionLoads,
+                            long collectionFetches, long secondLevelCacheHits, long secondLevelCacheMisses) {
+    }
+
+    public record HqlQuery(String query, long executions, long rows, double averageMs, long maxMs, double totalMs) {
+    }
+
+    /**
+     * Totals since startup; {@code maxMs} covers only the last few minutes, as kept by the timer.
+     */
+    public record RepositoryMethod(String repository, String method, long invocations, double totalMs,
+                                   double averageMs, double maxMs) {
+    }
+
+    public record SlowQuery(@JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime at, String request,
+                            double elapsedMs, String sql, List<String> parameters, int batchSize, boolean succeeded) {
+    }
+
+    public record FlaggedRequest(@JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime at, String request,
+                                 int statements, int distinctStatements, String mostRepeated,
+                                 int mostRepeatedCount) {
+    }
+}
@@ -0,0 +1,26 @@
+package org.nab.new_afm_back.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Outcome of one storage reconciliation run. Orphan files exist in storage without a {@code case_files1}
+ * row; missing files are rows whose stored file is gone. Samples are capped, counts are exact.
+ */
+public record ReconciliationReport(
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startedAt,
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime finishedAt,
+        boolean quarantine,
+        long storedFiles,
+        long databaseFiles,
+        long orphanFiles,
+        long quarantinedFiles,
+        long missingFiles,
+        List<String> orphanFileSample,
+        List<MissingFile> missingFileSample) {
+
+    public record MissingFile(Long id, String fileName) {
+    }
+}
@@ -0,0 +1,35 @@
+package org.nab.new_afm_back.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Progress of an asynchronous upload. Files move from {@code QUEUED} to {@code STAGED} while the job
+ * runs and to {@code STORED} once the case rows are committed and the file is in storage. A committed
+ * file that could not be moved into storage stays {@code STAGED} with a message until recovery promotes
+ * it; if the job fails, nothing is stored.
+ */
+public record UploadJobStatus(
+        String id,
+        Type type,
+        String caseNumber,
+        State state,
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime submittedAt,
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime startedAt,
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime finishedAt,
+        Long caseId,
+        String error,
+        List<FileStatus> files) {
+
+    public enum Type { UPLOAD_CASE, ADD_FILES }
+
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    public enum FileState { QUEUED, STAGED, STORED, SKIPPED, FAILED }
+
+    public record FileStatus(int index, String originalFileName, long size, FileState state,
+                             String storedFileName, String message) {
+    }
+}
@@ -0,0 +1,60 @@
+package org.nab.new_afm_back.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One case file download, from the metadata lookup until the response stream was closed.
+ */
+@Name("org.nab.afm.Download")
+@Label("Download")
+@Category({"AFM", "Download"})
+@Description("A case file served to a client, including the transfer")
+@StackTrace(false)
+public class DownloadEvent extends Event {
+
+    @Label("Case Number")
+    public String caseNumber;
+
+    @Label("File Id")
+    public long fileId;
+
+    @Label("Stored Name")
+    public String storedName;
+
+    @Label("Encoding")
+    @Description("identity, gzip (sent compressed) or decoded")
+    public String encoding;
+
+    @Label("Cache Hit")
+    @Description("Whether the file's metadata came from the download metadata cache")
+    public boolean cacheHit;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Range Start")
+    @Description("Bytes skipped before the first read; non-zero for range requests")
+    @DataAmount
+    public long rangeStart;
+
+    @Label("Content Length")
+    @DataAmount
+    public long contentLength;
+
+    @Label("Resolve Duration")
+    @Timespan
+    public long resolveDuration;
+
+    @Label("Time To First Byte")
+    @Description("Time from the start of the request until the first bytes were read from storage")
+    @Timespan
+    public long timeToFirstByte;
+}
@@ -0,0 +1,35 @@
+package org.nab.new_afm_back.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A render into {@code RenderCache}, such as a case dossier or PDF bundle. Cache hits do not render.
+ */
+@Name("org.nab.afm.Render")
+@Label("Render")
+@Category({"AFM", "Render"})
+@Description("A dossier or bundle rendered into the render cache")
+@StackTrace(false)
+public class RenderEvent extends Event {
+
+    @Label("Kind")
+    @Description("Render cache the output went to, e.g. dossiers or bundles")
+    public String kind;
+
+    @Label("Group")
+    @Description("Case number the render belongs to")
+    public String group;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
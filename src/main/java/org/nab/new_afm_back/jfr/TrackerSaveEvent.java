@@ -0,0 +1,31 @@
+package org.nab.new_afm_back.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A write of the accessed cases file by {@code CaseAccessTracker}.
+ */
+@Name("org.nab.afm.TrackerSave")
+@Label("Accessed Cases Save")
+@Category({"AFM", "Tracker"})
+@StackTrace(false)
+public class TrackerSaveEvent extends Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Cases")
+    public int cases;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,60 @@
+package org.nab.new_afm_back.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One file of an upload request, from when its processing started until its request finished. Rejected
+ * files are committed right away; stored files once the request has committed and moved them into storage.
+ */
+@Name("org.nab.afm.UploadFile")
+@Label("Upload File")
+@Category({"AFM", "Upload"})
+@Description("A file of an upload request: validation, staging and the request's database and storage work")
+@StackTrace(false)
+public class UploadFileEvent extends Event {
+
+    @Label("Upload Type")
+    public String uploadType;
+
+    @Label("Case Number")
+    public String caseNumber;
+
+    @Label("File Name")
+    @Description("Name given by the uploader")
+    public String fileName;
+
+    @Label("Stored Name")
+    public String storedName;
+
+    @Label("File Type")
+    public String fileType;
+
+    @Label("Size")
+    @DataAmount
+    public long size;
+
+    @Label("Outcome")
+    @Description("stored, rejected, rolled-back or promote-failed")
+    public String outcome;
+
+    @Label("Validate Duration")
+    @Timespan
+    public long validateDuration;
+
+    @Label("Copy Duration")
+    @Description("Time to write the file into the staging area")
+    @Timespan
+    public long copyDuration;
+
+    @Label("Persist Duration")
+    @Description("Time from the request's last staged file until its rows were committed and its files stored")
+    @Timespan
+    public long persistDuration;
+}
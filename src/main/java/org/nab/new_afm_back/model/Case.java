@@ -10,13 +10,16 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "cases1")
+@Table(name = "cases1",
+        uniqueConstraints = @UniqueConstraint(name = Case.NUMBER_CONSTRAINT, columnNames = "number"))
 @Getter
 @Setter
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Case {
+    public static final String NUMBER_CONSTRAINT = "uk_cases1_number";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
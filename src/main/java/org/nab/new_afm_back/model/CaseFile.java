@@ -3,11 +3,14 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "case_files1")
+@Table(name = "case_files1",
+        uniqueConstraints = @UniqueConstraint(name = "uk_case_files1_file_name", columnNames = "file_name"))
+@SQLRestriction("deleted_at IS NULL")
 @Getter
 @Setter
 @Builder
@@ -33,6 +36,12 @@ public class CaseFile {
     @Column(name = "file_type")
     private String fileType;
 
+    @Column(name = "content_encoding")
+    private String contentEncoding;
+
+    @Column(name = "stored_size")
+    private Long storedSize;
+
     @Column(name = "uploaded_at", nullable = false)
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime uploadedAt;
@@ -40,6 +49,13 @@ public class CaseFile {
     @Column(name = "uploaded_by")
     private String uploadedBy;
 
+    /**
+     * Set when the file is deleted; the row stays until the background deleter has removed the stored file.
+     */
+    @Column(name = "deleted_at")
+    @JsonIgnore
+    private LocalDateTime deletedAt;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "case_id", nullable = false)
     @JsonIgnore
@@ -4,10 +4,14 @@ import org.nab.new_afm_back.model.CaseFile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +24,8 @@ public interface CaseFileRepository extends JpaRepository<CaseFile, Long> {
 
     Page<CaseFile> findByCaseEntityNumber(String caseNumber, Pageable pageable);
 
+    List<CaseFile> findByCaseEntityNumberAndFileTypeOrderByUploadedAtAscIdAsc(String caseNumber, String fileType);
+
     Optional<CaseFile> findByFileNameAndCaseEntityNumber(String fileName, String caseNumber);
 
     @Query("SELECT cf FROM CaseFile cf WHERE cf.caseEntity.number = :caseNumber ORDER BY cf.uploadedAt DESC")
@@ -32,6 +38,61 @@ public interface CaseFileRepository extends JpaRepository<CaseFile, Long> {
 
     void deleteByFileNameAndCaseEntityNumber(String fileName, String caseNumber);
     void deleteByIdAndCaseEntityNumber(Long id, String caseEntity_number);
-    boolean existsByFileName(String caseNumber);
+    /**
+     * Includes deleted rows still waiting for their stored file to be removed, so those files are not taken for orphans.
+     */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM case_files1 WHERE file_name = :fileName)", nativeQuery = true)
+    boolean existsByFileName(@Param("fileName") String fileName);
+
+    /**
+     * Keyset-paginated scan of stored file names, including deleted rows whose file is not removed yet.
+     */
+    @Query(value = "SELECT id AS id, file_name AS \"fileName\" FROM case_files1 WHERE id > :afterId ORDER BY id LIMIT :limit",
+            nativeQuery = true)
+    List<FileNameRow> findFileNamesAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * Everything a download needs, resolved in one query that also checks the file belongs to the case.
+     */
+    @Query("SELECT cf.fileName AS fileName, cf.originalFileName AS originalFileName, cf.fileSize AS fileSize, " +
+            "cf.contentEncoding AS contentEncoding FROM CaseFile cf " +
+            "WHERE cf.id = :id AND cf.caseEntity.number = :caseNumber")
+    Optional<DownloadRow> findDownloadRow(@Param("caseNumber") String caseNumber, @Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE CaseFile cf SET cf.deletedAt = :deletedAt WHERE cf.deletedAt IS NULL AND cf.id IN :ids " +
+            "AND cf.caseEntity.id IN (SELECT c.id FROM Case c WHERE c.number = :caseNumber)")
+    int tombstoneByIdsAndCaseNumber(@Param("ids") Collection<Long> ids, @Param("caseNumber") String caseNumber,
+                                    @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Modifying
+    @Query("UPDATE CaseFile cf SET cf.deletedAt = :deletedAt WHERE cf.deletedAt IS NULL " +
+            "AND cf.caseEntity.id IN (SELECT c.id FROM Case c WHERE c.number = :caseNumber)")
+    int tombstoneByCaseNumber(@Param("caseNumber") String caseNumber, @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Query(value = "SELECT id AS id, file_name AS \"fileName\" FROM case_files1 " +
+            "WHERE deleted_at IS NOT NULL AND id > :afterId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<FileNameRow> findDeletedAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM case_files1 WHERE deleted_at IS NOT NULL AND id IN (:ids)", nativeQuery = true)
+    int purgeDeleted(@Param("ids") Collection<Long> ids);
+
+    interface FileNameRow {
+        Long getId();
+
+        String getFileName();
+    }
+
+    interface DownloadRow {
+        String getFileName();
+
+        String getOriginalFileName();
+
+        Long getFileSize();
+
+        String getContentEncoding();
+    }
 
 }
\ No newline at end of file
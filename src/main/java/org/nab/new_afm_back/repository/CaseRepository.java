@@ -17,9 +17,23 @@ import java.util.Set;
 @Repository
 public interface CaseRepository extends JpaRepository<Case, Long> {
     Optional<Case> getCaseByNumber(String number);
+
+    boolean existsByNumber(String number);
+
+    /**
+     * Keyset-paginated scan of case numbers, so the existence index is rebuilt without loading them all.
+     */
+    @Query(value = "SELECT id, number FROM cases1 WHERE id > :afterId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<NumberRow> findNumbersAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
     @Query("SELECT c FROM Case c WHERE c.uploadDate >= :startDate ORDER BY c.uploadDate DESC")
     Page<Case> findRecentCases(@Param("startDate") LocalDate startDate, Pageable pageable);
 
     List<Case> findAllByNumberIn(List<String> numbers);
 
+    interface NumberRow {
+        Long getId();
+
+        String getNumber();
+    }
 }
@@ -0,0 +1,8 @@
+package org.nab.new_afm_back.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface ICaseBundleService {
+    Path getPdfBundle(String caseNumber) throws IOException;
+}
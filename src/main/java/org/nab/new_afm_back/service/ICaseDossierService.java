@@ -0,0 +1,10 @@
+package org.nab.new_afm_back.service;
+
+import org.nab.new_afm_back.model.Case;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface ICaseDossierService {
+    Path renderDossier(Case caseEntity) throws IOException;
+}
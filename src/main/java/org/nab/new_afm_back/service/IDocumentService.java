@@ -5,5 +5,6 @@ import org.nab.new_afm_back.dto.response.Document;
 public interface IDocumentService {
     Document getDocument(String number);
     String getTextOfPredicate(String number, String predicate);
+    String getRevision();
 
 }
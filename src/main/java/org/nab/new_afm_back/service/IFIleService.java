@@ -2,6 +2,7 @@ package org.nab.new_afm_back.service;
 
 import org.nab.new_afm_back.dto.request.UploadCaseRequest;
 import org.nab.new_afm_back.model.Case;
+import org.nab.new_afm_back.storage.StoredFile;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -12,7 +13,7 @@ public interface IFIleService {
     Case uploadCaseWithFiles(UploadCaseRequest request, List<MultipartFile> additionalFiles) throws IOException;
     void deleteAdditionalFileById(String caseNumber, int id);
     Case addAdditionalFilesToCase(String caseNumber, List<MultipartFile> additionalFiles) throws IOException;
-    void saveFileToStorage(MultipartFile pdfFile, String fileName) throws IOException;
+    StoredFile saveFileToStorage(MultipartFile pdfFile, String fileName) throws IOException;
     boolean validateUploadedFile(MultipartFile pdfFile);
     Resource downloadWordByCaseNumber(String caseNumber) throws IOException;
 
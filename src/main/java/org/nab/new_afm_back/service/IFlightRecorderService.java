@@ -0,0 +1,9 @@
+package org.nab.new_afm_back.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface IFlightRecorderService {
+    boolean isRecording();
+    Path dump() throws IOException;
+}
@@ -0,0 +1,8 @@
+package org.nab.new_afm_back.service;
+
+import org.nab.new_afm_back.dto.response.QueryReport;
+
+public interface IQueryStatisticsService {
+    QueryReport getReport(int top);
+    void reset();
+}
@@ -0,0 +1,11 @@
+package org.nab.new_afm_back.service;
+
+import org.nab.new_afm_back.dto.response.ReconciliationReport;
+
+import java.io.IOException;
+import java.util.Optional;
+
+public interface IStorageReconciliationService {
+    ReconciliationReport reconcile(boolean quarantine) throws IOException;
+    Optional<ReconciliationReport> getLastReport();
+}
@@ -0,0 +1,15 @@
+package org.nab.new_afm_back.service;
+
+import org.nab.new_afm_back.dto.request.UploadCaseRequest;
+import org.nab.new_afm_back.dto.response.UploadJobStatus;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+public interface IUploadJobService {
+    UploadJobStatus submitUpload(UploadCaseRequest request, List<MultipartFile> additionalFiles) throws IOException;
+    UploadJobStatus submitAddFiles(String caseNumber, List<MultipartFile> additionalFiles) throws IOException;
+    Optional<UploadJobStatus> getStatus(String jobId);
+}
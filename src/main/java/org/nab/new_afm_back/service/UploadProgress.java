@@ -0,0 +1,26 @@
+package org.nab.new_afm_back.service;
+
+import java.util.Collection;
+
+/**
+ * Per-file callbacks from an upload while its files are validated and staged. Indexes refer to the
+ * position of the file in the uploaded list.
+ */
+public interface UploadProgress {
+
+    UploadProgress NONE = new UploadProgress() {
+    };
+
+    default void fileStaged(int index, String storedFileName) {
+    }
+
+    default void fileSkipped(int index, String reason) {
+    }
+
+    /**
+     * Called after the commit with the stored names of committed files that could not be moved into
+     * storage; they wait in the staging area until a later recovery promotes them.
+     */
+    default void filesNotPromoted(Collection<String> storedFileNames) {
+    }
+}
@@ -0,0 +1,142 @@
+package org.nab.new_afm_back.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.nab.new_afm_back.model.CaseFile;
+import org.nab.new_afm_back.repository.CaseFileRepository;
+import org.nab.new_afm_back.service.ICaseBundleService;
+import org.nab.new_afm_back.storage.BlobStore;
+import org.nab.new_afm_back.util.FileCompressor;
+import org.nab.new_afm_back.util.RenderCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CaseBundleService implements ICaseBundleService {
+
+    private final CaseFileRepository caseFileRepository;
+    private final BlobStore blobStore;
+
+    @Value("${app.pdf.cache-directory:./render-cache}")
+    private String cacheDirectory;
+
+    private RenderCache renderCache;
+
+    @PostConstruct
+    public void init() throws IOException {
+        renderCache = new RenderCache(Paths.get(cacheDirectory, "bundles"), "pdf");
+    }
+
+    /**
+     * Returns all PDF files of the case merged in upload order, re-merging only when the case's
+     * set of PDF files changed since the cached bundle was built. If any of them cannot be read the
+     * render fails, so a bundle missing a file is never cached under the fingerprint of all of them.
+     */
+    @Override
+    public Path getPdfBundle(String caseNumber) throws IOException {
+        List<CaseFile> pdfFiles = caseFileRepository.findByCaseEntityNumberAndFileTypeOrderByUploadedAtAscIdAsc(caseNumber, "pdf");
+        if (pdfFiles.isEmpty()) {
+            throw new IllegalArgumentException("No PDF files found for case: " + caseNumber);
+        }
+
+        log.info("Preparing PDF bundle for case {} from {} files", caseNumber, pdfFiles.size());
+        return renderCache.get(caseNumber, fingerprint(pdfFiles), out -> merge(caseNumber, pdfFiles, out));
+    }
+
+    private void merge(String caseNumber, List<CaseFile> pdfFiles, OutputStream out) throws IOException {
+        PDFMergerUtility merger = new PDFMergerUtility();
+        List<PDDocument> sources = new ArrayList<>();
+
+        // Scratch buffers of the sources and the result live in temp files, so heap use does not grow with the bundle.
+        try (PDDocument bundle = new PDDocument(MemoryUsageSetting.setupTempFileOnly())) {
+            PDDocumentOutline outline = new PDDocumentOutline();
+            bundle.getDocumentCatalog().setDocumentOutline(outline);
+
+            for (CaseFile caseFile : pdfFiles) {
+                PDDocument document;
+                try {
+                    document = load(caseFile);
+                } catch (IOException e) {
+                    throw new IOException("PDF file " + caseFile.getFileName() + " of case " + caseNumber
+                            + " could not be read: " + e.getMessage(), e);
+                }
+                // PDFBox needs the sources open until the merged document is saved.
+                sources.add(document);
+
+                // Only one bookmark per source file; nested source outlines would clutter the navigation.
+                document.getDocumentCatalog().setDocumentOutline(null);
+
+                int firstPage = bundle.getNumberOfPages();
+                merger.appendDocument(bundle, document);
+                if (bundle.getNumberOfPages() > firstPage) {
+                    PDOutlineItem bookmark = new PDOutlineItem();
+                    bookmark.setTitle(caseFile.getOriginalFileName() != null
+                            ? caseFile.getOriginalFileName() : caseFile.getFileName());
+                    bookmark.setDestination(bundle.getPage(firstPage));
+                    outline.addLast(bookmark);
+                }
+            }
+
+            if (bundle.getNumberOfPages() == 0) {
+                throw new IOException("The PDF files of case " + caseNumber + " have no pages");
+            }
+            outline.openNode();
+            bundle.save(out);
+        } finally {
+            for (PDDocument source : sources) {
+                source.close();
+            }
+        }
+    }
+
+    private PDDocument load(CaseFile caseFile) throws IOException {
+        String fileName = caseFile.getFileName();
+        if (FileCompressor.GZIP.equals(caseFile.getContentEncoding())) {
+            try (InputStream content = new GZIPInputStream(blobStore.get(fileName), 64 * 1024)) {
+                return PDDocument.load(content, MemoryUsageSetting.setupTempFileOnly());
+            }
+        }
+        Optional<Path> localFile = blobStore.localPath(fileName);
+        if (localFile.isPresent()) {
+            return PDDocument.load(localFile.get().toFile(), MemoryUsageSetting.setupTempFileOnly());
+        }
+        try (InputStream content = blobStore.get(fileName)) {
+            return PDDocument.load(content, MemoryUsageSetting.setupTempFileOnly());
+        }
+    }
+
+    private static String fingerprint(List<CaseFile> pdfFiles) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (CaseFile caseFile : pdfFiles) {
+                String entry = caseFile.getId() + ":" + caseFile.getFileName() + ":" + caseFile.getFileSize() + "\n";
+                digest.update(entry.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.nab.new_afm_back.service.impl;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Chunk;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfWriter;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.dto.response.Document;
+import org.nab.new_afm_back.dto.response.Predicate;
+import org.nab.new_afm_back.dto.response.Risk;
+import org.nab.new_afm_back.model.Case;
+import org.nab.new_afm_back.service.ICaseDossierService;
+import org.nab.new_afm_back.util.RenderCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CaseDossierService implements ICaseDossierService {
+
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSSSSS");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final DocumentService documentService;
+
+    @Value("${app.pdf.cache-directory:./render-cache}")
+    private String cacheDirectory;
+
+    @Value("${app.pdf.font-path:}")
+    private String fontPath;
+
+    private RenderCache renderCache;
+    private BaseFont baseFont;
+
+    @PostConstruct
+    public void init() throws IOException {
+        renderCache = new RenderCache(Paths.get(cacheDirectory, "dossiers"), "pdf");
+        try {
+            baseFont = fontPath.isBlank()
+                    ? BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED)
+                    : BaseFont.createFont(fontPath, BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
+        } catch (DocumentException e) {
+            throw new IOException("Could not load PDF font: " + fontPath, e);
+        }
+        if (fontPath.isBlank()) {
+            log.warn("app.pdf.font-path is not set; dossiers fall back to Helvetica without Cyrillic glyphs");
+        }
+    }
+
+    /**
+     * Returns the dossier PDF for the case, rendering it only when the case row or documents.json
+     * changed since the cached copy was produced.
+     */
+    @Override
+    public Path renderDossier(Case caseEntity) throws IOException {
+        LocalDateTime changedAt = caseEntity.getUpdatedAt() != null ? caseEntity.getUpdatedAt() : caseEntity.getCreatedAt();
+        String version = (changedAt != null ? changedAt.format(VERSION_FORMAT) : "0") + "_" + documentService.getRevision();
+
+        return renderCache.get(caseEntity.getNumber(), version, out -> render(caseEntity, out));
+    }
+
+    private void render(Case caseEntity, OutputStream out) throws IOException {
+        Font titleFont = new Font(baseFont, 16, Font.BOLD);
+        Font sectionFont = new Font(baseFont, 13, Font.BOLD);
+        Font labelFont = new Font(baseFont, 10, Font.BOLD);
+        Font textFont = new Font(baseFont, 10);
+
+        com.itextpdf.text.Document pdf = new com.itextpdf.text.Document(PageSize.A4, 50, 50, 50, 50);
+        try {
+            PdfWriter.getInstance(pdf, out);
+            pdf.addTitle("Case " + caseEntity.getNumber());
+            pdf.addCreator("new_afm_back");
+            pdf.open();
+
+            Paragraph title = new Paragraph("Case " + caseEntity.getNumber(), titleFont);
+            title.setAlignment(Element.ALIGN_CENTER);
+            title.setSpacingAfter(16);
+            pdf.add(title);
+
+            PdfPTable details = new PdfPTable(new float[]{1, 2});
+            details.setWidthPercentage(100);
+            addRow(details, "Author", caseEntity.getAuthor(), labelFont, textFont);
+            addRow(details, "Investigator", caseEntity.getInvestigator(), labelFont, textFont);
+            addRow(details, "Policeman", caseEntity.getPoliceman(), labelFont, textFont);
+            addRow(details, "Organ", caseEntity.getOrgan(), labelFont, textFont);
+            addRow(details, "Object", caseEntity.getObject(), labelFont, textFont);
+            addRow(details, "Articles", join(caseEntity.getArticles()), labelFont, textFont);
+            addRow(details, "Qualification", caseEntity.getQualification(), labelFont, textFont);
+            addRow(details, "Registration date", format(caseEntity.getRegistrationDate()), labelFont, textFont);
+            addRow(details, "Qualification date", format(caseEntity.getQualificationDate()), labelFont, textFont);
+            addRow(details, "Accusation date", format(caseEntity.getAccusationDate()), labelFont, textFont);
+            addRow(details, "Upload date", format(caseEntity.getUploadDate()), labelFont, textFont);
+            addRow(details, "Damage amount", format(caseEntity.getDamageAmount()), labelFont, textFont);
+            addRow(details, "Criminal income", format(caseEntity.getCriminalIncomeAmount()), labelFont, textFont);
+            pdf.add(details);
+
+            Document document = documentService.getDocument(caseEntity.getNumber());
+            if (document != null) {
+                if (document.getHeader() != null) {
+                    Paragraph header = new Paragraph(document.getHeader(), sectionFont);
+                    header.setSpacingBefore(16);
+                    pdf.add(header);
+                }
+
+                addSection(pdf, "Predicates", sectionFont);
+                for (Predicate predicate : document.getPredicates()) {
+                    addEntry(pdf, predicate.getLabel(), predicate.getSubLabel(), predicate.getText(), labelFont, textFont);
+                }
+
+                addSection(pdf, "Risks", sectionFont);
+                for (Risk risk : document.getRisks()) {
+                    addEntry(pdf, risk.getLabel(), risk.getSubLabel(), risk.getText(), labelFont, textFont);
+                }
+            }
+
+            pdf.close();
+        } catch (DocumentException e) {
+            throw new IOException("Failed to render dossier for case " + caseEntity.getNumber(), e);
+        }
+    }
+
+    private void addRow(PdfPTable table, String label, String value, Font labelFont, Font textFont) {
+        PdfPCell labelCell = new PdfPCell(new Phrase(label, labelFont));
+        labelCell.setBackgroundColor(BaseColor.LIGHT_GRAY);
+        labelCell.setPadding(4);
+        table.addCell(labelCell);
+
+        PdfPCell valueCell = new PdfPCell(new Phrase(value != null ? value : "-", textFont));
+        valueCell.setPadding(4);
+        table.addCell(valueCell);
+    }
+
+    private void addSection(com.itextpdf.text.Document pdf, String name, Font font) throws DocumentException {
+        Paragraph section = new Paragraph(name, font);
+        section.setSpacingBefore(14);
+        section.setSpacingAfter(6);
+        pdf.add(section);
+    }
+
+    private void addEntry(com.itextpdf.text.Document pdf, String label, String subLabel, String text,
+                          Font labelFont, Font textFont) throws DocumentException {
+        Paragraph heading = new Paragraph();
+        heading.add(new Chunk(label != null ? label : "", labelFont));
+        if (subLabel != null && !subLabel.isBlank()) {
+            heading.add(new Chunk(" — " + subLabel, textFont));
+        }
+        pdf.add(heading);
+
+        Paragraph body = new Paragraph(text != null ? text : "", textFont);
+        body.setSpacingAfter(8);
+        pdf.add(body);
+    }
+
+    private static String join(List<String> values) {
+        return values == null || values.isEmpty() ? null : String.join(", ", values);
+    }
+
+    private static String format(LocalDate date) {
+        return date != null ? date.format(DATE_FORMAT) : null;
+    }
+
+    private static String format(BigDecimal amount) {
+        return amount != null ? amount.toPlainString() : null;
+    }
+}
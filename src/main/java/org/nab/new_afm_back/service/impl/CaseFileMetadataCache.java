@@ -0,0 +1,121 @@
+package org.nab.new_afm_back.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.storage.BlobStat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of what a case file download needs (stored name, sizes, encoding, storage stat),
+ * so hot files are served without a database or storage round-trip. Entries are dropped when their
+ * files are deleted and expire after a TTL, which bounds staleness after changes made behind the
+ * application's back, e.g. files moved to quarantine.
+ * <p>
+ * A download reads the row before a deletion commits and may put its entry after the invalidation that
+ * followed the commit. Puts therefore carry the {@link #currentGeneration() generation} taken before the
+ * read, and are rejected if the file or its case was invalidated since.
+ */
+@Component
+@Slf4j
+public class CaseFileMetadataCache {
+
+    public record Metadata(String fileName, String displayName, Long fileSize, String contentEncoding, BlobStat stat) {
+    }
+
+    private record Key(String caseNumber, long fileId) {
+    }
+
+    private record Entry(Metadata metadata, long expiresAt) {
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<Key, Entry> entries;
+    // Generation of recent invalidations, by Key for single files and by case number for whole cases.
+    // Bounded: evicting a record raises the floor, below which every put is rejected.
+    private final Map<Object, Long> invalidations;
+    private long generation;
+    private long floor;
+
+    public CaseFileMetadataCache(@Value("${app.download.metadata-cache.max-entries:10000}") int maxEntries,
+                                 @Value("${app.download.metadata-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > CaseFileMetadataCache.this.maxEntries;
+            }
+        };
+        this.invalidations = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Long> eldest) {
+                if (size() > Math.max(CaseFileMetadataCache.this.maxEntries, 1)) {
+                    floor = Math.max(floor, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        log.info("Case file metadata cache: up to {} entries, TTL {} s", maxEntries, ttlSeconds);
+    }
+
+    public synchronized Metadata get(String caseNumber, long fileId) {
+        Key key = new Key(caseNumber, fileId);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt() > 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.metadata();
+    }
+
+    /**
+     * To be taken before reading what is then {@link #put}.
+     */
+    public synchronized long currentGeneration() {
+        return generation;
+    }
+
+    /**
+     * @param readGeneration {@link #currentGeneration()} taken before {@code metadata} was read
+     */
+    public synchronized void put(String caseNumber, long fileId, long readGeneration, Metadata metadata) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Key key = new Key(caseNumber, fileId);
+        if (readGeneration < floor || invalidatedSince(key, readGeneration) || invalidatedSince(caseNumber, readGeneration)) {
+            log.debug("Not caching metadata of file {} in case {}: invalidated while it was read", fileId, caseNumber);
+            return;
+        }
+        entries.put(key, new Entry(metadata, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void invalidate(String caseNumber, Collection<Long> fileIds) {
+        generation++;
+        for (Long fileId : fileIds) {
+            Key key = new Key(caseNumber, fileId);
+            entries.remove(key);
+            invalidations.put(key, generation);
+        }
+    }
+
+    public synchronized void invalidateCase(String caseNumber) {
+        generation++;
+        entries.keySet().removeIf(key -> key.caseNumber().equals(caseNumber));
+        invalidations.put(caseNumber, generation);
+    }
+
+    private boolean invalidatedSince(Object invalidated, long readGeneration) {
+        Long invalidatedAt = invalidations.get(invalidated);
+        return invalidatedAt != null && invalidatedAt > readGeneration;
+    }
+}
@@ -0,0 +1,407 @@
+package org.nab.new_afm_back.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.storage.BlobStore;
+import org.nab.new_afm_back.util.SnowflakeIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills {@code cases1}, {@code case_articles1} and {@code case_files1} with synthetic cases at production
+ * scale, for sizing queries such as {@code findRecentCases} and the storage layout. Runs when the
+ * {@code datagen} profile is active and exits the application afterwards.
+ * <p>
+ * Each case draws from its own random stream derived from the seed and its index, and dates are spread
+ * over the years before {@code reference-date} rather than today, so the same seed and settings yield the
+ * same data on any day, whatever the thread count and {@code batch-size}. Cases are generated in chunks of
+ * {@code batch-size}, inserted with JDBC batches in one transaction each, and their stored files are created
+ * after the commit: sparse files of the recorded size on local storage, a few bytes per file otherwise.
+ */
+@Component
+@Profile("datagen")
+@RequiredArgsConstructor
+@Slf4j
+public class DatasetGenerator implements ApplicationRunner {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int DATAGEN_NODE_ID = SnowflakeIdGenerator.MAX_NODE_ID;
+
+    private static final String INSERT_CASE = "INSERT INTO cases1 (number, upload_date, update_date, registration_date, "
+            + "qualification_date, accusation_date, author, investigator, policeman, object, organ, qualification, "
+            + "damage_amount, criminal_income_amount, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ARTICLE = "INSERT INTO case_articles1 (case_id, article) VALUES (?, ?)";
+    private static final String INSERT_FILE = "INSERT INTO case_files1 (case_id, file_name, original_file_name, "
+            + "file_size, stored_size, file_type, uploaded_at, uploaded_by) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /** Criminal code articles seen in financial monitoring cases, most frequent first, with what they cover. */
+    private static final String[][] ARTICLES = {
+            {"190", "Мошенничество"},
+            {"189", "Присвоение или растрата вверенного чужого имущества"},
+            {"218", "Легализация (отмывание) денег и (или) иного имущества, полученных преступным путем"},
+            {"245", "Уклонение от уплаты налогов и (или) других обязательных платежей в бюджет"},
+            {"217", "Создание и руководство финансовой (инвестиционной) пирамидой"},
+            {"216", "Совершение действий по выписке счета-фактуры без фактического выполнения работ"},
+            {"214", "Незаконная предпринимательская деятельность"},
+            {"366", "Получение взятки"},
+            {"307", "Злоупотребление полномочиями"},
+            {"234", "Экономическая контрабанда"},
+            {"249", "Незаконное использование денег банка"},
+            {"361", "Злоупотребление должностными полномочиями"},
+    };
+    private static final String[] ORGANS = {
+            "ДЭР по г. Астана", "ДЭР по г. Алматы", "ДЭР по г. Шымкент", "ДЭР по Карагандинской области",
+            "ДЭР по Актюбинской области", "ДЭР по Восточно-Казахстанской области", "ДЭР по Атырауской области",
+            "ДЭР по Павлодарской области", "ДЭР по Костанайской области", "ДЭР по Жамбылской области",
+    };
+    private static final String[] SURNAMES = {
+            "Ахметов", "Сейткали", "Иванов", "Нурланов", "Жумабеков", "Ким", "Омаров", "Петров", "Касымов",
+            "Бекова", "Смагулова", "Абдрахманов", "Тулегенов", "Сидорова", "Есенов", "Мусин",
+    };
+    private static final String[] INITIALS = {"А.", "Б.", "Д.", "Е.", "Ж.", "К.", "М.", "Н.", "С.", "Т."};
+    private static final String[] UPLOADERS = {"web", "registry-sync", "analyst-1", "analyst-2", "analyst-3"};
+
+    /** Extensions by share of uploads; text files are bank statement exports and run large. */
+    private static final String[] FILE_TYPES = {"pdf", "pdf", "pdf", "pdf", "pdf", "pdf", "pdf", "docx", "xlsx", "txt", "doc"};
+    private static final Map<String, String[]> FILE_TITLES = Map.of(
+            "pdf", new String[]{"Постановление о возбуждении", "Протокол допроса", "Заключение эксперта",
+                    "Ответ на запрос", "Рапорт", "Постановление о квалификации", "Опись документов"},
+            "docx", new String[]{"Обвинительный акт", "Справка по делу", "Ходатайство"},
+            "doc", new String[]{"Справка", "Запрос"},
+            "xlsx", new String[]{"Анализ движения денег", "Реестр операций", "Расчет ущерба"},
+            "txt", new String[]{"Выписка по счету", "Журнал операций банка"});
+    private static final Map<String, byte[]> SMALL_CONTENT = Map.of(
+            "pdf", "%PDF-1.4\n% generated\n%%EOF\n".getBytes(StandardCharsets.US_ASCII),
+            "docx", new byte[]{'P', 'K', 3, 4, 0, 0},
+            "xlsx", new byte[]{'P', 'K', 3, 4, 0, 0},
+            "doc", new byte[]{(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1},
+            "txt", "generated statement\n".getBytes(StandardCharsets.UTF_8));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlobStore blobStore;
+    private final ApplicationContext applicationContext;
+
+    @Value("${app.datagen.cases:1000000}")
+    private int caseCount;
+
+    @Value("${app.datagen.seed:42}")
+    private long seed;
+
+    @Value("${app.datagen.threads:4}")
+    private int threads;
+
+    @Value("${app.datagen.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.datagen.years:5}")
+    private int years;
+
+    @Value("${app.datagen.reference-date:2025-01-01}")
+    private String referenceDate;
+
+    @Value("${app.datagen.files:sparse}")
+    private String filesMode;
+
+    @Value("${app.datagen.files-per-case-median:3}")
+    private double filesPerCaseMedian;
+
+    @Value("${app.datagen.files-per-case-sigma:1.2}")
+    private double filesPerCaseSigma;
+
+    @Value("${app.datagen.max-files-per-case:500}")
+    private int maxFilesPerCase;
+
+    @Value("${app.datagen.file-size-median:262144}")
+    private long fileSizeMedian;
+
+    @Value("${app.datagen.file-size-sigma:1.5}")
+    private double fileSizeSigma;
+
+    @Value("${spring.servlet.multipart.max-file-size:100MB}")
+    private DataSize maxFileSize;
+
+    private record GeneratedFile(String fileName, String originalFileName, String fileType, long fileSize,
+                                 LocalDateTime uploadedAt, String uploadedBy) {
+    }
+
+    private record GeneratedCase(String number, Object[] row, List<String> articles, List<GeneratedFile> files) {
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        int exitCode = 0;
+        try {
+            generate();
+        } catch (Exception e) {
+            log.error("Dataset generation failed", e);
+            exitCode = 1;
+        }
+        int status = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> status));
+    }
+
+    private void generate() throws Exception {
+        if (!List.of("sparse", "small", "none").contains(filesMode)) {
+            throw new IllegalArgumentException("app.datagen.files must be sparse, small or none: " + filesMode);
+        }
+        if (maxFilesPerCase > 4096) {
+            throw new IllegalArgumentException("app.datagen.max-files-per-case cannot exceed 4096: " + maxFilesPerCase);
+        }
+        int chunks = (caseCount + batchSize - 1) / batchSize;
+        LocalDate reference = LocalDate.parse(referenceDate);
+        log.info("Generating {} cases in {} chunks on {} threads (seed {}, reference date {}, files: {})",
+                caseCount, chunks, threads, seed, reference, filesMode);
+
+        AtomicInteger casesDone = new AtomicInteger();
+        AtomicLong filesDone = new AtomicLong();
+        long started = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int index = chunk;
+                futures.add(executor.submit(() -> {
+                    int from = index * batchSize;
+                    List<GeneratedCase> cases = generateChunk(from, Math.min(caseCount, from + batchSize), reference);
+                    long files = insert(cases);
+                    createStoredFiles(cases);
+
+                    int cumulative = casesDone.addAndGet(cases.size());
+                    long cumulativeFiles = filesDone.addAndGet(files);
+                    double seconds = Duration.ofNanos(System.nanoTime() - started).toMillis() / 1000.0;
+                    log.info("Generated {}/{} cases, {} files ({} cases/s)",
+                            cumulative, caseCount, cumulativeFiles, Math.round(cumulative / Math.max(seconds, 0.001)));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("Dataset generated: {} cases, {} files in {} s", casesDone.get(), filesDone.get(),
+                Duration.ofNanos(System.nanoTime() - started).toSeconds());
+    }
+
+    private List<GeneratedCase> generateChunk(int from, int to, LocalDate reference) {
+        List<GeneratedCase> cases = new ArrayList<>(to - from);
+        for (int index = from; index < to; index++) {
+            cases.add(generateCase(index, new SplittableRandom(seed * GOLDEN_GAMMA + index), reference));
+        }
+        return cases;
+    }
+
+    private GeneratedCase generateCase(int index, SplittableRandom random, LocalDate reference) {
+        // Skewed towards recent years, as case intake grows.
+        long ageDays = (long) (Math.pow(random.nextDouble(), 1.5) * years * 365);
+        LocalDate registrationDate = reference.minusDays(ageDays);
+        LocalDate uploadDate = min(registrationDate.plusDays(random.nextInt(31)), reference);
+        LocalDate qualificationDate = min(registrationDate.plusDays(random.nextInt(91)), reference);
+        LocalDate accusationDate = random.nextInt(10) < 4
+                ? orNull(qualificationDate.plusDays(30 + random.nextInt(336)), reference) : null;
+        LocalDateTime createdAt = uploadDate.atStartOfDay().plusSeconds(8 * 3600 + random.nextInt(10 * 3600));
+        LocalDateTime updatedAt = random.nextInt(10) < 3
+                ? orNull(createdAt.plusDays(1 + random.nextInt(180)), reference.atTime(23, 59)) : null;
+
+        int organ = zipf(random, ORGANS.length);
+        String number = String.format("%02d%04d%09d", registrationDate.getYear() % 100, 1501 + organ, index);
+
+        List<String> articles = new ArrayList<>();
+        int articleCount = 1 + (random.nextInt(10) < 7 ? 0 : random.nextInt(3));
+        while (articles.size() < articleCount) {
+            String article = ARTICLES[zipf(random, ARTICLES.length)][0];
+            if (!articles.contains(article)) {
+                articles.add(article);
+            }
+        }
+        String primary = articles.get(0);
+        String object = ARTICLES[articleIndex(primary)][1];
+        String qualification = "ст. " + primary + " ч. " + (2 + random.nextInt(3)) + " УК РК";
+        BigDecimal damage = money(logNormal(random, 50_000_000, 1.8));
+        BigDecimal income = random.nextInt(10) < 6 ? money(logNormal(random, 20_000_000, 1.8)) : null;
+
+        Object[] row = {number, Date.valueOf(uploadDate), updatedAt == null ? null : Date.valueOf(updatedAt.toLocalDate()),
+                Date.valueOf(registrationDate), Date.valueOf(qualificationDate),
+                accusationDate == null ? null : Date.valueOf(accusationDate),
+                person(random), person(random), person(random), object, ORGANS[organ], qualification, damage, income,
+                Timestamp.valueOf(createdAt), updatedAt == null ? null : Timestamp.valueOf(updatedAt)};
+
+        int fileCount = (int) Math.min(maxFilesPerCase, Math.round(logNormal(random, filesPerCaseMedian, filesPerCaseSigma)));
+        List<GeneratedFile> files = new ArrayList<>(fileCount);
+        LocalDateTime endOfReference = reference.atTime(23, 59);
+        for (int i = 0; i < fileCount; i++) {
+            // Most files arrive with the case; the rest trickle in while it is investigated.
+            LocalDateTime uploadedAt = random.nextInt(10) < 7 ? createdAt
+                    : min(createdAt.plusMinutes(random.nextLong(ageDays * 24 * 60 + 1)), endOfReference);
+            files.add(generateFile(random, uploadedAt, index, i));
+        }
+        return new GeneratedCase(number, row, articles, files);
+    }
+
+    private GeneratedFile generateFile(SplittableRandom random, LocalDateTime uploadedAt, int caseIndex, int position) {
+        String type = FILE_TYPES[random.nextInt(FILE_TYPES.length)];
+        String[] titles = FILE_TITLES.get(type);
+        String originalName = titles[random.nextInt(titles.length)] + (position > 0 ? " (" + position + ")" : "") + "." + type;
+        long size;
+        if ("small".equals(filesMode)) {
+            size = SMALL_CONTENT.get(type).length;
+        } else {
+            double median = "txt".equals(type) ? fileSizeMedian * 8.0 : fileSizeMedian;
+            size = Math.max(1, Math.min(maxFileSize.toBytes(), Math.round(logNormal(random, median, fileSizeSigma))));
+        }
+        return new GeneratedFile(storageName(caseIndex, position, type), originalName, type, size, uploadedAt,
+                UPLOADERS[zipf(random, UPLOADERS.length)]);
+    }
+
+    /**
+     * Shaped like the names {@link SnowflakeIdGenerator} hands out, under a node id reserved for generated
+     * data, with the case index in place of the timestamp so names are unique and the same on every run.
+     */
+    private static String storageName(int caseIndex, int position, String type) {
+        return ((long) caseIndex << 22 | (long) DATAGEN_NODE_ID << 12 | position) + "." + type;
+    }
+
+    private long insert(List<GeneratedCase> cases) {
+        Long files = transactionTemplate.execute(status -> {
+            // Case ids come back from the batch itself; looking them up by number would scan cases1 per chunk.
+            GeneratedKeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_CASE, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            new ArgumentPreparedStatementSetter(cases.get(i).row()).setValues(ps);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return cases.size();
+                        }
+                    }, keys);
+            List<Map<String, Object>> ids = keys.getKeyList();
+
+            List<Object[]> articleRows = new ArrayList<>();
+            List<Object[]> fileRows = new ArrayList<>();
+            for (int i = 0; i < cases.size(); i++) {
+                GeneratedCase generated = cases.get(i);
+                long caseId = ((Number) ids.get(i).values().iterator().next()).longValue();
+                generated.articles().forEach(article -> articleRows.add(new Object[]{caseId, article}));
+                for (GeneratedFile file : generated.files()) {
+                    fileRows.add(new Object[]{caseId, file.fileName(), file.originalFileName(), file.fileSize(),
+                            file.fileSize(), file.fileType(), Timestamp.valueOf(file.uploadedAt()), file.uploadedBy()});
+                }
+            }
+            jdbcTemplate.batchUpdate(INSERT_ARTICLE, articleRows);
+            for (int from = 0; from < fileRows.size(); from += batchSize) {
+                jdbcTemplate.batchUpdate(INSERT_FILE, fileRows.subList(from, Math.min(fileRows.size(), from + batchSize)));
+            }
+            return (long) fileRows.size();
+        });
+        return files == null ? 0 : files;
+    }
+
+    private void createStoredFiles(List<GeneratedCase> cases) throws IOException {
+        if ("none".equals(filesMode)) {
+            return;
+        }
+        for (GeneratedCase generated : cases) {
+            for (GeneratedFile file : generated.files()) {
+                Optional<Path> localPath = "sparse".equals(filesMode) ? blobStore.localPath(file.fileName()) : Optional.empty();
+                if (localPath.isPresent()) {
+                    try (RandomAccessFile sparse = new RandomAccessFile(localPath.get().toFile(), "rw")) {
+                        sparse.setLength(file.fileSize());
+                    }
+                } else {
+                    byte[] content = SMALL_CONTENT.get(file.fileType());
+                    blobStore.put(file.fileName(), new ByteArrayInputStream(content), content.length);
+                }
+            }
+        }
+    }
+
+    /** Index drawn with probability proportional to 1 / (rank + 1), so the first entries dominate. */
+    private static int zipf(SplittableRandom random, int size) {
+        double total = 0;
+        for (int i = 1; i <= size; i++) {
+            total += 1.0 / i;
+        }
+        double target = random.nextDouble() * total;
+        for (int i = 1; i <= size; i++) {
+            target -= 1.0 / i;
+            if (target <= 0) {
+                return i - 1;
+            }
+        }
+        return size - 1;
+    }
+
+    private static double logNormal(SplittableRandom random, double median, double sigma) {
+        // Box-Muller; the random stream stays the only source of randomness.
+        double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        return median * Math.exp(sigma * gaussian);
+    }
+
+    private static int articleIndex(String article) {
+        for (int i = 0; i < ARTICLES.length; i++) {
+            if (ARTICLES[i][0].equals(article)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(article);
+    }
+
+    private static String person(SplittableRandom random) {
+        return SURNAMES[random.nextInt(SURNAMES.length)] + " " + INITIALS[random.nextInt(INITIALS.length)]
+                + INITIALS[random.nextInt(INITIALS.length)];
+    }
+
+    private static BigDecimal money(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static <T extends Comparable<? super T>> T min(T value, T limit) {
+        return value.compareTo(limit) > 0 ? limit : value;
+    }
+
+    private static <T extends Comparable<? super T>> T orNull(T value, T limit) {
+        return value.compareTo(limit) > 0 ? null : value;
+    }
+}
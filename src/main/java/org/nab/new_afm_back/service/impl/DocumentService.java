@@ -1,21 +1,44 @@
 package org.nab.new_afm_back.service.impl;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.java.Log;
 import org.nab.new_afm_back.dto.response.Document;
 import org.nab.new_afm_back.dto.response.*;
 import org.nab.new_afm_back.service.IDocumentService;
+import org.nab.new_afm_back.util.DocumentIndex;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 @Service
 @Log
@@ -23,27 +46,220 @@ import java.util.Map;
 public class DocumentService implements IDocumentService {
 
     private final ObjectMapper objectMapper;
-    private JsonNode documentsData;
+    private final MeterRegistry meterRegistry;
+    private final AtomicReference<DocumentsSnapshot> snapshot = new AtomicReference<>(DocumentsSnapshot.EMPTY);
+    // Private copies behind replaced indexes. Readers may still be using one, and Windows refuses to delete
+    // a file while it is mapped, so deletion is retried on every reload until it succeeds.
+    private final Queue<Path> retiredCopies = new ConcurrentLinkedQueue<>();
+
+    @Value("${app.documents.path:}")
+    private String documentsPath;
+
+    @Value("${app.documents.lazy-index:false}")
+    private boolean lazyIndex;
+
+    @Value("${app.documents.cache-size:256}")
+    private int cacheSize;
+
+    @Value("${app.documents.watch:true}")
+    private boolean watch;
+
+    @Value("${app.documents.reload-debounce-ms:500}")
+    private long reloadDebounceMs;
+
+    private Timer reloadTimer;
+    private Counter reloadFailures;
+    private Thread watcher;
 
     @PostConstruct
     public void init() {
+        reloadTimer = Timer.builder("afm.documents.reload")
+                .description("Time taken to rebuild the documents index")
+                .register(meterRegistry);
+        reloadFailures = Counter.builder("afm.documents.reload.failures")
+                .description("Reloads rejected because the new documents file could not be read")
+                .register(meterRegistry);
+        Gauge.builder("afm.documents.count", snapshot, current -> current.get().size())
+                .description("Documents in the active index")
+                .register(meterRegistry);
+
         try {
+            snapshot.set(reloadTimer.recordCallable(this::load));
+        } catch (Exception e) {
+            log.severe("Failed to load documents.json: " + e.getMessage());
+            throw new RuntimeException("Could not load documents configuration", e);
+        }
+
+        if (watch && !documentsPath.isBlank()) {
+            Path file = Paths.get(documentsPath).toAbsolutePath();
+            watcher = new Thread(() -> watchForChanges(file), "documents-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+            log.info("Watching " + file + " for changes");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+        retire(snapshot.getAndSet(DocumentsSnapshot.EMPTY));
+    }
+
+    /**
+     * Builds a new index off to the side and swaps it in; readers keep using the old one until then.
+     * A file that fails to parse leaves the current index in place.
+     */
+    public void reload() {
+        long started = System.nanoTime();
+        try {
+            DocumentsSnapshot next = load();
+            retire(snapshot.getAndSet(next));
+
+            long elapsed = System.nanoTime() - started;
+            reloadTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            log.info("Documents reloaded: " + next.size() + " documents in " + elapsed / 1_000_000 + " ms");
+        } catch (IOException | RuntimeException e) {
+            reloadFailures.increment();
+            log.severe("Documents reload failed, keeping previous version: " + e.getMessage());
+        }
+    }
+
+    private DocumentsSnapshot load() throws IOException {
+        try (CheckedInputStream in = new CheckedInputStream(openSource(), new CRC32())) {
+            if (!lazyIndex) {
+                return treeOf(in);
+            }
+            Path mappable = mappableSource();
+            return mappable != null ? indexInPlace(mappable, in) : indexCopyOf(in);
+        }
+    }
+
+    private InputStream openSource() throws IOException {
+        if (documentsPath.isBlank()) {
             ClassPathResource resource = new ClassPathResource("documents.json");
             if (!resource.exists()) {
                 throw new RuntimeException("documents.json not found in classpath");
             }
+            return resource.getInputStream();
+        }
+        Path file = Paths.get(documentsPath);
+        if (!Files.isRegularFile(file)) {
+            throw new IOException("documents file not found: " + file.toAbsolutePath());
+        }
+        return Files.newInputStream(file);
+    }
 
-            documentsData = objectMapper.readTree(resource.getInputStream());
-            log.info("Documents data loaded successfully");
+    /**
+     * The documents file the index can map where it is, or null if it needs a private copy: when the file
+     * is inside the jar, or is watched and may be rewritten in place while mapped.
+     */
+    private Path mappableSource() throws IOException {
+        if (documentsPath.isBlank()) {
+            ClassPathResource resource = new ClassPathResource("documents.json");
+            return resource.isFile() ? resource.getFile().toPath() : null;
+        }
+        return watch ? null : Paths.get(documentsPath);
+    }
+
+    private DocumentsSnapshot treeOf(CheckedInputStream in) throws IOException {
+        JsonNode tree = objectMapper.reader().without(JsonParser.Feature.AUTO_CLOSE_SOURCE).readTree(in);
+        // The parser may stop at the end of the value; the revision covers the whole file.
+        in.transferTo(OutputStream.nullOutputStream());
+        return DocumentsSnapshot.tree(tree, revisionOf(in));
+    }
+
+    private DocumentsSnapshot indexInPlace(Path file, CheckedInputStream in) throws IOException {
+        in.transferTo(OutputStream.nullOutputStream());
+        return DocumentsSnapshot.indexed(DocumentIndex.open(objectMapper, file, cacheSize), null, revisionOf(in));
+    }
+
+    /**
+     * The index maps a private copy, so the source may be rewritten in place or live inside the jar.
+     */
+    private DocumentsSnapshot indexCopyOf(CheckedInputStream in) throws IOException {
+        Path copy = Files.createTempFile("documents", ".json");
+        copy.toFile().deleteOnExit();
+        try {
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            return DocumentsSnapshot.indexed(DocumentIndex.open(objectMapper, copy, cacheSize), copy, revisionOf(in));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(copy);
+            throw e;
+        }
+    }
+
+    private void retire(DocumentsSnapshot previous) {
+        if (previous.mappedCopy() != null) {
+            retiredCopies.add(previous.mappedCopy());
+        }
+        retiredCopies.removeIf(copy -> {
+            try {
+                Files.deleteIfExists(copy);
+                return true;
+            } catch (IOException e) {
+                // Still mapped; tried again on the next reload, and deleteOnExit was registered when it was made.
+                return false;
+            }
+        });
+    }
+
+    private static String revisionOf(CheckedInputStream in) {
+        return Long.toHexString(in.getChecksum().getValue());
+    }
+
+    private void watchForChanges(Path file) {
+        Path directory = file.getParent();
+        try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean changed = key.pollEvents().stream()
+                        .anyMatch(event -> file.getFileName().equals(event.context()));
+                key.reset();
+                if (!changed) {
+                    continue;
+                }
+
+                // Editors and deploy tools often write in several steps; wait until the directory is quiet.
+                WatchKey next;
+                while ((next = watchService.poll(reloadDebounceMs, TimeUnit.MILLISECONDS)) != null) {
+                    next.pollEvents();
+                    next.reset();
+                }
+                reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (IOException e) {
-            log.severe("Failed to load documents.json: " + e.getMessage());
-            throw new RuntimeException("Could not load documents configuration", e);
+            log.severe("Documents watcher stopped: " + e.getMessage());
         }
     }
 
     @Override
     public Document getDocument(String number) {
-        return new Document();
+        JsonNode documentNode = findDocumentNode(number);
+        if (documentNode == null) {
+            return null;
+        }
+
+        Document document = new Document();
+        JsonNode header = documentNode.get("header");
+        document.setHeader(header != null ? header.asText() : null);
+        document.setPredicates(parsePredicates(documentNode));
+        document.setRisks(parseRisks(documentNode));
+        return document;
+    }
+
+    private JsonNode findDocumentNode(String number) {
+        try {
+            return snapshot.get().find(number);
+        } catch (IOException e) {
+            log.severe("Failed to read document " + number + ": " + e.getMessage());
+            throw new RuntimeException("Could not read document " + number, e);
+        }
     }
 
     private List<Predicate> parsePredicates(JsonNode documentNode) {
@@ -51,7 +267,7 @@ public class DocumentService implements IDocumentService {
 
         JsonNode predicatesNode = documentNode.get("predicates");
         if (predicatesNode == null || !predicatesNode.isArray()) {
-            log.warning("No valid predicates array found for document: " + documentNode.get("header").asText());
+            log.warning("No valid predicates array found for document: " + documentNode.path("header").asText());
             return predicateList;
         }
 
@@ -84,6 +300,14 @@ public class DocumentService implements IDocumentService {
         return riskList;
     }
 
+    /**
+     * Checksum of the documents file currently served; changes whenever its content changes.
+     */
+    @Override
+    public String getRevision() {
+        return snapshot.get().revision();
+    }
+
     public String getTextOfPredicate(String number, String predicateKey) {
         Document doc = getDocument(number);
         if (doc == null || doc.getPredicates() == null) return null;
@@ -105,4 +329,30 @@ public class DocumentService implements IDocumentService {
                 .findFirst()
                 .orElse(null);
     }
-}
\ No newline at end of file
+
+    private record DocumentsSnapshot(JsonNode tree, DocumentIndex index, Path mappedCopy, String revision) {
+        static final DocumentsSnapshot EMPTY = new DocumentsSnapshot(null, null, null, "0");
+
+        static DocumentsSnapshot tree(JsonNode tree, String revision) {
+            return new DocumentsSnapshot(tree, null, null, revision);
+        }
+
+        static DocumentsSnapshot indexed(DocumentIndex index, Path mappedCopy, String revision) {
+            return new DocumentsSnapshot(null, index, mappedCopy, revision);
+        }
+
+        JsonNode find(String number) throws IOException {
+            if (index != null) {
+                return index.get(number);
+            }
+            return tree != null && tree.isObject() ? tree.get(number) : null;
+        }
+
+        int size() {
+            if (index != null) {
+                return index.size();
+            }
+            return tree != null && tree.isObject() ? tree.size() : 0;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.nab.new_afm_back.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.repository.CaseRepository;
+import org.nab.new_afm_back.util.BloomFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bloom filter over existing case numbers, so the duplicate check on upload can answer "definitely
+ * absent" without a database round-trip. Only possible positives need the real query; the unique
+ * constraint on {@code cases1.number} stays the backstop.
+ * <p>
+ * The filter is built from the database at startup and fed on every insert. It assumes this
+ * instance is the only writer: numbers inserted by another instance are missed, so with several
+ * instances set {@code app.existence-index.enabled=false}. Deleted numbers stay in the filter until
+ * the next rebuild, which only costs false positives.
+ * <p>
+ * Adds and the swap to a rebuilt filter happen under one lock. A rebuild replays into the new filter,
+ * before publishing it, every number added while it scanned and every number whose inserting transaction
+ * had not completed when it started, as the scan may not see those rows.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExistenceIndex {
+
+    private final CaseRepository caseRepository;
+
+    @Value("${app.existence-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.existence-index.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${app.existence-index.min-capacity:100000}")
+    private long minCapacity;
+
+    @Value("${app.existence-index.rebuild-page-size:10000}")
+    private int pageSize;
+
+    private final Object lock = new Object();
+    private volatile BloomFilter caseNumbers;
+    // The fields below are guarded by lock.
+    private long added;
+    private boolean rebuilding;
+    private final Set<String> uncommitted = new HashSet<>();
+    private final List<String> addedDuringRebuild = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Existence index disabled; every existence check queries the database");
+            return;
+        }
+        rebuild();
+    }
+
+    /**
+     * @return false only if the case number certainly does not exist
+     */
+    public boolean mightContainCaseNumber(String number) {
+        BloomFilter current = caseNumbers;
+        return current == null || current.mightContain(number);
+    }
+
+    /**
+     * Records a case number; call in the inserting transaction, before the case becomes visible.
+     */
+    public void addCaseNumber(String number) {
+        boolean startRebuild;
+        synchronized (lock) {
+            if (caseNumbers == null) {
+                return;
+            }
+            caseNumbers.add(number);
+            if (rebuilding) {
+                addedDuringRebuild.add(number);
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                uncommitted.add(number);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        synchronized (lock) {
+                            uncommitted.remove(number);
+                        }
+                    }
+                });
+            }
+            // Past capacity the false-positive rate climbs; rebuild with room to grow.
+            startRebuild = ++added > caseNumbers.getCapacity() && !rebuilding;
+        }
+        if (startRebuild) {
+            Thread rebuild = new Thread(this::rebuild, "existence-index-rebuild");
+            rebuild.setDaemon(true);
+            rebuild.start();
+        }
+    }
+
+    /**
+     * Rebuilds the filter from the database, sized at twice the current case count.
+     */
+    public void rebuild() {
+        synchronized (lock) {
+            if (rebuilding) {
+                return;
+            }
+            rebuilding = true;
+            addedDuringRebuild.clear();
+            addedDuringRebuild.addAll(uncommitted);
+        }
+        try {
+            long started = System.nanoTime();
+            BloomFilter filter = new BloomFilter(Math.max(minCapacity, caseRepository.count() * 2), falsePositiveRate);
+            long scanned = 0;
+            long afterId = 0;
+            List<CaseRepository.NumberRow> rows;
+            while (!(rows = caseRepository.findNumbersAfter(afterId, pageSize)).isEmpty()) {
+                for (CaseRepository.NumberRow row : rows) {
+                    if (row.getNumber() != null) {
+                        filter.add(row.getNumber());
+                    }
+                }
+                scanned += rows.size();
+                afterId = rows.get(rows.size() - 1).getId();
+            }
+
+            synchronized (lock) {
+                addedDuringRebuild.forEach(filter::add);
+                added = scanned + addedDuringRebuild.size();
+                caseNumbers = filter;
+            }
+            log.info("Existence index built from {} cases in {} ms", scanned, (System.nanoTime() - started) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Failed to build existence index, falling back to database checks: {}", e.getMessage(), e);
+        } finally {
+            synchronized (lock) {
+                rebuilding = false;
+                addedDuringRebuild.clear();
+            }
+        }
+    }
+}
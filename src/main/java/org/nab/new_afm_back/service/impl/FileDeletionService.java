@@ -0,0 +1,136 @@
+package org.nab.new_afm_back.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.repository.CaseFileRepository;
+import org.nab.new_afm_back.storage.BlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Removes the stored files of deleted (tombstoned) case file rows in the background, then purges the
+ * rows in one statement per batch. Failed unlinks stay tombstoned and are retried with exponential
+ * backoff; tombstones left over from a restart are picked up by the periodic sweep.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileDeletionService {
+
+    private final CaseFileRepository caseFileRepository;
+    private final BlobStore blobStore;
+
+    @Value("${app.storage.deletion.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.storage.deletion.sweep-interval-seconds:60}")
+    private long sweepIntervalSeconds;
+
+    @Value("${app.storage.deletion.max-backoff-minutes:60}")
+    private long maxBackoffMinutes;
+
+    private record Retry(int attempts, Instant notBefore) {
+    }
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "file-deleter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean sweepRequested = new AtomicBoolean();
+    // Replaced in tests to step through the backoff.
+    private InstantSource clock = InstantSource.system();
+
+    // Only touched from the scheduler thread.
+    private final Map<Long, Retry> retries = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        scheduler.scheduleWithFixedDelay(this::sweep, sweepIntervalSeconds, sweepIntervalSeconds, TimeUnit.SECONDS);
+        log.info("Background file deleter started, sweeping every {} s", sweepIntervalSeconds);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Schedules a sweep as soon as possible; requests arriving while one is pending are coalesced.
+     */
+    public void requestSweep() {
+        if (sweepRequested.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                sweepRequested.set(false);
+                sweep();
+            });
+        }
+    }
+
+    void sweep() {
+        try {
+            long afterId = 0;
+            int purged = 0;
+            int pending = 0;
+            List<CaseFileRepository.FileNameRow> rows;
+            while (!(rows = caseFileRepository.findDeletedAfter(afterId, batchSize)).isEmpty()) {
+                List<Long> unlinked = new ArrayList<>(rows.size());
+                for (CaseFileRepository.FileNameRow row : rows) {
+                    if (unlink(row)) {
+                        unlinked.add(row.getId());
+                    } else {
+                        pending++;
+                    }
+                }
+                if (!unlinked.isEmpty()) {
+                    purged += caseFileRepository.purgeDeleted(unlinked);
+                }
+                afterId = rows.get(rows.size() - 1).getId();
+            }
+            if (purged > 0 || pending > 0) {
+                log.info("File deletion sweep finished: {} files removed, {} waiting for retry", purged, pending);
+            }
+        } catch (Exception e) {
+            log.error("File deletion sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean unlink(CaseFileRepository.FileNameRow row) {
+        Retry retry = retries.get(row.getId());
+        if (retry != null && clock.instant().isBefore(retry.notBefore())) {
+            return false;
+        }
+        try {
+            if (!blobStore.delete(row.getFileName())) {
+                log.debug("Stored file of deleted row {} was already gone: {}", row.getId(), row.getFileName());
+            }
+            retries.remove(row.getId());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            int attempts = retry == null ? 1 : retry.attempts() + 1;
+            Duration backoff = Duration.ofSeconds(1L << Math.min(attempts, 20));
+            if (backoff.compareTo(Duration.ofMinutes(maxBackoffMinutes)) > 0) {
+                backoff = Duration.ofMinutes(maxBackoffMinutes);
+            }
+            retries.put(row.getId(), new Retry(attempts, clock.instant().plus(backoff)));
+            log.warn("Failed to delete stored file {} (attempt {}), retrying in {} s: {}",
+                    row.getFileName(), attempts, backoff.toSeconds(), e.getMessage());
+            return false;
+        }
+    }
+}
@@ -3,29 +3,46 @@ package org.nab.new_afm_back.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.nab.new_afm_back.dto.request.UploadCaseRequest;
+import org.nab.new_afm_back.dto.response.FileDownload;
 import org.nab.new_afm_back.model.Case;
 import org.nab.new_afm_back.model.CaseFile;
 import org.nab.new_afm_back.repository.CaseRepository;
 import org.nab.new_afm_back.repository.CaseFileRepository;
 import org.nab.new_afm_back.service.IFIleService;
-import org.springframework.beans.factory.annotation.Value;
+import org.nab.new_afm_back.service.UploadProgress;
+import org.nab.new_afm_back.storage.BlobResource;
+import org.nab.new_afm_back.storage.BlobStat;
+import org.nab.new_afm_back.storage.BlobStore;
+import org.nab.new_afm_back.storage.GzipDecodingResource;
+import org.nab.new_afm_back.storage.StagingArea;
+import org.nab.new_afm_back.storage.StoredFile;
+import org.nab.new_afm_back.util.ContentSniffer;
+import org.nab.new_afm_back.util.FileCompressor;
+import org.nab.new_afm_back.util.SnowflakeIdGenerator;
 import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -34,188 +51,269 @@ public class FileService implements IFIleService {
 
     private final CaseRepository caseRepository;
     private final CaseFileRepository caseFileRepository;
-
-    @Value("${file.upload.directory:./uploads}")
-    private String uploadDirectory;
+    private final CaseDossierService caseDossierService;
+    private final BlobStore blobStore;
+    private final StagingArea stagingArea;
+    private final FileDeletionService fileDeletionService;
+    private final ExistenceIndex existenceIndex;
+    private final FileCompressor fileCompressor;
+    private final SnowflakeIdGenerator fileIdGenerator;
+    private final CaseFileMetadataCache metadataCache;
+    private final TransferMetrics transferMetrics;
+    private final TransactionTemplate transactionTemplate;
 
     private static final List<String> ALLOWED_EXTENSIONS = List.of("pdf", "doc", "docx", "txt", "xlsx");
     private static final long MAX_FILE_SIZE = 100 * 1024 * 1024;
 
+    /**
+     * Creates the case and its file rows. Uploaded bytes are validated and staged before any transaction
+     * is opened, so a slow upload never holds a database connection; the rows are then written in one
+     * short transaction, and the staged files are moved into storage once it has committed. On rollback,
+     * or if staging fails, the staged files are removed.
+     */
     public Case uploadCaseWithFiles(UploadCaseRequest request, List<MultipartFile> additionalFiles) throws IOException {
-        log.info("Starting case upload process for case number: {}", request.getNumber());
-
-        if (caseRepository.getCaseByNumber(request.getNumber()).isPresent()) {
-            log.warn("Case upload failed - case number already exists: {}", request.getNumber());
-            throw new IllegalArgumentException("Case number already exists: " + request.getNumber());
-        }
-
-        log.debug("Resolving article for case: {}", request.getNumber());
-
-        Case newCase = Case.builder()
-                .number(request.getNumber())
-                .author(request.getAuthor())
-                .investigator(request.getInvestigator())
-                .policeman(request.getPoliceman())
-                .object(request.getObject())
-                .articles(request.getArticles())
-                .uploadDate(LocalDate.now())
-                .build();
-
-        log.debug("Saving new case to database: {}", request.getNumber());
-        Case savedCase = caseRepository.save(newCase);
-
-        log.debug("Processing additional files for case: {}", request.getNumber());
-        List<String> additionalFileNames = processAdditionalFilesWithTracking(savedCase, additionalFiles, request.getAuthor());
+        return uploadCaseWithFiles(request, additionalFiles, UploadProgress.NONE);
+    }
 
-        savedCase = caseRepository.save(savedCase);
+    public Case uploadCaseWithFiles(UploadCaseRequest request, List<MultipartFile> additionalFiles,
+                                    UploadProgress progress) throws IOException {
+        log.info("Starting case upload process for case number: {}", request.getNumber());
+        TransferMetrics.Upload upload = transferMetrics.startUpload("case", request.getNumber());
+
+        // Fails fast before any bytes are staged; checked again in the transaction.
+        checkCaseNumberIsFree(request.getNumber());
+
+        StagingArea.Batch batch = stagingArea.begin();
+        log.debug("Staging additional files for case: {}", request.getNumber());
+        List<CaseFile> caseFiles = stage(request.getNumber(), additionalFiles, request.getAuthor(), batch, progress, upload);
+
+        Case savedCase = inTransaction(batch, upload, progress, () -> {
+            checkCaseNumberIsFree(request.getNumber());
+
+            Case newCase = Case.builder()
+                    .number(request.getNumber())
+                    .author(request.getAuthor())
+                    .investigator(request.getInvestigator())
+                    .policeman(request.getPoliceman())
+                    .object(request.getObject())
+                    .articles(request.getArticles())
+                    .uploadDate(LocalDate.now())
+                    .caseFiles(new ArrayList<>())
+                    .build();
+            attach(newCase, caseFiles);
+
+            existenceIndex.addCaseNumber(request.getNumber());
+            log.debug("Saving new case with {} files to database: {}", caseFiles.size(), request.getNumber());
+            try {
+                return caseRepository.saveAndFlush(newCase);
+            } catch (DataIntegrityViolationException e) {
+                // A concurrent upload of the same number got there first.
+                String cause = String.valueOf(e.getMostSpecificCause().getMessage());
+                if (cause.toLowerCase(Locale.ROOT).contains(Case.NUMBER_CONSTRAINT)) {
+                    throw new IllegalArgumentException("Case number already exists: " + request.getNumber());
+                }
+                throw e;
+            }
+        });
 
         log.info("Case upload completed successfully: ID={}, Number={}, Files={}",
-                savedCase.getId(), savedCase.getNumber(), additionalFileNames.size());
+                savedCase.getId(), savedCase.getNumber(), caseFiles.size());
 
         return savedCase;
     }
 
-    private List<String> processAdditionalFilesWithTracking(Case caseEntity, List<MultipartFile> additionalFiles, String uploadedBy) throws IOException {
-        List<String> fileNames = new ArrayList<>();
-        if (additionalFiles == null || additionalFiles.isEmpty()) {
-            log.debug("No additional files to process for case: {}", caseEntity.getNumber());
-            return fileNames;
+    private void checkCaseNumberIsFree(String number) {
+        if (existenceIndex.mightContainCaseNumber(number) && caseRepository.existsByNumber(number)) {
+            log.warn("Case upload failed - case number already exists: {}", number);
+            throw new IllegalArgumentException("Case number already exists: " + number);
         }
+    }
 
-        log.info("Processing {} additional files for case: {}", additionalFiles.size(), caseEntity.getNumber());
-        LocalDateTime uploadTime = LocalDateTime.now();
+    /**
+     * Stages the uploads into {@code batch}, discarding it if staging fails part way.
+     */
+    private List<CaseFile> stage(String caseNumber, List<MultipartFile> additionalFiles, String uploadedBy,
+                                 StagingArea.Batch batch, UploadProgress progress,
+                                 TransferMetrics.Upload upload) throws IOException {
+        try {
+            return stageAdditionalFiles(caseNumber, additionalFiles, uploadedBy, batch, progress, upload);
+        } catch (IOException | RuntimeException e) {
+            batch.discard();
+            upload.finish(false, List.of());
+            throw e;
+        }
+    }
 
-        for (int i = 0; i < additionalFiles.size(); i++) {
-            MultipartFile file = additionalFiles.get(i);
-            if (!file.isEmpty()) {
-                try {
-                    String originalFileName = file.getOriginalFilename();
-                    log.debug("Processing file {}/{}: name={}, size={} bytes",
-                            i + 1, additionalFiles.size(), originalFileName, file.getSize());
-
-                    // Generate unique filename if duplicate exists
-                    String uniqueFileName = generateUniqueFileName(originalFileName);
-
-                    validateAndSaveFile(file, uniqueFileName);
-                    fileNames.add(uniqueFileName);
-
-                    CaseFile caseFile = CaseFile.builder()
-                            .fileName(uniqueFileName)
-                            .originalFileName(originalFileName)
-                            .fileSize(file.getSize())
-                            .fileType(getFileExtension(originalFileName))
-                            .uploadedAt(uploadTime)
-                            .uploadedBy(uploadedBy)
-                            .caseEntity(caseEntity)
-                            .build();
-
-                    caseFileRepository.save(caseFile);
-
-                    log.info("Additional file saved successfully with timestamp: {} -> {} (case: {}, uploaded at: {})",
-                            originalFileName, uniqueFileName, caseEntity.getNumber(), uploadTime);
-                } catch (Exception e) {
-                    log.error("Error saving additional file {}/{} for case {}: {}",
-                            i + 1, additionalFiles.size(), caseEntity.getNumber(), e.getMessage(), e);
-                }
-            } else {
-                log.warn("Skipping empty file at index {} for case: {}", i, caseEntity.getNumber());
+    /**
+     * Runs {@code work} in a short transaction that promotes the staged batch into storage if it commits
+     * and discards it otherwise.
+     */
+    private <T> T inTransaction(StagingArea.Batch batch, TransferMetrics.Upload upload, UploadProgress progress,
+                                Supplier<T> work) {
+        AtomicBoolean registered = new AtomicBoolean();
+        try {
+            return transactionTemplate.execute(status -> {
+                promoteAfterCommit(batch, upload, progress);
+                registered.set(true);
+                return work.get();
+            });
+        } catch (RuntimeException | Error e) {
+            if (!registered.get()) {
+                // The transaction could not be started; otherwise the rollback has already discarded the batch.
+                batch.discard();
+                upload.finish(false, List.of());
             }
+            throw e;
         }
+    }
 
-        log.info("Completed processing additional files for case {}: {}/{} files saved",
-                caseEntity.getNumber(), fileNames.size(), additionalFiles.size());
-
-        return fileNames;
+    private static void attach(Case caseEntity, List<CaseFile> caseFiles) {
+        for (CaseFile caseFile : caseFiles) {
+            caseFile.setCaseEntity(caseEntity);
+            caseEntity.getCaseFiles().add(caseFile);
+        }
     }
 
     /**
-     * Generates a unique filename by checking for duplicates in both database and file system
+     * Validates and stages each non-empty upload, returning a new {@link CaseFile} for each that is not yet
+     * attached to its case. Files that fail validation are skipped; a failure while staging aborts the
+     * whole upload.
      */
-    private String generateUniqueFileName(String originalFileName) {
-        if (originalFileName == null) {
-            return "unnamed_file_" + System.currentTimeMillis();
+    private List<CaseFile> stageAdditionalFiles(String caseNumber, List<MultipartFile> additionalFiles, String uploadedBy,
+                                                StagingArea.Batch batch, UploadProgress progress,
+                                                TransferMetrics.Upload upload) throws IOException {
+        List<CaseFile> caseFiles = new ArrayList<>();
+        if (additionalFiles == null || additionalFiles.isEmpty()) {
+            log.debug("No additional files to process for case: {}", caseNumber);
+            return caseFiles;
         }
 
-        String baseFileName = getFileNameWithoutExtension(originalFileName);
-        String extension = getFileExtension(originalFileName);
-        String currentFileName = originalFileName;
-        int counter = 1;
-
-        while (isFileNameExists(currentFileName) || isPhysicalFileExists(currentFileName)) {
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            String s = extension.isEmpty() ? "" : "." + extension;
-            currentFileName = baseFileName + "_" + timestamp + "_" + counter +
-                    s;
-            counter++;
-
-            // Safety check to prevent infinite loop
-            if (counter > 1000) {
-                currentFileName = baseFileName + "_" + System.currentTimeMillis() +
-                        (extension.isEmpty() ? "" : "." + extension);
-                break;
+        log.info("Processing {} additional files for case: {}", additionalFiles.size(), caseNumber);
+        LocalDateTime uploadTime = LocalDateTime.now();
+
+        for (int i = 0; i < additionalFiles.size(); i++) {
+            MultipartFile file = additionalFiles.get(i);
+            TransferMetrics.UploadedFile metered = upload.startFile(file.getOriginalFilename(), file.getSize());
+            if (file.isEmpty()) {
+                log.warn("Skipping empty file at index {} for case: {}", i, caseNumber);
+                progress.fileSkipped(i, "File is empty");
+                metered.rejected();
+                continue;
             }
-        }
 
-        if (!currentFileName.equals(originalFileName)) {
-            log.info("Generated unique filename: {} -> {}", originalFileName, currentFileName);
+            String originalFileName = file.getOriginalFilename();
+            log.debug("Processing file {}/{}: name={}, size={} bytes",
+                    i + 1, additionalFiles.size(), originalFileName, file.getSize());
+
+            if (!validateUploadedFile(file)) {
+                log.warn("Skipping invalid file {}/{} for case {}: {}",
+                        i + 1, additionalFiles.size(), caseNumber, originalFileName);
+                progress.fileSkipped(i, "File type, size or content is not allowed");
+                metered.rejected();
+                continue;
+            }
+            metered.validated();
+
+            String storedFileName = storageName(originalFileName);
+            StoredFile stored = stageFile(file, storedFileName, batch);
+
+            CaseFile caseFile = CaseFile.builder()
+                    .fileName(storedFileName)
+                    .originalFileName(originalFileName)
+                    .fileSize(file.getSize())
+                    .fileType(getFileExtension(originalFileName))
+                    .storedSize(stored.storedSize())
+                    .contentEncoding(stored.contentEncoding())
+                    .uploadedAt(uploadTime)
+                    .uploadedBy(uploadedBy)
+                    .build();
+            caseFiles.add(caseFile);
+            progress.fileStaged(i, storedFileName);
+            metered.staged(storedFileName, caseFile.getFileType());
+
+            log.info("Additional file staged with timestamp: {} -> {} (case: {}, uploaded at: {})",
+                    originalFileName, storedFileName, caseNumber, uploadTime);
         }
 
-        return currentFileName;
-    }
+        log.info("Completed processing additional files for case {}: {}/{} files staged",
+                caseNumber, caseFiles.size(), additionalFiles.size());
 
-    /**
-     * Check if filename already exists in database for the given case
-     */
-    private boolean isFileNameExists(String fileName) {
-        return caseFileRepository.existsByFileName(fileName);
+        return caseFiles;
     }
 
     /**
-     * Check if physical file already exists in upload directory
+     * Promotes the batch into storage if the surrounding transaction commits, and discards it otherwise.
      */
-    private boolean isPhysicalFileExists(String fileName) {
-        Path filePath = Paths.get(uploadDirectory).resolve(fileName);
-        return Files.exists(filePath);
+    private void promoteAfterCommit(StagingArea.Batch batch, TransferMetrics.Upload upload, UploadProgress progress) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    log.info("Upload transaction rolled back, discarding staged files");
+                    batch.discard();
+                    upload.finish(false, List.of());
+                    return;
+                }
+                List<String> failed = batch.promote();
+                if (!failed.isEmpty()) {
+                    log.error("{} committed upload files could not be moved into storage and wait for recovery: {}",
+                            failed.size(), failed);
+                    progress.filesNotPromoted(failed);
+                }
+                upload.finish(true, failed);
+            }
+        });
     }
 
     /**
-     * Extract filename without extension
+     * Stored files are named by a node-unique id, so no lookup is needed to avoid collisions; the
+     * uploader's name is only kept as {@code originalFileName} for display.
      */
-    private String getFileNameWithoutExtension(String fileName) {
-        if (fileName == null || !fileName.contains(".")) {
-            return fileName;
-        }
-        return fileName.substring(0, fileName.lastIndexOf("."));
+    private String storageName(String originalFileName) {
+        String extension = getFileExtension(originalFileName);
+        String id = Long.toString(fileIdGenerator.nextId());
+        return extension.isEmpty() ? id : id + "." + extension;
     }
 
-    private void validateAndSaveFile(MultipartFile file, String fileName) throws IOException {
-        log.debug("Validating file: {}", fileName);
+    @Override
+    public StoredFile saveFileToStorage(MultipartFile file, String fileName) throws IOException {
+        log.debug("Saving file to storage: {} (size: {} bytes)", fileName, file.getSize());
 
-        if (!validateUploadedFile(file)) {
-            log.warn("File validation failed: {}", fileName);
-            throw new IOException("Invalid file: " + file.getOriginalFilename());
+        StagingArea.Batch batch = stagingArea.begin();
+        try {
+            StoredFile stored = stageFile(file, fileName, batch);
+            if (!batch.promote().isEmpty()) {
+                throw new IOException("Failed to move file into storage: " + fileName);
+            }
+            log.info("File saved successfully: {}", fileName);
+            return stored;
+        } finally {
+            batch.discard();
         }
-
-        log.debug("File validation passed, saving: {}", fileName);
-        saveFileToStorage(file, fileName);
-        log.debug("File saved successfully: {}", fileName);
     }
 
-    @Override
-    public void saveFileToStorage(MultipartFile pdfFile, String fileName) throws IOException {
-        log.debug("Saving file to storage: {} (size: {} bytes)", fileName, pdfFile.getSize());
-
-        Path uploadPath = Paths.get(uploadDirectory);
-        if (!Files.exists(uploadPath)) {
-            log.info("Creating upload directory: {}", uploadPath);
-            Files.createDirectories(uploadPath);
+    /**
+     * Writes the upload into the staging batch, gzip-compressed when {@link FileCompressor} says it pays off.
+     */
+    private StoredFile stageFile(MultipartFile file, String key, StagingArea.Batch batch) throws IOException {
+        String encoding;
+        try (InputStream sample = file.getInputStream()) {
+            encoding = fileCompressor.chooseEncoding(getFileExtension(file.getOriginalFilename()), file.getSize(), sample);
         }
 
-        Path filePath = uploadPath.resolve(fileName);
-        log.debug("File will be saved to: {}", filePath);
+        Path staged = batch.newFile(key);
+        if (encoding == null) {
+            // Lets the servlet container rename its own temp file instead of copying it.
+            file.transferTo(staged.toFile());
+            return new StoredFile(key, file.getSize(), null);
+        }
 
-        Files.copy(pdfFile.getInputStream(), filePath);
-        log.info("File saved successfully: {} -> {}", fileName, filePath);
+        try (InputStream content = file.getInputStream()) {
+            fileCompressor.compress(content, staged);
+        }
+        long storedSize = Files.size(staged);
+        log.debug("Staged {} with {} encoding ({} -> {} bytes)", key, encoding, file.getSize(), storedSize);
+        return new StoredFile(key, storedSize, encoding);
     }
 
     @Override
@@ -245,6 +343,17 @@ public class FileService implements IFIleService {
             return false;
         }
 
+        try (InputStream content = file.getInputStream()) {
+            if (!ContentSniffer.matches(extension, content)) {
+                log.warn("File validation failed: content of {} does not match extension '{}'",
+                        originalFilename, extension);
+                return false;
+            }
+        } catch (IOException e) {
+            log.warn("File validation failed: could not read {}: {}", originalFilename, e.getMessage());
+            return false;
+        }
+
         log.debug("File validation passed: name={}, size={} bytes, extension={}",
                 originalFilename, fileSize, extension);
         return true;
@@ -261,126 +370,89 @@ public class FileService implements IFIleService {
         return addAdditionalFilesToCase(caseNumber, additionalFiles, null);
     }
 
-    public Case addAdditionalFilesToCase(String caseNumber, List<MultipartFile> additionalFiles, String uploadedBy) {
+    /**
+     * Adds files to an existing case with the same stage-then-commit flow as {@link #uploadCaseWithFiles}.
+     */
+    public Case addAdditionalFilesToCase(String caseNumber, List<MultipartFile> additionalFiles, String uploadedBy) throws IOException {
+        return addAdditionalFilesToCase(caseNumber, additionalFiles, uploadedBy, UploadProgress.NONE);
+    }
+
+    public Case addAdditionalFilesToCase(String caseNumber, List<MultipartFile> additionalFiles, String uploadedBy,
+                                         UploadProgress progress) throws IOException {
         log.info("Adding additional files to existing case: {}", caseNumber);
+        TransferMetrics.Upload upload = transferMetrics.startUpload("add-files", caseNumber);
 
-        Optional<Case> optionalCase = caseRepository.getCaseByNumber(caseNumber);
-        if (optionalCase.isEmpty()) {
+        // Fails fast before any bytes are staged; the case is loaded again in the transaction.
+        if (!caseRepository.existsByNumber(caseNumber)) {
             log.warn("Case not found when trying to add files: {}", caseNumber);
             throw new IllegalArgumentException("Case not found: " + caseNumber);
         }
 
-        Case existingCase = optionalCase.get();
-
-        if (additionalFiles != null && !additionalFiles.isEmpty()) {
-            log.info("Processing {} new additional files for case: {}", additionalFiles.size(), caseNumber);
-            LocalDateTime uploadTime = LocalDateTime.now();
-
-            int successCount = 0;
-            for (int i = 0; i < additionalFiles.size(); i++) {
-                MultipartFile file = additionalFiles.get(i);
-                if (!file.isEmpty()) {
-                    String originalFileName = file.getOriginalFilename();
-                    try {
-                        log.debug("Processing additional file {}/{}: {}", i + 1, additionalFiles.size(), originalFileName);
-
-                        // Generate unique filename if duplicate exists
-                        String uniqueFileName = generateUniqueFileName(originalFileName);
-
-                        validateAndSaveFile(file, uniqueFileName);
-
-                        // Create CaseFile record with timestamp
-                        CaseFile caseFile = CaseFile.builder()
-                                .fileName(uniqueFileName)
-                                .originalFileName(originalFileName)
-                                .fileSize(file.getSize())
-                                .fileType(getFileExtension(originalFileName))
-                                .uploadedAt(uploadTime)
-                                .uploadedBy(uploadedBy)
-                                .caseEntity(existingCase)
-                                .build();
-
-                        caseFileRepository.save(caseFile);
-
-                        successCount++;
-                        log.info("Additional file added successfully with unique name: {} -> {} (case: {}, uploaded at: {})",
-                                originalFileName, uniqueFileName, caseNumber, uploadTime);
-                    } catch (Exception e) {
-                        log.error("Error saving additional file {} for case {}: {}",
-                                originalFileName, caseNumber, e.getMessage(), e);
-                    }
-                } else {
-                    log.warn("Skipping empty file at index {} for case: {}", i, caseNumber);
-                }
-            }
-
-            log.info("Added {}/{} additional files to case: {}",
-                    successCount, additionalFiles.size(), caseNumber);
-        }
+        StagingArea.Batch batch = stagingArea.begin();
+        List<CaseFile> caseFiles = stage(caseNumber, additionalFiles, uploadedBy, batch, progress, upload);
 
-        Case updatedCase = caseRepository.save(existingCase);
+        Case existingCase = inTransaction(batch, upload, progress, () -> {
+            Case found = caseRepository.getCaseByNumber(caseNumber).orElseThrow(() -> {
+                log.warn("Case not found when trying to add files: {}", caseNumber);
+                return new IllegalArgumentException("Case not found: " + caseNumber);
+            });
+            attach(found, caseFiles);
+            caseFileRepository.saveAllAndFlush(caseFiles);
+            return found;
+        });
 
-        log.info("Case updated successfully: {} (total additional files: {})",
-                caseNumber, updatedCase.getCaseFiles().size());
+        log.info("Case updated successfully: {} (added {} files, total additional files: {})",
+                caseNumber, caseFiles.size(), existingCase.getCaseFiles().size());
 
-        return updatedCase;
+        return existingCase;
     }
 
     @Transactional
     public void deleteAdditionalFileById(String caseNumber, int id) {
         log.info("Deleting additional file: {} from case: {}", id, caseNumber);
 
-        Optional<Case> optionalCase = caseRepository.getCaseByNumber(caseNumber);
-        if (optionalCase.isEmpty()) {
-            log.warn("Case not found when trying to delete file: case={}, file={}", caseNumber, id);
-            throw new IllegalArgumentException("Case not found: " + caseNumber);
-        }
-
-        Case existingCase = optionalCase.get();
-        List<CaseFile> additionalFiles = existingCase.getCaseFiles();
-
-        if (additionalFiles == null || !doesContainId(additionalFiles, id)) {
-            log.warn("File not found in case: case={}, file={}, available files={}",
-                    caseNumber, id, additionalFiles);
+        if (deleteFiles(caseNumber, List.of((long) id)) == 0) {
+            log.warn("File not found in case: case={}, file={}", caseNumber, id);
             throw new IllegalArgumentException("File '" + id + "' not found in case " + caseNumber);
         }
 
-        // Delete physical file
-        CaseFile caseFile = caseFileRepository.getReferenceById((long) id);
-        String filename = caseFile.getFileName();
-        Path filePath = Paths.get(uploadDirectory).resolve(filename);
-        log.debug("Attempting to delete physical file: {}", filePath);
+        log.info("File removed from case successfully: case={}, file={}", caseNumber, id);
+    }
 
-        try {
-            boolean deleted = Files.deleteIfExists(filePath);
-            if (deleted) {
-                log.info("Physical file deleted successfully: {}", filePath);
-            } else {
-                log.warn("Physical file was not found on disk: {}", filePath);
-            }
-        } catch (IOException e) {
-            log.error("Failed to delete physical file: {}", filePath, e);
-            throw new RuntimeException("Failed to delete file: " + id, e);
+    /**
+     * Marks files of a case as deleted in one statement. The stored files are removed by
+     * {@link FileDeletionService} once the transaction has committed.
+     *
+     * @param fileIds files to delete, or null to delete every file of the case
+     * @return number of files marked as deleted
+     */
+    @Transactional
+    public int deleteFiles(String caseNumber, Collection<Long> fileIds) {
+        if (!caseRepository.existsByNumber(caseNumber)) {
+            log.warn("Case not found when trying to delete files: {}", caseNumber);
+            throw new IllegalArgumentException("Case not found: " + caseNumber);
         }
 
-        // Remove from database (both from Case and CaseFile)
-        additionalFiles.remove(caseFile);
-        caseRepository.save(existingCase);
-
-        // Remove CaseFile record
-        caseFileRepository.deleteByIdAndCaseEntityNumber((long) id, caseNumber);
-
-        log.info("File removed from case successfully: case={}, file={}, remaining files={}",
-                caseNumber, id, additionalFiles.size());
-    }
-
-    private boolean doesContainId(List<CaseFile> caseFiles, int id) {
-        for (CaseFile caseFile : caseFiles) {
-            if (caseFile.getId() == id) {
-                return true;
-            }
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = fileIds == null
+                ? caseFileRepository.tombstoneByCaseNumber(caseNumber, now)
+                : caseFileRepository.tombstoneByIdsAndCaseNumber(fileIds, caseNumber, now);
+        log.info("Marked {} files of case {} as deleted", deleted, caseNumber);
+
+        if (deleted > 0) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    if (fileIds == null) {
+                        metadataCache.invalidateCase(caseNumber);
+                    } else {
+                        metadataCache.invalidate(caseNumber, fileIds);
+                    }
+                    fileDeletionService.requestSweep();
+                }
+            });
         }
-        return false;
+        return deleted;
     }
 
     public Resource downloadPdfByCaseNumber(String caseNumber) throws IOException {
@@ -394,20 +466,9 @@ public class FileService implements IFIleService {
 
         log.info("Case found for download: ID={}, Number={}", caseEntity.getId(), caseEntity.getNumber());
 
-        String filename = determineFilename(caseNumber);
-        log.debug("Determined filename for download: {} -> {}", caseNumber, filename);
-
-        Path filePath = Paths.get(filename);
-        log.debug("Looking for file at path: {}", filePath);
-
-        if (!Files.exists(filePath)) {
-            log.warn("PDF file not found on disk: case={}, expectedPath={}", caseNumber, filePath);
-            throw new IllegalArgumentException("PDF file not found for case: " + caseNumber);
-        }
-
-        long fileSize = Files.size(filePath);
-        log.info("PDF file found for download: case={}, file={}, size={} bytes",
-                caseNumber, filename, fileSize);
+        Path filePath = caseDossierService.renderDossier(caseEntity);
+        log.info("PDF dossier ready for download: case={}, file={}, size={} bytes",
+                caseNumber, filePath.getFileName(), Files.size(filePath));
 
         Resource resource = new UrlResource(filePath.toUri());
         log.debug("Created resource for download: {}", resource.getDescription());
@@ -415,28 +476,6 @@ public class FileService implements IFIleService {
         return resource;
     }
 
-    private String determineFilename(String caseNumber) {
-        String numericPart = caseNumber.replaceAll("[^0-9]", "");
-        String filename = null;
-
-        if (!numericPart.isEmpty()) {
-            int caseNum = Integer.parseInt(numericPart);
-            if (caseNum == 1) {
-                filename = "documentation.pdf";
-            } else if (caseNum == 2) {
-                filename = "documentation.pdf";
-            } else if (caseNum == 3) {
-                filename = "documentation.pdf";
-            }
-        } else {
-            filename = "case_" + caseNumber + "_document.pdf";
-        }
-
-        log.debug("Filename determination: caseNumber={}, numericPart={}, result={}",
-                caseNumber, numericPart, filename);
-        return filename;
-    }
-
     // New method to get files with upload timestamps
     public List<CaseFile> getFilesWithUploadTime(String caseNumber) {
         log.info("Retrieving files with upload timestamps for case: {}", caseNumber);
@@ -448,24 +487,39 @@ public class FileService implements IFIleService {
         return caseFileRepository.findByCaseEntityNumber(caseNumber);
     }
 
-    public Resource downloadCaseFile(String number, Long fileId) throws IOException {
-        Case caseEntity = caseRepository.getCaseByNumber(number)
-                .orElseThrow(() -> new IllegalArgumentException("Case not found with ID: " + number));
-
-        CaseFile caseFile = caseFileRepository.findById(fileId)
-                .orElseThrow(() -> new IllegalArgumentException("File not found with ID: " + fileId));
-
-        if (!caseFile.getCaseEntity().getId().equals(caseEntity.getId())) {
-            throw new IllegalArgumentException("File does not belong to the given case.");
+    /**
+     * Resolves a stored case file for streaming. Files stored compressed are passed through as-is when
+     * the client accepts gzip, and decompressed on the fly otherwise. Hot files are answered from
+     * {@link CaseFileMetadataCache}; a miss costs one query and one storage stat.
+     */
+    public FileDownload downloadCaseFile(String number, Long fileId, boolean acceptsGzip) throws IOException {
+        TransferMetrics.Download download = transferMetrics.startDownload(number, fileId);
+        CaseFileMetadataCache.Metadata metadata = metadataCache.get(number, fileId);
+        boolean cacheHit = metadata != null;
+        if (!cacheHit) {
+            long generation = metadataCache.currentGeneration();
+            CaseFileRepository.DownloadRow row = caseFileRepository.findDownloadRow(number, fileId)
+                    .orElseThrow(() -> new IllegalArgumentException("File " + fileId + " not found in case " + number));
+            BlobStat stat = blobStore.stat(row.getFileName())
+                    .orElseThrow(() -> new FileNotFoundException("File not found in storage: " + row.getFileName()));
+
+            String displayName = row.getOriginalFileName() != null ? row.getOriginalFileName() : row.getFileName();
+            metadata = new CaseFileMetadataCache.Metadata(row.getFileName(), displayName, row.getFileSize(),
+                    row.getContentEncoding(), stat);
+            metadataCache.put(number, fileId, generation, metadata);
         }
+        download.resolved(cacheHit, metadata.fileName());
 
-        Path filePath = Paths.get(uploadDirectory, caseFile.getFileName());
-
-        if (!Files.exists(filePath)) {
-            throw new FileNotFoundException("File not found on disk: " + filePath);
+        BlobResource stored = new BlobResource(blobStore, metadata.stat(), metadata.displayName());
+        if (!FileCompressor.GZIP.equals(metadata.contentEncoding())) {
+            return new FileDownload(download.meter(stored, "identity"), metadata.displayName(), null);
         }
-
-        return new UrlResource(filePath.toUri());
+        if (acceptsGzip) {
+            return new FileDownload(download.meter(stored, "gzip"), metadata.displayName(),
+                    FileCompressor.GZIP);
+        }
+        return new FileDownload(download.meter(new GzipDecodingResource(stored, metadata.fileSize()),
+                "decoded"), metadata.displayName(), null);
     }
 
     public Resource downloadWordByCaseNumber(String caseNumber) throws IOException {
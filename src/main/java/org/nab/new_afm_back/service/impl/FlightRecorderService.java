@@ -0,0 +1,115 @@
+package org.nab.new_afm_back.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.service.IFlightRecorderService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Keeps a continuous JDK Flight Recorder recording with the {@code app.jfr.settings} profile, bounded by
+ * age and size, and dumps it on request. Dumps are taken from a snapshot of all running recordings, so a
+ * recording started with {@code -XX:StartFlightRecording} is included too.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FlightRecorderService implements IFlightRecorderService {
+
+    private static final String RECORDING_NAME = "afm-continuous";
+
+    private final ResourceLoader resourceLoader;
+
+    @Value("${app.jfr.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.jfr.settings:classpath:jfr/afm.jfc}")
+    private String settings;
+
+    @Value("${app.jfr.max-age-minutes:30}")
+    private long maxAgeMinutes;
+
+    @Value("${app.jfr.max-size:250MB}")
+    private DataSize maxSize;
+
+    private Recording recording;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Continuous flight recording is disabled");
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            log.warn("Flight recorder is not available in this JVM, continuous recording not started");
+            return;
+        }
+        try (Reader reader = new InputStreamReader(resourceLoader.getResource(settings).getInputStream(),
+                StandardCharsets.UTF_8)) {
+            Recording continuous = new Recording(Configuration.create(reader));
+            continuous.setName(RECORDING_NAME);
+            continuous.setToDisk(true);
+            continuous.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+            continuous.setMaxSize(maxSize.toBytes());
+            continuous.start();
+            recording = continuous;
+            log.info("Started continuous flight recording with {} (max age {} min, max size {})",
+                    settings, maxAgeMinutes, maxSize);
+        } catch (IOException | ParseException | IllegalStateException e) {
+            log.error("Could not start continuous flight recording with {}: {}", settings, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    @Override
+    public boolean isRecording() {
+        return FlightRecorder.isAvailable() && !FlightRecorder.getFlightRecorder().getRecordings().isEmpty();
+    }
+
+    /**
+     * Writes the data currently held by the flight recorder to a new temporary file, which the caller deletes.
+     */
+    @Override
+    public Path dump() throws IOException {
+        if (!isRecording()) {
+            throw new IllegalStateException("No flight recording is running");
+        }
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+            if (snapshot.getSize() == 0) {
+                throw new IllegalStateException("The flight recording has no data yet");
+            }
+            Path file = Files.createTempFile("afm-", ".jfr");
+            try {
+                snapshot.dump(file);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            log.info("Dumped flight recording ({} bytes) to {}", Files.size(file), file);
+            return file;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.nab.new_afm_back.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.nab.new_afm_back.dto.response.QueryReport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sees every JDBC statement through the proxied {@code DataSource} (see {@code QueryObservabilityConfig}).
+ * Statements are timed by type, those over {@code app.db.slow-query-ms} are logged with the shapes of
+ * their parameters, and a request that runs more than {@code app.db.max-statements-per-request}
+ * statements is flagged together with its most repeated statement, which is usually the N+1 select.
+ * <p>
+ * Statements are attributed to the request running on the same thread; work on background threads is
+ * timed but not attributed.
+ */
+@Component
+@Slf4j
+public class QueryMonitor implements QueryExecutionListener {
+
+    private static final String STARTED_AT = "afm.startedAt";
+    private static final int MAX_SQL_LENGTH = 2000;
+    private static final int MAX_PARAMETERS = 20;
+    private static final List<String> STATEMENT_TYPES = List.of("select", "insert", "update", "delete", "other");
+
+    private static final class RequestStatements {
+        private final String request;
+        private final Map<String, Integer> counts = new HashMap<>();
+        private int total;
+
+        private RequestStatements(String request) {
+            this.request = request;
+        }
+    }
+
+    private final ThreadLocal<RequestStatements> currentRequest = new ThreadLocal<>();
+    private final Map<String, Timer> statementTimers = new HashMap<>();
+    private final Counter slowStatements;
+    private final Counter flagged;
+    private final DistributionSummary statementsPerRequest;
+    private final Deque<QueryReport.SlowQuery> recentSlowQueries = new ArrayDeque<>();
+    private final Deque<QueryReport.FlaggedRequest> recentFlaggedRequests = new ArrayDeque<>();
+
+    @Value("${app.db.slow-query-ms:200}")
+    private long slowQueryMs;
+
+    @Value("${app.db.max-statements-per-request:20}")
+    private int maxStatementsPerRequest;
+
+    @Value("${app.db.recent-entries:50}")
+    private int recentEntries;
+
+    public QueryMonitor(MeterRegistry meterRegistry) {
+        for (String type : STATEMENT_TYPES) {
+            statementTimers.put(type, Timer.builder("afm.db.statement")
+                    .description("JDBC statement execution time, one sample per execution or batch")
+                    .tag("type", type)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        this.slowStatements = Counter.builder("afm.db.statement.slow")
+                .description("Statements slower than app.db.slow-query-ms")
+                .register(meterRegistry);
+        this.flagged = Counter.builder("afm.db.request.flagged")
+                .description("Requests that ran more than app.db.max-statements-per-request statements")
+                .register(meterRegistry);
+        this.statementsPerRequest = DistributionSummary.builder("afm.db.request.statements")
+                .description("JDBC statements run per HTTP request")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1000.0)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts attributing statements on this thread to {@code request}, e.g. {@code GET /case/123}.
+     */
+    public void beginRequest(String request) {
+        currentRequest.set(new RequestStatements(request));
+    }
+
+    public void endRequest() {
+        RequestStatements statements = currentRequest.get();
+        currentRequest.remove();
+        if (statements == null || statements.total == 0) {
+            return;
+        }
+        statementsPerRequest.record(statements.total);
+        if (statements.total <= maxStatementsPerRequest) {
+            return;
+        }
+
+        Map.Entry<String, Integer> mostRepeated = statements.counts.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .orElseThrow();
+        flagged.increment();
+        log.warn("{} ran {} statements ({} distinct), most repeated {}x: {}", statements.request,
+                statements.total, statements.counts.size(), mostRepeated.getValue(), mostRepeated.getKey());
+        remember(recentFlaggedRequests, new QueryReport.FlaggedRequest(LocalDateTime.now(), statements.request,
+                statements.total, statements.counts.size(), mostRepeated.getKey(), mostRepeated.getValue()));
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+        execution.addCustomValue(STARTED_AT, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+        Long startedAt = execution.getCustomValue(STARTED_AT, Long.class);
+        if (startedAt == null || queries.isEmpty()) {
+            return;
+        }
+        long nanos = System.nanoTime() - startedAt;
+        String sql = truncate(queries.get(0).getQuery());
+        statementTimers.get(statementType(sql)).record(nanos, TimeUnit.NANOSECONDS);
+
+        RequestStatements statements = currentRequest.get();
+        if (statements != null) {
+            statements.total++;
+            statements.counts.merge(sql, 1, Integer::sum);
+        }
+
+        if (nanos >= TimeUnit.MILLISECONDS.toNanos(slowQueryMs)) {
+            slowStatements.increment();
+            List<String> parameters = parameterShapes(queries.get(0));
+            String request = statements != null ? statements.request : Thread.currentThread().getName();
+            double elapsedMs = nanos / 1e6;
+            log.warn("Slow statement ({} ms, {}{}): {} parameters {}", String.format(Locale.ROOT, "%.1f", elapsedMs),
+                    request, execution.isBatch() ? ", batch of " + execution.getBatchSize() : "", sql, parameters);
+            remember(recentSlowQueries, new QueryReport.SlowQuery(LocalDateTime.now(), request, elapsedMs, sql,
+                    parameters, execution.isBatch() ? execution.getBatchSize() : 0, execution.isSuccess()));
+        }
+    }
+
+    public long getSlowQueryMs() {
+        return slowQueryMs;
+    }
+
+    public int getMaxStatementsPerRequest() {
+        return maxStatementsPerRequest;
+    }
+
+    public long getSlowStatementCount() {
+        return (long) slowStatements.count();
+    }
+
+    public long getFlaggedRequestCount() {
+        return (long) flagged.count();
+    }
+
+    /** Most recent first. */
+    public synchronized List<QueryReport.SlowQuery> getRecentSlowQueries() {
+        return new ArrayList<>(recentSlowQueries);
+    }
+
+    /** Most recent first. */
+    public synchronized List<QueryReport.FlaggedRequest> getRecentFlaggedRequests() {
+        return new ArrayList<>(recentFlaggedRequests);
+    }
+
+    public synchronized void clear() {
+        recentSlowQueries.clear();
+        recentFlaggedRequests.clear();
+    }
+
+    private synchronized <T> void remember(Deque<T> recent, T entry) {
+        recent.addFirst(entry);
+        while (recent.size() > recentEntries) {
+            recent.removeLast();
+        }
+    }
+
+    private static String statementType(String sql) {
+        String start = sql.stripLeading();
+        int end = 0;
+        while (end < start.length() && Character.isLetter(start.charAt(end))) {
+            end++;
+        }
+        String keyword = start.substring(0, end).toLowerCase(Locale.ROOT);
+        return STATEMENT_TYPES.contains(keyword) ? keyword : "other";
+    }
+
+    /**
+     * Types of the first parameter set, with lengths for strings and byte arrays, e.g.
+     * {@code [String(12), Long, null]}. Values are left out because they may hold personal data.
+     */
+    private static List<String> parameterShapes(QueryInfo query) {
+        List<List<ParameterSetOperation>> parameterSets = query.getParametersList();
+        if (parameterSets.isEmpty()) {
+            return List.of();
+        }
+        List<ParameterSetOperation> parameters = parameterSets.get(0);
+        List<String> shapes = new ArrayList<>();
+        for (ParameterSetOperation parameter : parameters) {
+            if (shapes.size() == MAX_PARAMETERS) {
+                shapes.add("... " + (parameters.size() - MAX_PARAMETERS) + " more");
+                break;
+            }
+            shapes.add(shape(parameter));
+        }
+        return shapes;
+    }
+
+    private static String shape(ParameterSetOperation parameter) {
+        Object[] args = parameter.getArgs();
+        Object value = args.length > 1 ? args[1] : null;
+        if (ParameterSetOperation.isSetNullParameterOperation(parameter) || value == null) {
+            return "null";
+        }
+        if (value instanceof CharSequence text) {
+            return "String(" + text.length() + ")";
+        }
+        if (value instanceof byte[] bytes) {
+            return "byte[" + bytes.length + "]";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    private static String truncate(String sql) {
+        return sql.length() <= MAX_SQL_LENGTH ? sql : sql.substring(0, MAX_SQL_LENGTH) + "...";
+    }
+}
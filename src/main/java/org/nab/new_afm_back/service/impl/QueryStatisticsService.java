@@ -0,0 +1,121 @@
+package org.nab.new_afm_back.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.nab.new_afm_back.dto.response.QueryReport;
+import org.nab.new_afm_back.service.IQueryStatisticsService;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Combines Hibernate statistics ({@code hibernate.generate_statistics}), Spring Data's per-method
+ * repository timers ({@code spring.data.repository.invocations}) and {@link QueryMonitor}'s slow
+ * statements and flagged requests into one report.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class QueryStatisticsService implements IQueryStatisticsService {
+
+    private static final String REPOSITORY_TIMER = "spring.data.repository.invocations";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final MeterRegistry meterRegistry;
+    private final QueryMonitor queryMonitor;
+
+    @Override
+    public QueryReport getReport(int top) {
+        Statistics statistics = statistics();
+        QueryReport.Hibernate hibernate = new QueryReport.Hibernate(
+                statistics.isStatisticsEnabled(),
+                statistics.getSessionOpenCount(),
+                statistics.getTransactionCount(),
+                statistics.getPrepareStatementCount(),
+                statistics.getQueryExecutionCount(),
+                statistics.getQueryExecutionMaxTime(),
+                statistics.getQueryExecutionMaxTimeQueryString(),
+                statistics.getEntityLoadCount(),
+                statistics.getEntityFetchCount(),
+                statistics.getCollectionLoadCount(),
+                statistics.getCollectionFetchCount(),
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount());
+
+        List<QueryReport.HqlQuery> topQueries = Arrays.stream(statistics.getQueries())
+                .map(query -> {
+                    QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+                    return new QueryReport.HqlQuery(query,
+                            queryStatistics.getExecutionCount(),
+                            queryStatistics.getExecutionRowCount(),
+                            queryStatistics.getExecutionAvgTimeAsDouble(),
+                            queryStatistics.getExecutionMaxTime(),
+                            queryStatistics.getExecutionTotalTime());
+                })
+                .sorted(Comparator.comparingDouble(QueryReport.HqlQuery::totalMs).reversed())
+                .limit(top)
+                .toList();
+
+        return new QueryReport(
+                LocalDateTime.ofInstant(statistics.getStart(), ZoneId.systemDefault()),
+                hibernate,
+                topQueries,
+                topRepositoryMethods(top),
+                queryMonitor.getSlowQueryMs(),
+                queryMonitor.getSlowStatementCount(),
+                queryMonitor.getRecentSlowQueries(),
+                queryMonitor.getMaxStatementsPerRequest(),
+                queryMonitor.getFlaggedRequestCount(),
+                queryMonitor.getRecentFlaggedRequests());
+    }
+
+    /**
+     * Clears Hibernate statistics and the recent slow statements and flagged requests. Meters keep counting.
+     */
+    @Override
+    public void reset() {
+        statistics().clear();
+        queryMonitor.clear();
+        log.info("Query statistics reset");
+    }
+
+    /**
+     * Repository timers are tagged by outcome as well; invocations of a method are summed across outcomes.
+     */
+    private List<QueryReport.RepositoryMethod> topRepositoryMethods(int top) {
+        Map<String, QueryReport.RepositoryMethod> methods = new LinkedHashMap<>();
+        for (Timer timer : meterRegistry.find(REPOSITORY_TIMER).timers()) {
+            String repository = timer.getId().getTag("repository");
+            String method = timer.getId().getTag("method");
+            QueryReport.RepositoryMethod current = new QueryReport.RepositoryMethod(repository, method,
+                    timer.count(), timer.totalTime(TimeUnit.MILLISECONDS), 0, timer.max(TimeUnit.MILLISECONDS));
+            methods.merge(repository + "." + method, current, (a, b) -> new QueryReport.RepositoryMethod(
+                    repository, method, a.invocations() + b.invocations(), a.totalMs() + b.totalMs(), 0,
+                    Math.max(a.maxMs(), b.maxMs())));
+        }
+        return methods.values().stream()
+                .map(method -> new QueryReport.RepositoryMethod(method.repository(), method.method(),
+                        method.invocations(), method.totalMs(),
+                        method.invocations() > 0 ? method.totalMs() / method.invocations() : 0, method.maxMs()))
+                .sorted(Comparator.comparingDouble(QueryReport.RepositoryMethod::totalMs).reversed())
+                .limit(top)
+                .toList();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
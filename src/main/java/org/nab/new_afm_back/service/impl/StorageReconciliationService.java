@@ -0,0 +1,308 @@
+package org.nab.new_afm_back.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.dto.response.ReconciliationReport;
+import org.nab.new_afm_back.repository.CaseFileRepository;
+import org.nab.new_afm_back.service.IStorageReconciliationService;
+import org.nab.new_afm_back.storage.BlobStat;
+import org.nab.new_afm_back.storage.BlobStore;
+import org.nab.new_afm_back.storage.StagingArea;
+import org.nab.new_afm_back.util.Throttle;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Finds stored files without a {@code case_files1} row and rows whose file is gone.
+ * <p>
+ * Both sides are reduced to sorted arrays of 64-bit name hashes (8 bytes per file), so memory stays
+ * small with millions of files. Only hashes present on one side are resolved back to names, in a second
+ * filtered pass, and every candidate is re-checked before it is reported or quarantined. Storage and
+ * database reads share one {@link Throttle} so a run does not compete with request traffic.
+ * <p>
+ * Each run, and once at startup, first lets the {@link StagingArea} retry committed uploads that could
+ * not be moved into storage, so they are not reported as missing files.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageReconciliationService implements IStorageReconciliationService {
+
+    public static final String QUARANTINE_PREFIX = ".quarantine/";
+
+    private static final int SAMPLE_SIZE = 100;
+
+    private final CaseFileRepository caseFileRepository;
+    private final BlobStore blobStore;
+    private final StagingArea stagingArea;
+
+    @Value("${app.storage.reconcile.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.reconcile.mode:report}")
+    private String mode;
+
+    @Value("${app.storage.reconcile.initial-delay-minutes:30}")
+    private long initialDelayMinutes;
+
+    @Value("${app.storage.reconcile.interval-hours:24}")
+    private long intervalHours;
+
+    @Value("${app.storage.reconcile.max-files-per-second:2000}")
+    private double maxFilesPerSecond;
+
+    @Value("${app.storage.reconcile.parallelism:2}")
+    private int parallelism;
+
+    @Value("${app.storage.reconcile.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${app.storage.reconcile.min-age-minutes:60}")
+    private long minAgeMinutes;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-reconciler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicReference<ReconciliationReport> lastReport = new AtomicReference<>();
+
+    @PostConstruct
+    public void init() {
+        scheduler.execute(this::recoverStaging);
+        if (!enabled) {
+            log.info("Scheduled storage reconciliation is disabled");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::runScheduled, initialDelayMinutes,
+                TimeUnit.HOURS.toMinutes(intervalHours), TimeUnit.MINUTES);
+        log.info("Storage reconciliation scheduled every {} h in {} mode", intervalHours, mode);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void runScheduled() {
+        try {
+            reconcile("quarantine".equalsIgnoreCase(mode));
+        } catch (IllegalStateException e) {
+            log.info("Skipping scheduled storage reconciliation: {}", e.getMessage());
+        } catch (Exception e) {
+            log.error("Scheduled storage reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void recoverStaging() {
+        try {
+            stagingArea.recover(caseFileRepository::existsByFileName);
+        } catch (Exception e) {
+            log.error("Recovering staged uploads failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ReconciliationReport reconcile(boolean quarantine) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Storage reconciliation is already running");
+        }
+        try {
+            ReconciliationReport report = doReconcile(quarantine);
+            lastReport.set(report);
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    public Optional<ReconciliationReport> getLastReport() {
+        return Optional.ofNullable(lastReport.get());
+    }
+
+    private ReconciliationReport doReconcile(boolean quarantine) throws IOException {
+        LocalDateTime startedAt = LocalDateTime.now();
+        recoverStaging();
+        Throttle throttle = new Throttle(maxFilesPerSecond);
+        log.info("Storage reconciliation started (quarantine={}, limit={} files/s, parallelism={})",
+                quarantine, maxFilesPerSecond, parallelism);
+
+        // Storage is walked before the database: uploads are promoted only after their rows commit,
+        // so every file seen here already has a row visible to the database scan that follows.
+        HashCollector stored = new HashCollector();
+        blobStore.forEachKey(parallelism, key -> {
+            throttle.acquire();
+            stored.add(hash(key));
+        });
+        long[] storedHashes = stored.toSortedArray();
+
+        HashCollector recorded = new HashCollector();
+        forEachDatabaseFile(throttle, row -> recorded.add(hash(row.getFileName())));
+        long[] recordedHashes = recorded.toSortedArray();
+
+        long[] orphanHashes = difference(storedHashes, recordedHashes);
+        long[] missingHashes = difference(recordedHashes, storedHashes);
+        log.info("Storage reconciliation compared {} stored and {} recorded files: {} orphan and {} missing candidates",
+                stored.count(), recorded.count(), orphanHashes.length, missingHashes.length);
+
+        List<String> orphanSample = new ArrayList<>();
+        long orphans = 0;
+        long quarantined = 0;
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(minAgeMinutes));
+        for (String key : orphanCandidates(orphanHashes, throttle)) {
+            // Recent files may belong to an upload still in flight; rows may also have appeared since the scan.
+            Optional<BlobStat> stat = blobStore.stat(key);
+            if (stat.isEmpty() || stat.get().lastModified().isAfter(cutoff) || caseFileRepository.existsByFileName(key)) {
+                continue;
+            }
+            orphans++;
+            if (orphanSample.size() < SAMPLE_SIZE) {
+                orphanSample.add(key);
+            }
+            if (quarantine) {
+                blobStore.move(key, QUARANTINE_PREFIX + key);
+                quarantined++;
+                log.warn("Quarantined orphan file: {} -> {}{}", key, QUARANTINE_PREFIX, key);
+            } else {
+                log.warn("Orphan file in storage: {} ({} bytes)", key, stat.get().size());
+            }
+        }
+
+        List<ReconciliationReport.MissingFile> missingSample = new ArrayList<>();
+        long missing = 0;
+        for (ReconciliationReport.MissingFile candidate : missingCandidates(missingHashes, throttle)) {
+            if (blobStore.exists(candidate.fileName()) || !caseFileRepository.existsById(candidate.id())) {
+                continue;
+            }
+            missing++;
+            if (missingSample.size() < SAMPLE_SIZE) {
+                missingSample.add(candidate);
+            }
+            log.warn("Stored file missing for case file row {}: {}", candidate.id(), candidate.fileName());
+        }
+
+        ReconciliationReport report = new ReconciliationReport(startedAt, LocalDateTime.now(), quarantine,
+                stored.count(), recorded.count(), orphans, quarantined, missing, orphanSample, missingSample);
+        log.info("Storage reconciliation finished: {} orphan files ({} quarantined), {} missing files",
+                orphans, quarantined, missing);
+        return report;
+    }
+
+    private List<String> orphanCandidates(long[] orphanHashes, Throttle throttle) throws IOException {
+        List<String> candidates = Collections.synchronizedList(new ArrayList<>());
+        if (orphanHashes.length > 0) {
+            blobStore.forEachKey(parallelism, key -> {
+                throttle.acquire();
+                if (Arrays.binarySearch(orphanHashes, hash(key)) >= 0) {
+                    candidates.add(key);
+                }
+            });
+        }
+        return candidates;
+    }
+
+    private List<ReconciliationReport.MissingFile> missingCandidates(long[] missingHashes, Throttle throttle) {
+        List<ReconciliationReport.MissingFile> candidates = new ArrayList<>();
+        if (missingHashes.length > 0) {
+            forEachDatabaseFile(throttle, row -> {
+                if (Arrays.binarySearch(missingHashes, hash(row.getFileName())) >= 0) {
+                    candidates.add(new ReconciliationReport.MissingFile(row.getId(), row.getFileName()));
+                }
+            });
+        }
+        return candidates;
+    }
+
+    private void forEachDatabaseFile(Throttle throttle, Consumer<CaseFileRepository.FileNameRow> action) {
+        long afterId = 0;
+        List<CaseFileRepository.FileNameRow> rows;
+        while (!(rows = caseFileRepository.findFileNamesAfter(afterId, chunkSize)).isEmpty()) {
+            throttle.acquire(rows.size());
+            rows.forEach(action);
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Elements of sorted {@code a} that are not in sorted {@code b}.
+     */
+    static long[] difference(long[] a, long[] b) {
+        long[] result = new long[a.length];
+        int count = 0;
+        int j = 0;
+        for (long value : a) {
+            while (j < b.length && b[j] < value) {
+                j++;
+            }
+            if (j == b.length || b[j] != value) {
+                result[count++] = value;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 name; collisions are negligible at this scale and only hide a finding.
+     */
+    private static long hash(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Growable primitive array; {@link #add} is called concurrently by the parallel storage walk.
+     */
+    private static final class HashCollector {
+
+        private long[] hashes = new long[1024];
+        private int size;
+
+        synchronized void add(long hash) {
+            if (size == hashes.length) {
+                hashes = Arrays.copyOf(hashes, size * 2);
+            }
+            hashes[size++] = hash;
+        }
+
+        synchronized long count() {
+            return size;
+        }
+
+        synchronized long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(hashes, size);
+            Arrays.parallelSort(sorted);
+            int unique = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, unique);
+        }
+    }
+}
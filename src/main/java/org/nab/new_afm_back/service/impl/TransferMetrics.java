@@ -0,0 +1,255 @@
+package org.nab.new_afm_back.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.nab.new_afm_back.jfr.DownloadEvent;
+import org.nab.new_afm_back.jfr.UploadFileEvent;
+import org.nab.new_afm_back.storage.MeteredResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload and download meters for {@link FileService}, together with the matching JDK Flight Recorder
+ * events ({@link UploadFileEvent}, {@link DownloadEvent}). Sizes and rates are published as percentile
+ * histograms, so Prometheus can aggregate them across instances.
+ * <p>
+ * Per-file upload time covers validation and staging. Per-request time also covers the database work,
+ * the commit and moving the staged files into storage. Download time runs from the metadata lookup
+ * until the response stream is closed, so it includes the transfer to the client.
+ */
+@Component
+public class TransferMetrics {
+
+    private static final double MIN_FILE_BYTES = DataSize.ofKilobytes(1).toBytes();
+    private static final double MAX_FILE_BYTES = DataSize.ofMegabytes(100).toBytes();
+
+    private final MeterRegistry meterRegistry;
+    private final Counter filesRejected;
+    private final Counter filesUnpromoted;
+    private final DistributionSummary requestThroughput;
+    private final DistributionSummary fileThroughput;
+
+    public TransferMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.filesRejected = Counter.builder("afm.upload.files.rejected")
+                .description("Uploaded files skipped because they were empty or failed validation")
+                .register(meterRegistry);
+        this.filesUnpromoted = Counter.builder("afm.upload.files.unpromoted")
+                .description("Committed upload files that could not be moved into storage and wait in the staging area")
+                .register(meterRegistry);
+        this.requestThroughput = throughput("request");
+        this.fileThroughput = throughput("file");
+    }
+
+    private DistributionSummary throughput(String scope) {
+        return DistributionSummary.builder("afm.upload.throughput")
+                .description("Upload bytes per second, per request or per file")
+                .baseUnit("bytes.per.second")
+                .tag("scope", scope)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_FILE_BYTES)
+                .maximumExpectedValue((double) DataSize.ofGigabytes(10).toBytes())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts measuring one upload request; {@code type} is {@code case} or {@code add-files}.
+     */
+    public Upload startUpload(String type, String caseNumber) {
+        return new Upload(type, caseNumber);
+    }
+
+    public final class Upload {
+
+        private final String type;
+        private final String caseNumber;
+        private final long startedAt = System.nanoTime();
+        private final List<UploadedFile> stored = new ArrayList<>();
+        private long bytes;
+        private long lastStagedAt = startedAt;
+
+        private Upload(String type, String caseNumber) {
+            this.type = type;
+            this.caseNumber = caseNumber;
+        }
+
+        public UploadedFile startFile(String fileName, long size) {
+            return new UploadedFile(this, fileName, size);
+        }
+
+        /**
+         * Records the request once its transaction has completed and committed files are in storage.
+         * {@code unpromoted} are the stored names of committed files that could not be moved into storage;
+         * the request then counts as failed.
+         */
+        public void finish(boolean committed, Collection<String> unpromoted) {
+            long finishedAt = System.nanoTime();
+            long nanos = finishedAt - startedAt;
+            String outcome = !committed ? "rolled-back" : unpromoted.isEmpty() ? "committed" : "promote-failed";
+            Timer.builder("afm.upload.request")
+                    .description("Time to store an upload request, from the first file to its files being in storage")
+                    .tag("type", type)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+            if (committed && unpromoted.isEmpty() && !stored.isEmpty()) {
+                DistributionSummary.builder("afm.upload.request.size")
+                        .description("Bytes stored per upload request")
+                        .baseUnit("bytes")
+                        .tag("type", type)
+                        .register(meterRegistry)
+                        .record(bytes);
+                if (nanos > 0) {
+                    requestThroughput.record(bytes * 1e9 / nanos);
+                }
+            }
+            filesUnpromoted.increment(unpromoted.size());
+            for (UploadedFile file : stored) {
+                file.event.persistDuration = finishedAt - lastStagedAt;
+                if (!committed) {
+                    file.commit("rolled-back");
+                } else {
+                    file.commit(unpromoted.contains(file.event.storedName) ? "promote-failed" : "stored");
+                }
+            }
+        }
+    }
+
+    public final class UploadedFile {
+
+        private final Upload upload;
+        private final UploadFileEvent event = new UploadFileEvent();
+        private final long startedAt = System.nanoTime();
+        private long validatedAt;
+
+        private UploadedFile(Upload upload, String fileName, long size) {
+            this.upload = upload;
+            event.begin();
+            event.uploadType = upload.type;
+            event.caseNumber = upload.caseNumber;
+            event.fileName = fileName;
+            event.size = size;
+        }
+
+        public void validated() {
+            validatedAt = System.nanoTime();
+            event.validateDuration = validatedAt - startedAt;
+        }
+
+        public void rejected() {
+            filesRejected.increment();
+            commit("rejected");
+        }
+
+        public void staged(String storedName, String fileType) {
+            long stagedAt = System.nanoTime();
+            long nanos = stagedAt - startedAt;
+            event.storedName = storedName;
+            event.fileType = fileType;
+            event.copyDuration = stagedAt - (validatedAt == 0 ? startedAt : validatedAt);
+
+            String tag = fileType == null || fileType.isEmpty() ? "none" : fileType;
+            Timer.builder("afm.upload.file")
+                    .description("Time to validate and stage one uploaded file")
+                    .tag("type", tag)
+                    .register(meterRegistry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+            DistributionSummary.builder("afm.upload.file.size")
+                    .description("Size of uploaded files")
+                    .baseUnit("bytes")
+                    .tag("type", tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(MIN_FILE_BYTES)
+                    .maximumExpectedValue(MAX_FILE_BYTES)
+                    .register(meterRegistry)
+                    .record(event.size);
+            if (nanos > 0) {
+                fileThroughput.record(event.size * 1e9 / nanos);
+            }
+            upload.bytes += event.size;
+            upload.lastStagedAt = stagedAt;
+            upload.stored.add(this);
+        }
+
+        private void commit(String outcome) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    public Download startDownload(String caseNumber, long fileId) {
+        return new Download(caseNumber, fileId);
+    }
+
+    public final class Download {
+
+        private final DownloadEvent event = new DownloadEvent();
+        private final long startedAt = System.nanoTime();
+
+        private Download(String caseNumber, long fileId) {
+            event.begin();
+            event.caseNumber = caseNumber;
+            event.fileId = fileId;
+        }
+
+        public void resolved(boolean cacheHit, String storedName) {
+            long nanos = System.nanoTime() - startedAt;
+            event.cacheHit = cacheHit;
+            event.storedName = storedName;
+            event.resolveDuration = nanos;
+            Timer.builder("afm.download.resolve")
+                    .description("Time to find a case file's metadata and storage entry")
+                    .tag("cache", cacheHit ? "hit" : "miss")
+                    .register(meterRegistry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Wraps the download body so its latency and served bytes are recorded when the response stream
+         * closes. {@code encoding} is {@code identity}, {@code gzip} (sent compressed) or {@code decoded}.
+         */
+        public Resource meter(Resource resource, String encoding) {
+            try {
+                event.contentLength = resource.contentLength();
+            } catch (IOException e) {
+                event.contentLength = -1;
+            }
+            return new MeteredResource(resource, transfer -> {
+                Timer.builder("afm.download")
+                        .description("Time to serve a case file, until the response body is sent")
+                        .tag("encoding", encoding)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(transfer.closedAtNanos() - startedAt, TimeUnit.NANOSECONDS);
+                DistributionSummary.builder("afm.download.bytes")
+                        .description("Bytes sent per case file download")
+                        .baseUnit("bytes")
+                        .tag("encoding", encoding)
+                        .register(meterRegistry)
+                        .record(transfer.bytesRead());
+
+                event.end();
+                if (event.shouldCommit()) {
+                    event.encoding = encoding;
+                    event.bytes = transfer.bytesRead();
+                    event.rangeStart = transfer.bytesSkipped();
+                    event.timeToFirstByte = transfer.firstByteAtNanos() - startedAt;
+                    event.commit();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package org.nab.new_afm_back.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.dto.request.UploadCaseRequest;
+import org.nab.new_afm_back.dto.response.UploadJobStatus;
+import org.nab.new_afm_back.dto.response.UploadJobStatus.FileState;
+import org.nab.new_afm_back.dto.response.UploadJobStatus.State;
+import org.nab.new_afm_back.model.Case;
+import org.nab.new_afm_back.service.IUploadJobService;
+import org.nab.new_afm_back.service.UploadProgress;
+import org.nab.new_afm_back.storage.StagingArea;
+import org.nab.new_afm_back.util.SpooledMultipartFile;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Registers uploads in the background so the request thread is released as soon as the bytes are
+ * on disk. Submitted files are moved into a job directory under the staging area next to a JSON
+ * manifest, then handed to {@link FileService} by a bounded pool of workers.
+ * <p>
+ * Queued jobs survive a restart and are resubmitted. A job that was running when the application
+ * stopped is reported as failed instead of re-run, since its case may already have been committed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@RegisterReflectionForBinding(UploadJobService.Manifest.class)
+public class UploadJobService implements IUploadJobService {
+
+    private static final String MANIFEST = "manifest.json";
+
+    private final FileService fileService;
+    private final StagingArea stagingArea;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.upload.async.workers:2}")
+    private int workers;
+
+    @Value("${app.upload.async.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${app.upload.async.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    record ManifestFile(String originalFileName, String contentType, long size) {
+    }
+
+    record Manifest(String id, UploadJobStatus.Type type, String caseNumber, UploadCaseRequest request,
+                    List<ManifestFile> files, State state, LocalDateTime submittedAt) {
+
+        Manifest withState(State newState) {
+            return new Manifest(id, type, caseNumber, request, files, newState, submittedAt);
+        }
+    }
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private Path jobsDirectory;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() throws IOException {
+        jobsDirectory = Files.createDirectories(stagingArea.getDirectory().resolve("jobs"));
+        // The pool size still bounds concurrent jobs when they run on virtual threads.
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("upload-job-", 1).factory()
+                : Thread.ofPlatform().name("upload-job-", 1).daemon(true).factory();
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+        recover();
+        log.info("Asynchronous upload jobs enabled: {} workers, queue capacity {}", workers, queueCapacity);
+    }
+
+    /**
+     * Lets running jobs finish; queued jobs keep their manifests and are picked up after the restart.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.getQueue().clear();
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Upload jobs still running at shutdown will be reported as interrupted after the restart");
+        }
+    }
+
+    /**
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    @Override
+    public UploadJobStatus submitUpload(UploadCaseRequest request, List<MultipartFile> additionalFiles) throws IOException {
+        return submit(UploadJobStatus.Type.UPLOAD_CASE, request.getNumber(), request, additionalFiles);
+    }
+
+    /**
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    @Override
+    public UploadJobStatus submitAddFiles(String caseNumber, List<MultipartFile> additionalFiles) throws IOException {
+        return submit(UploadJobStatus.Type.ADD_FILES, caseNumber, null, additionalFiles);
+    }
+
+    @Override
+    public Optional<UploadJobStatus> getStatus(String jobId) {
+        evictFinished();
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::snapshot);
+    }
+
+    private UploadJobStatus submit(UploadJobStatus.Type type, String caseNumber, UploadCaseRequest request,
+                                   List<MultipartFile> uploads) throws IOException {
+        evictFinished();
+        // Refused before any part is moved; enqueue still guards against the queue filling up meanwhile.
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw new RejectedExecutionException("Upload job queue is full");
+        }
+        String id = UUID.randomUUID().toString();
+        Path directory = Files.createDirectories(jobsDirectory.resolve(id));
+        try {
+            List<ManifestFile> files = new ArrayList<>();
+            if (uploads != null) {
+                for (int i = 0; i < uploads.size(); i++) {
+                    MultipartFile upload = uploads.get(i);
+                    // A rename for parts spooled to the staging area, so accepting the job copies nothing.
+                    upload.transferTo(part(directory, i));
+                    files.add(new ManifestFile(upload.getOriginalFilename(), upload.getContentType(), upload.getSize()));
+                }
+            }
+            Manifest manifest = new Manifest(id, type, caseNumber, request, files, State.QUEUED, LocalDateTime.now());
+            writeManifest(manifest, directory);
+
+            Job job = new Job(manifest, directory);
+            enqueue(job);
+            log.info("Accepted {} job {} for case {} with {} files", type, id, caseNumber, files.size());
+            return job.snapshot();
+        } catch (IOException | RuntimeException e) {
+            deleteDirectory(directory);
+            throw e;
+        }
+    }
+
+    private void enqueue(Job job) {
+        jobs.put(job.manifest.id(), job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.manifest.id());
+            throw e;
+        }
+    }
+
+    private void run(Job job) {
+        Manifest manifest = job.manifest;
+        job.started();
+        try {
+            writeManifest(manifest.withState(State.RUNNING), job.directory);
+            List<MultipartFile> files = job.spooledFiles();
+            Case result = switch (manifest.type()) {
+                case UPLOAD_CASE -> fileService.uploadCaseWithFiles(manifest.request(), files, job);
+                case ADD_FILES -> fileService.addAdditionalFilesToCase(manifest.caseNumber(), files, null, job);
+            };
+            job.completed(result.getId());
+            log.info("Upload job {} completed for case {}", manifest.id(), manifest.caseNumber());
+        } catch (IllegalArgumentException e) {
+            log.warn("Upload job {} rejected for case {}: {}", manifest.id(), manifest.caseNumber(), e.getMessage());
+            job.failed(e.getMessage());
+        } catch (Exception e) {
+            log.error("Upload job {} failed for case {}", manifest.id(), manifest.caseNumber(), e);
+            job.failed("Error processing files: " + e.getMessage());
+        } finally {
+            deleteDirectory(job.directory);
+        }
+    }
+
+    private void recover() throws IOException {
+        int requeued = 0;
+        int failed = 0;
+        try (DirectoryStream<Path> directories = Files.newDirectoryStream(jobsDirectory, Files::isDirectory)) {
+            for (Path directory : directories) {
+                Manifest manifest;
+                try {
+                    manifest = objectMapper.readValue(directory.resolve(MANIFEST).toFile(), Manifest.class);
+                } catch (IOException e) {
+                    log.warn("Removing upload job directory without a readable manifest: {}", directory);
+                    deleteDirectory(directory);
+                    continue;
+                }
+
+                Job job = new Job(manifest, directory);
+                if (manifest.state() == State.QUEUED) {
+                    try {
+                        enqueue(job);
+                        requeued++;
+                        continue;
+                    } catch (RejectedExecutionException e) {
+                        job.failed("Upload queue was full when the job was recovered after a restart");
+                    }
+                } else {
+                    job.failed("Interrupted by a restart while running; check the case before resubmitting");
+                }
+                jobs.put(manifest.id(), job);
+                deleteDirectory(directory);
+                failed++;
+            }
+        }
+        if (requeued > 0 || failed > 0) {
+            log.info("Recovered upload jobs after restart: {} requeued, {} marked as failed", requeued, failed);
+        }
+    }
+
+    private void evictFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.finishedBefore(cutoff));
+    }
+
+    private void writeManifest(Manifest manifest, Path directory) throws IOException {
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        objectMapper.writeValue(temp.toFile(), manifest);
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Path part(Path directory, int index) {
+        return directory.resolve(index + ".part");
+    }
+
+    private static void deleteDirectory(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to remove upload job directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * In-memory progress of one job; the manifest only tracks what is needed to resume it.
+     */
+    private static final class Job implements UploadProgress {
+
+        private final Manifest manifest;
+        private final Path directory;
+        private final UploadJobStatus.FileStatus[] files;
+        private final Set<String> notPromoted = new HashSet<>();
+        private State state = State.QUEUED;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private Long caseId;
+        private String error;
+
+        private Job(Manifest manifest, Path directory) {
+            this.manifest = manifest;
+            this.directory = directory;
+            this.files = new UploadJobStatus.FileStatus[manifest.files().size()];
+            for (int i = 0; i < files.length; i++) {
+                ManifestFile file = manifest.files().get(i);
+                files[i] = new UploadJobStatus.FileStatus(i, file.originalFileName(), file.size(), FileState.QUEUED, null, null);
+            }
+        }
+
+        private List<MultipartFile> spooledFiles() {
+            List<MultipartFile> spooled = new ArrayList<>(files.length);
+            for (int i = 0; i < files.length; i++) {
+                ManifestFile file = manifest.files().get(i);
+                spooled.add(new SpooledMultipartFile("additionalFiles", file.originalFileName(), file.contentType(),
+                        part(directory, i), file.size()));
+            }
+            return spooled;
+        }
+
+        @Override
+        public synchronized void fileStaged(int index, String storedFileName) {
+            files[index] = withState(files[index], FileState.STAGED, storedFileName, null);
+        }
+
+        @Override
+        public synchronized void fileSkipped(int index, String reason) {
+            files[index] = withState(files[index], FileState.SKIPPED, null, reason);
+        }
+
+        @Override
+        public synchronized void filesNotPromoted(Collection<String> storedFileNames) {
+            notPromoted.addAll(storedFileNames);
+        }
+
+        private synchronized void started() {
+            state = State.RUNNING;
+            startedAt = LocalDateTime.now();
+        }
+
+        private synchronized void completed(Long caseId) {
+            this.caseId = caseId;
+            finish(State.COMPLETED, null);
+            for (int i = 0; i < files.length; i++) {
+                if (files[i].state() != FileState.STAGED) {
+                    continue;
+                }
+                if (notPromoted.contains(files[i].storedFileName())) {
+                    files[i] = withState(files[i], FileState.STAGED, files[i].storedFileName(),
+                            "Committed, but not yet moved into storage; retried automatically");
+                } else {
+                    files[i] = withState(files[i], FileState.STORED, files[i].storedFileName(), null);
+                }
+            }
+        }
+
+        private synchronized void failed(String error) {
+            finish(State.FAILED, error);
+            for (int i = 0; i < files.length; i++) {
+                if (files[i].state() != FileState.SKIPPED) {
+                    files[i] = withState(files[i], FileState.FAILED, null, null);
+                }
+            }
+        }
+
+        private void finish(State finalState, String error) {
+            this.state = finalState;
+            this.error = error;
+            this.finishedAt = LocalDateTime.now();
+        }
+
+        private synchronized boolean finishedBefore(LocalDateTime cutoff) {
+            return finishedAt != null && finishedAt.isBefore(cutoff);
+        }
+
+        private synchronized UploadJobStatus snapshot() {
+            return new UploadJobStatus(manifest.id(), manifest.type(), manifest.caseNumber(), state,
+                    manifest.submittedAt(), startedAt, finishedAt, caseId, error, List.copyOf(Arrays.asList(files)));
+        }
+
+        private static UploadJobStatus.FileStatus withState(UploadJobStatus.FileStatus file, FileState state,
+                                                             String storedFileName, String message) {
+            return new UploadJobStatus.FileStatus(file.index(), file.originalFileName(), file.size(), state,
+                    storedFileName, message);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.nab.new_afm_back.storage;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * Exposes a blob as a Spring {@link org.springframework.core.io.Resource} so controllers can stream it.
+ */
+public class BlobResource extends AbstractResource {
+
+    private final BlobStore blobStore;
+    private final BlobStat stat;
+    private final String filename;
+
+    public BlobResource(BlobStore blobStore, BlobStat stat, String filename) {
+        this.blobStore = blobStore;
+        this.stat = stat;
+        this.filename = filename;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return stat.size();
+    }
+
+    @Override
+    public long lastModified() {
+        return stat.lastModified().toEpochMilli();
+    }
+
+    @Override
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * True when the store keeps the blob in a local file, which can then be read asynchronously.
+     */
+    @Override
+    public boolean isFile() {
+        return blobStore.localPath(stat.key()).isPresent();
+    }
+
+    @Override
+    public File getFile() throws IOException {
+        return blobStore.localPath(stat.key())
+                .orElseThrow(() -> new FileNotFoundException(getDescription() + " is not stored in a local file"))
+                .toFile();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        try {
+            return blobStore.get(stat.key());
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("Blob not found: " + stat.key());
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "blob [" + stat.key() + "]";
+    }
+}
@@ -0,0 +1,6 @@
+package org.nab.new_afm_back.storage;
+
+import java.time.Instant;
+
+public record BlobStat(String key, long size, Instant lastModified) {
+}
@@ -0,0 +1,112 @@
+package org.nab.new_afm_back.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Storage for uploaded case files, addressed by key (the stored file name).
+ * Reading or ranging a missing key throws {@link java.nio.file.NoSuchFileException}.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores exactly {@code size} bytes from {@code content} under {@code key}, replacing any previous blob.
+     */
+    BlobStat put(String key, InputStream content, long size) throws IOException;
+
+    /**
+     * Like {@link #put}, but atomically refuses to overwrite: if a blob already exists under
+     * {@code key}, nothing is stored.
+     *
+     * @throws FileAlreadyExistsException if the key is taken
+     */
+    BlobStat create(String key, InputStream content, long size) throws IOException;
+
+    /**
+     * Stores the content of a local file under a new {@code key} and removes the file. Backends on
+     * the same filesystem override this with a rename.
+     *
+     * @throws FileAlreadyExistsException if the key is taken; the source file is left in place
+     */
+    default BlobStat moveIn(String key, Path source) throws IOException {
+        BlobStat stat;
+        try (InputStream content = Files.newInputStream(source)) {
+            stat = create(key, content, Files.size(source));
+        }
+        Files.delete(source);
+        return stat;
+    }
+
+    InputStream get(String key) throws IOException;
+
+    /**
+     * Reads up to {@code length} bytes starting at {@code offset}; the range is clipped to the blob size.
+     */
+    InputStream get(String key, long offset, long length) throws IOException;
+
+    /**
+     * @return true if the blob existed
+     */
+    boolean delete(String key) throws IOException;
+
+    Optional<BlobStat> stat(String key) throws IOException;
+
+    /**
+     * Calls {@code action} once for every stored key, skipping internal keys (see {@link #isInternal}).
+     * Backends that can list in parallel use up to {@code parallelism} threads, so the action must be
+     * thread-safe; the order of keys is unspecified.
+     */
+    void forEachKey(int parallelism, Consumer<String> action) throws IOException;
+
+    /**
+     * Moves a blob to another key, replacing any blob already there.
+     */
+    default void move(String sourceKey, String targetKey) throws IOException {
+        long size = stat(sourceKey).orElseThrow(() -> new NoSuchFileException(sourceKey)).size();
+        try (InputStream content = get(sourceKey)) {
+            put(targetKey, content, size);
+        }
+        delete(sourceKey);
+    }
+
+    default boolean exists(String key) throws IOException {
+        return stat(key).isPresent();
+    }
+
+    /**
+     * Local file backing the blob, for callers that can work on a file directly.
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    static void checkKey(String key) {
+        if (key == null || key.isBlank() || key.startsWith("/") || key.contains("\\")) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        for (String segment : key.split("/")) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                throw new IllegalArgumentException("Invalid blob key: " + key);
+            }
+        }
+    }
+
+    /**
+     * Keys with a segment starting with a dot (staging, quarantine, temp files) are not case files.
+     */
+    static boolean isInternal(String key) {
+        return key.startsWith(".") || key.contains("/.");
+    }
+
+    static void checkRange(long offset, long length) {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid range: offset=" + offset + ", length=" + length);
+        }
+    }
+}
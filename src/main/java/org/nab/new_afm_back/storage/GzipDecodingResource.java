@@ -0,0 +1,51 @@
+package org.nab.new_afm_back.storage;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Serves a gzip-compressed blob decompressed on the fly, for clients that do not accept gzip.
+ */
+public class GzipDecodingResource extends AbstractResource {
+
+    private final BlobResource compressed;
+    private final long originalSize;
+
+    public GzipDecodingResource(BlobResource compressed, long originalSize) {
+        this.compressed = compressed;
+        this.originalSize = originalSize;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return originalSize;
+    }
+
+    @Override
+    public long lastModified() {
+        return compressed.lastModified();
+    }
+
+    @Override
+    public String getFilename() {
+        return compressed.getFilename();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new GZIPInputStream(compressed.getInputStream(), 64 * 1024);
+    }
+
+    @Override
+    public String getDescription() {
+        return "decompressed " + compressed.getDescription();
+    }
+}
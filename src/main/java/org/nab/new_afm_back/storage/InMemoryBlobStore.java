@@ -0,0 +1,96 @@
+package org.nab.new_afm_back.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Heap-backed store for tests and throwaway environments.
+ */
+public class InMemoryBlobStore implements BlobStore {
+
+    private record Blob(byte[] data, Instant lastModified) {
+    }
+
+    private final ConcurrentMap<String, Blob> blobs = new ConcurrentHashMap<>();
+
+    @Override
+    public BlobStat put(String key, InputStream content, long size) throws IOException {
+        BlobStore.checkKey(key);
+        byte[] data = content.readAllBytes();
+        if (data.length != size) {
+            throw new IOException("Size mismatch for " + key + ": expected " + size + " bytes, got " + data.length);
+        }
+
+        Blob blob = new Blob(data, Instant.now());
+        blobs.put(key, blob);
+        return new BlobStat(key, data.length, blob.lastModified());
+    }
+
+    @Override
+    public BlobStat create(String key, InputStream content, long size) throws IOException {
+        BlobStore.checkKey(key);
+        byte[] data = content.readAllBytes();
+        if (data.length != size) {
+            throw new IOException("Size mismatch for " + key + ": expected " + size + " bytes, got " + data.length);
+        }
+
+        Blob blob = new Blob(data, Instant.now());
+        if (blobs.putIfAbsent(key, blob) != null) {
+            throw new FileAlreadyExistsException(key);
+        }
+        return new BlobStat(key, data.length, blob.lastModified());
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return new ByteArrayInputStream(find(key).data());
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        BlobStore.checkRange(offset, length);
+        byte[] data = find(key).data();
+        int start = (int) Math.min(offset, data.length);
+        int count = (int) Math.min(length, data.length - start);
+        return new ByteArrayInputStream(data, start, count);
+    }
+
+    @Override
+    public boolean delete(String key) {
+        BlobStore.checkKey(key);
+        return blobs.remove(key) != null;
+    }
+
+    @Override
+    public Optional<BlobStat> stat(String key) {
+        BlobStore.checkKey(key);
+        Blob blob = blobs.get(key);
+        return blob == null ? Optional.empty() : Optional.of(new BlobStat(key, blob.data().length, blob.lastModified()));
+    }
+
+    @Override
+    public void forEachKey(int parallelism, Consumer<String> action) {
+        for (String key : blobs.keySet()) {
+            if (!BlobStore.isInternal(key)) {
+                action.accept(key);
+            }
+        }
+    }
+
+    private Blob find(String key) throws NoSuchFileException {
+        BlobStore.checkKey(key);
+        Blob blob = blobs.get(key);
+        if (blob == null) {
+            throw new NoSuchFileException(key);
+        }
+        return blob;
+    }
+}
@@ -0,0 +1,278 @@
+package org.nab.new_afm_back.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Blobs as plain files under a root directory; keys map to relative paths.
+ */
+@Slf4j
+public class LocalFileSystemBlobStore implements BlobStore {
+
+    private final Path root;
+
+    public LocalFileSystemBlobStore(Path root) throws IOException {
+        this.root = Files.createDirectories(root).toAbsolutePath().normalize();
+        log.info("Local blob store rooted at {}", this.root);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public BlobStat put(String key, InputStream content, long size) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+
+        // Write next to the target and rename, so readers never see a partially written file.
+        Path temp = tempFor(target);
+        try {
+            write(key, content, size, temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        return stat(key).orElseThrow(() -> new NoSuchFileException(key));
+    }
+
+    @Override
+    public BlobStat create(String key, InputStream content, long size) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+
+        Path temp = tempFor(target);
+        try {
+            write(key, content, size, temp);
+            publish(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        return stat(key).orElseThrow(() -> new NoSuchFileException(key));
+    }
+
+    @Override
+    public BlobStat moveIn(String key, Path source) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        try {
+            publish(source, target);
+        } catch (AtomicMoveNotSupportedException e) {
+            log.debug("{} is on another filesystem than {}, copying instead of renaming", source, root);
+            try (InputStream content = Files.newInputStream(source)) {
+                create(key, content, Files.size(source));
+            }
+        }
+        Files.deleteIfExists(source);
+        return stat(key).orElseThrow(() -> new NoSuchFileException(key));
+    }
+
+    /**
+     * Makes a complete file visible under {@code target} without ever replacing an existing one. A hard
+     * link fails atomically if the target exists; where links are unsupported, the name is reserved
+     * with {@code CREATE_NEW} first and then atomically replaced by the file. The source may be gone
+     * afterwards.
+     */
+    private static void publish(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+            return;
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // No hard links on this filesystem, or the source lives on another one.
+        }
+        Files.createFile(target);
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    private static Path tempFor(Path target) {
+        return target.resolveSibling("." + target.getFileName() + ".tmp-" + UUID.randomUUID());
+    }
+
+    private static void write(String key, InputStream content, long size, Path temp) throws IOException {
+        long written;
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            written = content.transferTo(out);
+        }
+        if (written != size) {
+            throw new IOException("Size mismatch for " + key + ": expected " + size + " bytes, got " + written);
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        BlobStore.checkRange(offset, length);
+        SeekableByteChannel channel = Files.newByteChannel(resolve(key));
+        try {
+            channel.position(Math.min(offset, channel.size()));
+            return new RangeInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public Optional<BlobStat> stat(String key) throws IOException {
+        Path path = resolve(key);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return Optional.empty();
+            }
+            return Optional.of(new BlobStat(key, attributes.size(), attributes.lastModifiedTime().toInstant()));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        Path target = resolve(targetKey);
+        Files.createDirectories(target.getParent());
+        Files.move(resolve(sourceKey), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Walks the tree on a dedicated fork/join pool. Directory entries are read sequentially but
+     * examined in chunks on the pool, so even a single flat directory with millions of files is
+     * listed in parallel.
+     */
+    @Override
+    public void forEachKey(int parallelism, Consumer<String> action) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            pool.invoke(new ListDirectoryTask(root, action));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private final class ListDirectoryTask extends RecursiveAction {
+
+        private static final int CHUNK_SIZE = 1024;
+
+        private final Path directory;
+        private final Consumer<String> action;
+
+        private ListDirectoryTask(Path directory, Consumer<String> action) {
+            this.directory = directory;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            List<ForkJoinTask<?>> chunks = new ArrayList<>();
+            List<Path> chunk = new ArrayList<>(CHUNK_SIZE);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (entry.getFileName().toString().startsWith(".")) {
+                        continue;
+                    }
+                    chunk.add(entry);
+                    if (chunk.size() == CHUNK_SIZE) {
+                        chunks.add(new ListEntriesTask(chunk, action).fork());
+                        chunk = new ArrayList<>(CHUNK_SIZE);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            new ListEntriesTask(chunk, action).invoke();
+            for (ForkJoinTask<?> task : chunks) {
+                task.join();
+            }
+        }
+    }
+
+    private final class ListEntriesTask extends RecursiveAction {
+
+        private final List<Path> entries;
+        private final Consumer<String> action;
+
+        private ListEntriesTask(List<Path> entries, Consumer<String> action) {
+            this.entries = entries;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            List<ListDirectoryTask> subdirectories = new ArrayList<>();
+            for (Path entry : entries) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (NoSuchFileException e) {
+                    continue;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (attributes.isDirectory()) {
+                    subdirectories.add(new ListDirectoryTask(entry, action));
+                } else if (attributes.isRegularFile()) {
+                    action.accept(root.relativize(entry).toString().replace(File.separatorChar, '/'));
+                }
+            }
+            invokeAll(subdirectories);
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        BlobStore.checkKey(key);
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,149 @@
+package org.nab.new_afm_back.storage;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Passes a resource through unchanged and reports, once each opened stream is closed, how many bytes
+ * were skipped and read and when the first bytes arrived. Used to measure downloads including the
+ * transfer, which happens after the controller has returned; range requests skip to their start.
+ */
+public class MeteredResource extends AbstractResource {
+
+    /**
+     * @param firstByteAtNanos {@link System#nanoTime()} of the first read that returned data, or of the close if none did
+     */
+    public record Transfer(long bytesRead, long bytesSkipped, long firstByteAtNanos, long closedAtNanos) {
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        void streamClosed(Transfer transfer);
+    }
+
+    private final Resource delegate;
+    private final Listener listener;
+
+    public MeteredResource(Resource delegate, Listener listener) {
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    @Override
+    public boolean exists() {
+        return delegate.exists();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return delegate.lastModified();
+    }
+
+    @Override
+    public String getFilename() {
+        return delegate.getFilename();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new FilterInputStream(delegate.getInputStream()) {
+            private long bytesRead;
+            private long bytesSkipped;
+            private long firstByteAt;
+            private boolean closed;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    counted(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    counted(n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                bytesSkipped += skipped;
+                return skipped;
+            }
+
+            private void counted(int n) {
+                if (bytesRead == 0) {
+                    firstByteAt = System.nanoTime();
+                }
+                bytesRead += n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (!closed) {
+                        closed = true;
+                        long closedAt = System.nanoTime();
+                        listener.streamClosed(new Transfer(bytesRead, bytesSkipped,
+                                bytesRead > 0 ? firstByteAt : closedAt, closedAt));
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads up to {@code length} bytes from {@code position} as buffers and reports the transfer once the
+     * stream completes, fails or is cancelled. A file-backed delegate is read with an
+     * {@link java.nio.channels.AsynchronousFileChannel}; any other delegate blocks, so it is read on a
+     * worker thread rather than on the caller's.
+     */
+    public Flux<DataBuffer> read(long position, long length, DataBufferFactory bufferFactory, int bufferSize) {
+        return Flux.defer(() -> {
+            long[] counters = new long[2];
+            Flux<DataBuffer> content = DataBufferUtils.read(delegate, position, bufferFactory, bufferSize);
+            if (!delegate.isFile()) {
+                content = content.subscribeOn(Schedulers.boundedElastic());
+            }
+            return DataBufferUtils.takeUntilByteCount(content, length)
+                    .doOnNext(buffer -> {
+                        if (counters[0] == 0) {
+                            counters[1] = System.nanoTime();
+                        }
+                        counters[0] += buffer.readableByteCount();
+                    })
+                    .doFinally(signal -> {
+                        long closedAt = System.nanoTime();
+                        listener.streamClosed(new Transfer(counters[0], position,
+                                counters[0] > 0 ? counters[1] : closedAt, closedAt));
+                    });
+        });
+    }
+
+    @Override
+    public String getDescription() {
+        return delegate.getDescription();
+    }
+}
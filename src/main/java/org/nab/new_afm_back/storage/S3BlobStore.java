@@ -0,0 +1,339 @@
+package org.nab.new_afm_back.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Client for S3-compatible object stores (AWS S3, MinIO, Ceph RGW) using Signature V4 over the JDK
+ * HTTP client. Payloads are sent unsigned with an explicit Content-Length, so uploads stream without
+ * buffering.
+ */
+@Slf4j
+public class S3BlobStore implements BlobStore {
+
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter SCOPE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final URI endpoint;
+    private final String bucket;
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+    private final boolean pathStyle;
+    private final HttpClient httpClient;
+
+    public S3BlobStore(URI endpoint, String bucket, String region, String accessKey, String secretKey, boolean pathStyle) {
+        this.endpoint = endpoint;
+        this.bucket = bucket;
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.pathStyle = pathStyle;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        log.info("S3 blob store: endpoint={}, bucket={}, region={}", endpoint, bucket, region);
+    }
+
+    @Override
+    public BlobStat put(String key, InputStream content, long size) throws IOException {
+        return upload(key, content, size, false);
+    }
+
+    /**
+     * Conditional write with {@code If-None-Match: *}; the object store answers 412 if the key exists.
+     */
+    @Override
+    public BlobStat create(String key, InputStream content, long size) throws IOException {
+        return upload(key, content, size, true);
+    }
+
+    private BlobStat upload(String key, InputStream content, long size, boolean ifAbsent) throws IOException {
+        HttpRequest.BodyPublisher body;
+        if (size == 0) {
+            if (content.read() != -1) {
+                throw new IOException("Size mismatch for " + key + ": expected an empty blob");
+            }
+            body = HttpRequest.BodyPublishers.noBody();
+        } else {
+            body = HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofInputStream(() -> content), size);
+        }
+        HttpRequest.Builder request = request("PUT", key, null).PUT(body);
+        if (ifAbsent) {
+            request.header("If-None-Match", "*");
+        }
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+        if (ifAbsent && (response.statusCode() == 412 || response.statusCode() == 409)) {
+            throw new FileAlreadyExistsException(key);
+        }
+        if (response.statusCode() != 200) {
+            throw failure("PUT", key, response.statusCode(), response.body());
+        }
+        return new BlobStat(key, size, Instant.now());
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return open(key, null);
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        BlobStore.checkRange(offset, length);
+        long size = stat(key).orElseThrow(() -> new NoSuchFileException(key)).size();
+        if (length == 0 || offset >= size) {
+            return InputStream.nullInputStream();
+        }
+        long last = Math.min(offset + length, size) - 1;
+        return open(key, "bytes=" + offset + "-" + last);
+    }
+
+    private InputStream open(String key, String range) throws IOException {
+        HttpResponse<InputStream> response = send(request("GET", key, range).GET(), HttpResponse.BodyHandlers.ofInputStream());
+        int status = response.statusCode();
+        if (status == 200 || status == 206) {
+            return response.body();
+        }
+
+        String error;
+        try (InputStream body = response.body()) {
+            error = new String(body.readNBytes(1024), StandardCharsets.UTF_8);
+        }
+        if (status == 404) {
+            throw new NoSuchFileException(key);
+        }
+        throw failure("GET", key, status, error);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        // S3 answers 204 whether or not the object existed.
+        boolean existed = exists(key);
+        HttpResponse<String> response = send(request("DELETE", key, null).DELETE(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 204 && response.statusCode() != 200) {
+            throw failure("DELETE", key, response.statusCode(), response.body());
+        }
+        return existed;
+    }
+
+    @Override
+    public Optional<BlobStat> stat(String key) throws IOException {
+        HttpResponse<Void> response = send(
+                request("HEAD", key, null).method("HEAD", HttpRequest.BodyPublishers.noBody()),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        if (response.statusCode() != 200) {
+            throw failure("HEAD", key, response.statusCode(), "");
+        }
+
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(0);
+        Instant lastModified = response.headers().firstValue("Last-Modified")
+                .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant())
+                .orElse(Instant.EPOCH);
+        return Optional.of(new BlobStat(key, size, lastModified));
+    }
+
+    /**
+     * Pages through ListObjectsV2; listing is sequential since each page needs the previous token.
+     */
+    @Override
+    public void forEachKey(int parallelism, Consumer<String> action) throws IOException {
+        String continuationToken = null;
+        do {
+            Map<String, String> query = new TreeMap<>();
+            query.put("list-type", "2");
+            if (continuationToken != null) {
+                query.put("continuation-token", continuationToken);
+            }
+            HttpResponse<InputStream> response = send(request("GET", null, null, query).GET(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+
+            Document page;
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw failure("LIST", bucket, response.statusCode(),
+                            new String(body.readNBytes(1024), StandardCharsets.UTF_8));
+                }
+                page = parseXml(body);
+            }
+
+            NodeList keys = page.getElementsByTagName("Key");
+            for (int i = 0; i < keys.getLength(); i++) {
+                String key = keys.item(i).getTextContent();
+                if (!BlobStore.isInternal(key)) {
+                    action.accept(key);
+                }
+            }
+            continuationToken = "true".equals(text(page, "IsTruncated")) ? text(page, "NextContinuationToken") : null;
+        } while (continuationToken != null);
+    }
+
+    private static Document parseXml(InputStream body) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(body);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Malformed object store listing", e);
+        }
+    }
+
+    private static String text(Document document, String tag) {
+        NodeList nodes = document.getElementsByTagName(tag);
+        return nodes.getLength() == 0 ? null : nodes.item(0).getTextContent();
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest.Builder builder, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return httpClient.send(builder.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling object store", e);
+        }
+    }
+
+    private HttpRequest.Builder request(String method, String key, String range) {
+        BlobStore.checkKey(key);
+        return request(method, key, range, Map.of());
+    }
+
+    /**
+     * @param key   object key, or null for a bucket-level request
+     * @param query query parameters, sorted by name as SigV4 requires
+     */
+    private HttpRequest.Builder request(String method, String key, String range, Map<String, String> query) {
+
+        String host = pathStyle ? endpoint.getHost() : bucket + "." + endpoint.getHost();
+        if (endpoint.getPort() != -1) {
+            host = host + ":" + endpoint.getPort();
+        }
+        String path = (pathStyle ? "/" + encode(bucket) : "") + "/" + (key == null ? "" : encodePath(key));
+        String basePath = endpoint.getPath() == null ? "" : endpoint.getPath().replaceAll("/+$", "");
+        String canonicalUri = basePath + path;
+        StringBuilder canonicalQuery = new StringBuilder();
+        for (Map.Entry<String, String> parameter : query.entrySet()) {
+            if (canonicalQuery.length() > 0) {
+                canonicalQuery.append('&');
+            }
+            canonicalQuery.append(encode(parameter.getKey())).append('=').append(encode(parameter.getValue()));
+        }
+
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        String amzDate = now.format(AMZ_DATE);
+        String scope = now.format(SCOPE_DATE) + "/" + region + "/s3/aws4_request";
+
+        String signedHeaders = "host;x-amz-content-sha256;x-amz-date";
+        String canonicalRequest = method + "\n"
+                + canonicalUri + "\n"
+                + canonicalQuery + "\n"
+                + "host:" + host + "\n"
+                + "x-amz-content-sha256:" + UNSIGNED_PAYLOAD + "\n"
+                + "x-amz-date:" + amzDate + "\n"
+                + "\n"
+                + signedHeaders + "\n"
+                + UNSIGNED_PAYLOAD;
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n" + hex(sha256(canonicalRequest));
+        String signature = hex(hmac(signingKey(now.format(SCOPE_DATE)), stringToSign));
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(endpoint.getScheme() + "://" + host + canonicalUri
+                        + (canonicalQuery.length() > 0 ? "?" + canonicalQuery : "")))
+                .timeout(Duration.ofMinutes(10))
+                .header("x-amz-content-sha256", UNSIGNED_PAYLOAD)
+                .header("x-amz-date", amzDate)
+                .header("Authorization", "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                        + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature);
+        if (range != null) {
+            builder.header("Range", range);
+        }
+        return builder;
+    }
+
+    private byte[] signingKey(String date) {
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        key = hmac(key, region);
+        key = hmac(key, "s3");
+        return hmac(key, "aws4_request");
+    }
+
+    private static IOException failure(String method, String key, int status, String body) {
+        return new IOException("Object store " + method + " " + key + " failed with HTTP " + status + ": " + body);
+    }
+
+    private static String encodePath(String key) {
+        StringBuilder encoded = new StringBuilder();
+        for (String segment : key.split("/")) {
+            if (encoded.length() > 0) {
+                encoded.append('/');
+            }
+            encoded.append(encode(segment));
+        }
+        return encoded.toString();
+    }
+
+    private static String encode(String value) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+}
@@ -0,0 +1,199 @@
+package org.nab.new_afm_back.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Local directory where uploaded bytes wait until the database rows describing them are committed.
+ * A {@link Batch} collects the staged files of one upload and is either promoted into the
+ * {@link BlobStore} or discarded as a whole.
+ * <p>
+ * Staged files carry their blob key in the file name, so a file left behind can be matched against the
+ * committed rows: after a crash between commit and promotion, or when promotion failed. Files whose
+ * promotion failed are moved to {@code failed/} and retried by {@link #recover}.
+ */
+@Slf4j
+public class StagingArea {
+
+    private static final String SUFFIX = ".part";
+    private static final String UPLOAD_PREFIX = "upload-";
+    private static final char KEY_END = '~';
+
+    private final Path directory;
+    private final Path failedDirectory;
+    private final BlobStore blobStore;
+    private final Duration staleAfter;
+
+    public StagingArea(Path directory, BlobStore blobStore, Duration staleAfter) throws IOException {
+        this.directory = Files.createDirectories(directory).toAbsolutePath().normalize();
+        this.failedDirectory = Files.createDirectories(this.directory.resolve("failed"));
+        this.blobStore = blobStore;
+        this.staleAfter = staleAfter;
+        log.info("Upload staging area at {}", this.directory);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Creates an empty file in the staging directory for spooling an upload before it is staged, so
+     * staging it later is a rename. Files left behind are purged like stale uploads.
+     */
+    public Path newSpoolFile() throws IOException {
+        return Files.createTempFile(directory, "spool-", SUFFIX);
+    }
+
+    public Batch begin() {
+        return new Batch();
+    }
+
+    /**
+     * Promotes staged files whose key has a committed row ({@code committed}): those whose promotion
+     * failed, and those left behind by a crash between commit and promotion. Files without a committed
+     * row are removed once older than the stale age; they belong to uploads that never committed.
+     * Called at startup and by each storage reconciliation.
+     *
+     * @return number of committed files that still could not be promoted
+     */
+    public synchronized int recover(Predicate<String> committed) throws IOException {
+        FileTime cutoff = FileTime.from(Instant.now().minus(staleAfter));
+        int promoted = 0;
+        int stillFailed = 0;
+        int purged = 0;
+        for (Path dir : List.of(failedDirectory, directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+                for (Path file : files) {
+                    boolean failed = dir.equals(failedDirectory);
+                    if (!failed && Files.getLastModifiedTime(file).compareTo(cutoff) >= 0) {
+                        continue;
+                    }
+                    String key = keyOf(file);
+                    if (key != null && committed.test(key)) {
+                        if (promote(key, file)) {
+                            promoted++;
+                        } else {
+                            stillFailed++;
+                        }
+                    } else if (Files.getLastModifiedTime(file).compareTo(cutoff) < 0 && Files.deleteIfExists(file)) {
+                        purged++;
+                    }
+                }
+            }
+        }
+
+        if (promoted > 0 || purged > 0) {
+            log.info("Recovered {} committed uploads into storage and purged {} abandoned staged files from {}",
+                    promoted, purged, directory);
+        }
+        if (stillFailed > 0) {
+            log.error("{} committed uploads could not be moved into storage and wait in {}", stillFailed, failedDirectory);
+        }
+        return stillFailed;
+    }
+
+    /**
+     * Moves a staged file to its key, or into {@code failed/} if that is not possible.
+     */
+    private boolean promote(String key, Path path) {
+        try {
+            blobStore.moveIn(key, path);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to promote staged upload {} to {}: {}", path, key, e.getMessage(), e);
+            if (!path.getParent().equals(failedDirectory)) {
+                try {
+                    Files.move(path, failedDirectory.resolve(path.getFileName()));
+                } catch (IOException moveFailure) {
+                    log.error("Failed to set aside staged upload {}: {}", path, moveFailure.getMessage());
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The blob key encoded in a staged file's name, or null for spool files, which have none.
+     */
+    static String keyOf(Path file) {
+        String name = file.getFileName().toString();
+        int end = name.lastIndexOf(KEY_END);
+        if (!name.startsWith(UPLOAD_PREFIX) || end < UPLOAD_PREFIX.length()) {
+            return null;
+        }
+        return URLDecoder.decode(name.substring(UPLOAD_PREFIX.length(), end), StandardCharsets.UTF_8);
+    }
+
+    public final class Batch {
+
+        private record Entry(String key, Path path) {
+        }
+
+        private final List<Entry> entries = new ArrayList<>();
+        private final Set<String> keys = new HashSet<>();
+
+        private Batch() {
+        }
+
+        /**
+         * Creates an empty staging file for {@code key}; the caller writes the blob content into it.
+         */
+        public Path newFile(String key) throws IOException {
+            BlobStore.checkKey(key);
+            if (!keys.add(key)) {
+                throw new IllegalArgumentException("Key staged twice in one upload: " + key);
+            }
+            String prefix = UPLOAD_PREFIX + URLEncoder.encode(key, StandardCharsets.UTF_8) + KEY_END;
+            Path path = Files.createTempFile(directory, prefix, SUFFIX);
+            entries.add(new Entry(key, path));
+            return path;
+        }
+
+        public boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        /**
+         * Moves every staged file to its key. A file that cannot be promoted is moved to {@code failed/},
+         * where {@link #recover} retries it.
+         *
+         * @return keys of the files that could not be promoted
+         */
+        public List<String> promote() {
+            List<String> failed = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (!StagingArea.this.promote(entry.key(), entry.path())) {
+                    failed.add(entry.key());
+                }
+            }
+            entries.clear();
+            return failed;
+        }
+
+        public void discard() {
+            for (Entry entry : entries) {
+                try {
+                    Files.deleteIfExists(entry.path());
+                } catch (IOException e) {
+                    log.warn("Failed to remove staged upload {}: {}", entry.path(), e.getMessage());
+                }
+            }
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package org.nab.new_afm_back.storage;
+
+/**
+ * Result of storing an uploaded file; {@code contentEncoding} is null when the bytes are stored as uploaded.
+ */
+public record StoredFile(String key, long storedSize, String contentEncoding) {
+}
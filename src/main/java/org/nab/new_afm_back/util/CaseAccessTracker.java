@@ -2,9 +2,14 @@ package org.nab.new_afm_back.util;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.jfr.TrackerSaveEvent;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -15,6 +20,7 @@ import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,11 +36,46 @@ public class CaseAccessTracker {
     private String filePath;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
+    // Guards the file; a lock instead of synchronized so virtual threads doing file I/O do not pin their carrier.
+    private final ReentrantLock fileLock = new ReentrantLock();
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
     @Autowired
     private ResourceLoader resourceLoader;
 
+    private final Timer addTimer;
+    private final Timer removeTimer;
+    private final Timer listTimer;
+    private final Timer clearTimer;
+    private final Timer containsTimer;
+    private final Timer saveTimer;
+    private final Counter saveFailures;
+
+    public CaseAccessTracker(MeterRegistry meterRegistry) {
+        this.addTimer = operationTimer(meterRegistry, "add");
+        this.removeTimer = operationTimer(meterRegistry, "remove");
+        this.listTimer = operationTimer(meterRegistry, "list");
+        this.clearTimer = operationTimer(meterRegistry, "clear");
+        this.containsTimer = operationTimer(meterRegistry, "contains");
+        this.saveTimer = Timer.builder("afm.tracker.save")
+                .description("Time to write the accessed cases file")
+                .register(meterRegistry);
+        this.saveFailures = Counter.builder("afm.tracker.save.failures")
+                .description("Writes of the accessed cases file that failed")
+                .register(meterRegistry);
+        Gauge.builder("afm.tracker.size", GLOBAL_ACCESSED_CASES, Deque::size)
+                .description("Case numbers in the accessed cases list")
+                .register(meterRegistry);
+    }
+
+    private static Timer operationTimer(MeterRegistry meterRegistry, String operation) {
+        // Writes include the synchronous save of the whole list.
+        return Timer.builder("afm.tracker.operation")
+                .description("Latency of accessed cases list operations")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
     @PostConstruct
     public void init() {
         try {
@@ -63,27 +104,33 @@ public class CaseAccessTracker {
     }
 
     public void addCaseNumber(String caseNumber) {
-        log.info("Adding case number {} (Session ID: {})", caseNumber, GLOBAL_SESSION_ID);
+        addTimer.record(() -> {
+            log.info("Adding case number {} (Session ID: {})", caseNumber, GLOBAL_SESSION_ID);
 
-        GLOBAL_ACCESSED_CASES.remove(caseNumber);
+            GLOBAL_ACCESSED_CASES.remove(caseNumber);
 
-        GLOBAL_ACCESSED_CASES.addFirst(caseNumber);
+            GLOBAL_ACCESSED_CASES.addFirst(caseNumber);
 
-        log.debug("Global session now has {} accessed cases", GLOBAL_ACCESSED_CASES.size());
-        saveToFile();
+            log.debug("Global session now has {} accessed cases", GLOBAL_ACCESSED_CASES.size());
+            saveToFile();
+        });
     }
 
     public List<String> getAccessedCaseNumbers() {
-        int size = GLOBAL_ACCESSED_CASES.size();
-        log.info("Retrieved {} case numbers (Session ID: {})", size, GLOBAL_SESSION_ID);
+        return listTimer.record(() -> {
+            int size = GLOBAL_ACCESSED_CASES.size();
+            log.info("Retrieved {} case numbers (Session ID: {})", size, GLOBAL_SESSION_ID);
 
-        return new ArrayList<>(GLOBAL_ACCESSED_CASES);
+            return new ArrayList<>(GLOBAL_ACCESSED_CASES);
+        });
     }
 
     public void clearAccessedCases() {
-        log.info("Clearing all accessed cases (Session ID: {})", GLOBAL_SESSION_ID);
-        GLOBAL_ACCESSED_CASES.clear();
-        saveToFile();
+        clearTimer.record(() -> {
+            log.info("Clearing all accessed cases (Session ID: {})", GLOBAL_SESSION_ID);
+            GLOBAL_ACCESSED_CASES.clear();
+            saveToFile();
+        });
     }
 
     public int getAccessedCasesCount() {
@@ -91,16 +138,18 @@ public class CaseAccessTracker {
     }
 
     public boolean containsCaseNumber(String caseNumber) {
-        return GLOBAL_ACCESSED_CASES.contains(caseNumber);
+        return containsTimer.record(() -> GLOBAL_ACCESSED_CASES.contains(caseNumber));
     }
 
     public boolean removeCaseNumber(String caseNumber) {
-        boolean removed = GLOBAL_ACCESSED_CASES.remove(caseNumber);
-        if (removed) {
-            log.info("Removed case number {} from global session", caseNumber);
-            saveToFile();
-        }
-        return removed;
+        return removeTimer.record(() -> {
+            boolean removed = GLOBAL_ACCESSED_CASES.remove(caseNumber);
+            if (removed) {
+                log.info("Removed case number {} from global session", caseNumber);
+                saveToFile();
+            }
+            return removed;
+        });
     }
 
     public String getLastAccessedCaseNumber() {
@@ -113,21 +162,38 @@ public class CaseAccessTracker {
                 .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
     }
 
-    private synchronized void saveToFile() {
+    private void saveToFile() {
+        fileLock.lock();
+        Timer.Sample sample = Timer.start();
+        TrackerSaveEvent event = new TrackerSaveEvent();
+        event.begin();
+        File file = new File(filePath);
         try {
-            File file = new File(filePath);
             file.getParentFile().mkdirs();
 
             List<String> dataToSave = new ArrayList<>(GLOBAL_ACCESSED_CASES);
+            event.cases = dataToSave.size();
             objectMapper.writeValue(file, dataToSave);
+            event.succeeded = true;
 
             log.debug("Saved {} case numbers to file: {}", dataToSave.size(), filePath);
         } catch (IOException e) {
+            saveFailures.increment();
             log.error("Error saving accessed cases to file {}: {}", filePath, e.getMessage());
+        } finally {
+            sample.stop(saveTimer);
+            event.end();
+            if (event.shouldCommit()) {
+                event.file = filePath;
+                event.bytes = file.length();
+                event.commit();
+            }
+            fileLock.unlock();
         }
     }
 
-    private synchronized void loadFromFile() {
+    private void loadFromFile() {
+        fileLock.lock();
         try {
             File file = new File(filePath);
             if (file.exists() && file.length() > 0) {
@@ -141,6 +207,8 @@ public class CaseAccessTracker {
         } catch (IOException e) {
             log.error("Error loading accessed cases from file {}: {}", filePath, e.getMessage());
             log.info("Starting with empty case list");
+        } finally {
+            fileLock.unlock();
         }
     }
 
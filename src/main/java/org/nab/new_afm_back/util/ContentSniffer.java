@@ -0,0 +1,123 @@
+package org.nab.new_afm_back.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Checks the first bytes of an upload against the signature its extension promises. Headers are read
+ * into one small buffer per thread, so sniffing allocates nothing per file.
+ */
+public final class ContentSniffer {
+
+    public static final int HEADER_SIZE = 1024;
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[HEADER_SIZE]);
+
+    private static final byte[] PDF = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ZIP = {'P', 'K', 3, 4};
+    private static final byte[] OLE2 = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1};
+
+    // Text with more control characters than this is treated as binary.
+    private static final double MAX_CONTROL_RATIO = 0.05;
+
+    private ContentSniffer() {
+    }
+
+    /**
+     * The calling thread's header buffer, {@link #HEADER_SIZE} bytes long. Its content is only valid
+     * until the same thread sniffs again.
+     */
+    public static byte[] buffer() {
+        return BUFFER.get();
+    }
+
+    public static boolean matches(String extension, InputStream content) throws IOException {
+        byte[] header = buffer();
+        int length = content.readNBytes(header, 0, header.length);
+        return matches(extension, header, length);
+    }
+
+    public static boolean matches(String extension, byte[] header, int length) {
+        if (extension == null) {
+            return false;
+        }
+        return switch (extension.toLowerCase()) {
+            // The PDF header may be preceded by junk within the first 1024 bytes.
+            case "pdf" -> indexOf(header, length, PDF) >= 0;
+            case "docx", "xlsx" -> startsWith(header, length, ZIP);
+            case "doc" -> startsWith(header, length, OLE2);
+            case "txt" -> isText(header, length);
+            default -> false;
+        };
+    }
+
+    private static boolean isText(byte[] header, int length) {
+        // Windows tools write UTF-16 with a byte order mark; its ASCII characters carry a NUL byte each.
+        if (length >= 2 && (header[0] & 0xff) == 0xff && (header[1] & 0xff) == 0xfe) {
+            return isUtf16Text(header, length, true);
+        }
+        if (length >= 2 && (header[0] & 0xff) == 0xfe && (header[1] & 0xff) == 0xff) {
+            return isUtf16Text(header, length, false);
+        }
+
+        int control = 0;
+        for (int i = 0; i < length; i++) {
+            int b = header[i] & 0xff;
+            if (b == 0) {
+                return false;
+            }
+            if (isControl(b)) {
+                control++;
+            }
+        }
+        return control <= length * MAX_CONTROL_RATIO;
+    }
+
+    private static boolean isUtf16Text(byte[] header, int length, boolean littleEndian) {
+        int units = 0;
+        int control = 0;
+        for (int i = 2; i + 1 < length; i += 2) {
+            int first = header[i] & 0xff;
+            int second = header[i + 1] & 0xff;
+            int unit = littleEndian ? first | second << 8 : first << 8 | second;
+            if (unit == 0) {
+                return false;
+            }
+            if (isControl(unit)) {
+                control++;
+            }
+            units++;
+        }
+        return control <= units * MAX_CONTROL_RATIO;
+    }
+
+    private static boolean isControl(int c) {
+        return c < 0x20 && c != '\t' && c != '\n' && c != '\r' && c != '\f' && c != 0x1b;
+    }
+
+    private static boolean startsWith(byte[] header, int length, byte[] signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (header[i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] header, int length, byte[] signature) {
+        outer:
+        for (int i = 0; i <= length - signature.length; i++) {
+            for (int j = 0; j < signature.length; j++) {
+                if (header[i + j] != signature[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
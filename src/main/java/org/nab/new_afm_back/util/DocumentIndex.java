@@ -0,0 +1,125 @@
+package org.nab.new_afm_back.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-only index over a documents.json file of the form {"number": {document}, ...}.
+ * The file is scanned once with the streaming parser to record the byte range of every
+ * document, then memory-mapped; single documents are parsed on demand and kept in a
+ * bounded LRU cache.
+ */
+@Slf4j
+public class DocumentIndex {
+
+    private final ObjectMapper objectMapper;
+    private final MappedByteBuffer buffer;
+    private final Map<String, long[]> offsets;
+    private final Map<String, JsonNode> cache;
+
+    private DocumentIndex(ObjectMapper objectMapper, MappedByteBuffer buffer,
+                          Map<String, long[]> offsets, int cacheSize) {
+        this.objectMapper = objectMapper;
+        this.buffer = buffer;
+        this.offsets = offsets;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JsonNode> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public static DocumentIndex open(ObjectMapper objectMapper, Path file, int cacheSize) throws IOException {
+        long started = System.nanoTime();
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Checked before the scan, so an oversized file is rejected without reading it.
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("documents file is too large to map: " + channel.size() + " bytes");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        Map<String, long[]> offsets = scan(objectMapper, file);
+
+        log.info("Indexed {} documents from {} in {} ms",
+                offsets.size(), file, (System.nanoTime() - started) / 1_000_000);
+        return new DocumentIndex(objectMapper, buffer, offsets, cacheSize);
+    }
+
+    private static Map<String, long[]> scan(ObjectMapper objectMapper, Path file) throws IOException {
+        Map<String, long[]> offsets = new HashMap<>();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(file.toFile())) {
+            JsonToken root = parser.nextToken();
+            if (root == null) {
+                return offsets;
+            }
+            if (root != JsonToken.START_OBJECT) {
+                throw new IOException("documents file must contain a JSON object at the top level");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String number = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value != JsonToken.START_OBJECT) {
+                    log.warn("Skipping non-object document entry: {}", number);
+                    parser.skipChildren();
+                    continue;
+                }
+
+                long start = parser.currentTokenLocation().getByteOffset();
+                parser.skipChildren();
+                long end = parser.currentLocation().getByteOffset();
+                offsets.put(number, new long[]{start, end - start});
+            }
+        }
+
+        return offsets;
+    }
+
+    public JsonNode get(String number) throws IOException {
+        synchronized (cache) {
+            JsonNode cached = cache.get(number);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long[] range = offsets.get(number);
+        if (range == null) {
+            return null;
+        }
+
+        ByteBuffer slice = buffer.duplicate();
+        slice.position((int) range[0]).limit((int) (range[0] + range[1]));
+        JsonNode node = objectMapper.readTree(new ByteBufferBackedInputStream(slice));
+
+        synchronized (cache) {
+            cache.put(number, node);
+        }
+        return node;
+    }
+
+    public boolean contains(String number) {
+        return offsets.containsKey(number);
+    }
+
+    public int size() {
+        return offsets.size();
+    }
+}
@@ -0,0 +1,282 @@
+package org.nab.new_afm_back.util;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admits work within a budget of concurrent permits and in-flight bytes. When the budget is exhausted,
+ * callers wait in a bounded queue that is served round-robin across owners, so one client sending a
+ * burst cannot starve the others. A caller that cannot be queued, or waits too long, is rejected.
+ * <p>
+ * Callers on request threads block in {@link #tryAcquire}; callers that must not block, such as
+ * event-loop threads, wait on the future of {@link #acquire} instead. Both share the same budget and
+ * queue. Blocking uses a {@link ReentrantLock} rather than a monitor, so queued virtual threads unmount
+ * instead of pinning their carrier threads.
+ */
+public class FairAdmissionQueue {
+
+    /**
+     * Admission granted; closing it returns the budget.
+     */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class Waiter {
+        private final long bytes;
+        // Set for asynchronous callers; blocked callers are signalled instead.
+        private final CompletableFuture<Permit> future;
+        private boolean granted;
+
+        private Waiter(long bytes, CompletableFuture<Permit> future) {
+            this.bytes = bytes;
+            this.future = future;
+        }
+    }
+
+    private final int maxConcurrent;
+    private final long maxBytes;
+    private final int maxQueued;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition admitted = lock.newCondition();
+
+    private int active;
+    private long activeBytes;
+    private int queued;
+    // Owners in turn order; the owner at the front is served next.
+    private final LinkedHashMap<String, ArrayDeque<Waiter>> waiting = new LinkedHashMap<>();
+    // Asynchronous waiters granted under the lock, whose futures are completed once it is released.
+    private final List<Waiter> handOffs = new ArrayList<>();
+
+    public FairAdmissionQueue(int maxConcurrent, long maxBytes, int maxQueued) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxBytes = maxBytes;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * @param bytes expected size of the work; anything above the byte budget is counted as the whole budget
+     * @return a permit, or null if the queue is full or {@code maxWait} elapsed first
+     */
+    public Permit tryAcquire(String owner, long bytes, Duration maxWait) throws InterruptedException {
+        long cost = Math.min(Math.max(bytes, 0), maxBytes);
+        lock.lock();
+        try {
+            if (waiting.isEmpty() && fits(cost)) {
+                return grant(cost);
+            }
+            if (queued >= maxQueued) {
+                return null;
+            }
+
+            Waiter waiter = new Waiter(cost, null);
+            enqueue(owner, waiter);
+
+            long deadline = System.nanoTime() + maxWait.toNanos();
+            try {
+                while (!waiter.granted) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        remove(owner, waiter);
+                        return null;
+                    }
+                    admitted.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                if (!waiter.granted) {
+                    remove(owner, waiter);
+                    throw e;
+                }
+                Thread.currentThread().interrupt();
+            }
+            return permit(cost);
+        } finally {
+            unlockAndHandOff();
+        }
+    }
+
+    /**
+     * Non-blocking form of {@link #tryAcquire}. Cancelling the future gives up the place in the queue.
+     *
+     * @return a future completed with a permit, or with null if the queue is full or {@code maxWait}
+     * elapsed first
+     */
+    public CompletableFuture<Permit> acquire(String owner, long bytes, Duration maxWait) {
+        long cost = Math.min(Math.max(bytes, 0), maxBytes);
+        CompletableFuture<Permit> future = new CompletableFuture<>();
+        Waiter waiter = new Waiter(cost, future);
+        lock.lock();
+        try {
+            if (waiting.isEmpty() && fits(cost)) {
+                return CompletableFuture.completedFuture(grant(cost));
+            }
+            if (queued >= maxQueued) {
+                return CompletableFuture.completedFuture(null);
+            }
+            enqueue(owner, waiter);
+        } finally {
+            unlockAndHandOff();
+        }
+
+        future.completeOnTimeout(null, maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        future.whenComplete((permit, error) -> {
+            if (permit == null) {
+                abandon(owner, waiter);
+            }
+        });
+        return future;
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getActive() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getActiveBytes() {
+        lock.lock();
+        try {
+            return activeBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean fits(long cost) {
+        return active < maxConcurrent && activeBytes + cost <= maxBytes;
+    }
+
+    private Permit grant(long cost) {
+        active++;
+        activeBytes += cost;
+        return permit(cost);
+    }
+
+    private Permit permit(long cost) {
+        return new Permit() {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                lock.lock();
+                try {
+                    if (!closed) {
+                        closed = true;
+                        active--;
+                        activeBytes -= cost;
+                        dispatch();
+                    }
+                } finally {
+                    unlockAndHandOff();
+                }
+            }
+        };
+    }
+
+    private void enqueue(String owner, Waiter waiter) {
+        waiting.computeIfAbsent(owner, key -> new ArrayDeque<>()).addLast(waiter);
+        queued++;
+    }
+
+    /**
+     * Hands freed budget to waiters, one per owner in turn. Stops at the first head waiter that does not
+     * fit, so large uploads are not overtaken indefinitely by small ones.
+     */
+    private void dispatch() {
+        boolean grantedAny = false;
+        while (!waiting.isEmpty()) {
+            Iterator<Map.Entry<String, ArrayDeque<Waiter>>> owners = waiting.entrySet().iterator();
+            Map.Entry<String, ArrayDeque<Waiter>> next = owners.next();
+            Waiter waiter = next.getValue().peekFirst();
+            if (!fits(waiter.bytes)) {
+                break;
+            }
+
+            next.getValue().removeFirst();
+            owners.remove();
+            if (!next.getValue().isEmpty()) {
+                // Back of the line: other owners get their turn first.
+                waiting.put(next.getKey(), next.getValue());
+            }
+            queued--;
+            active++;
+            activeBytes += waiter.bytes;
+            waiter.granted = true;
+            if (waiter.future != null) {
+                handOffs.add(waiter);
+            } else {
+                grantedAny = true;
+            }
+        }
+        if (grantedAny) {
+            admitted.signalAll();
+        }
+    }
+
+    /**
+     * Completes the futures of asynchronous waiters granted while the lock was held. Their callbacks run
+     * on this thread, so they must not run under the lock. A waiter that gave up in the meantime hands
+     * its budget straight back.
+     */
+    private void unlockAndHandOff() {
+        List<Waiter> granted = handOffs.isEmpty() ? List.of() : List.copyOf(handOffs);
+        handOffs.clear();
+        lock.unlock();
+        for (Waiter waiter : granted) {
+            Permit permit = permit(waiter.bytes);
+            if (!waiter.future.complete(permit)) {
+                permit.close();
+            }
+        }
+    }
+
+    /**
+     * An asynchronous waiter timed out or was cancelled. If it was granted meanwhile, its hand-off
+     * returns the budget instead.
+     */
+    private void abandon(String owner, Waiter waiter) {
+        lock.lock();
+        try {
+            if (!waiter.granted) {
+                remove(owner, waiter);
+            }
+        } finally {
+            unlockAndHandOff();
+        }
+    }
+
+    private void remove(String owner, Waiter waiter) {
+        ArrayDeque<Waiter> queue = waiting.get(owner);
+        if (queue != null && queue.remove(waiter)) {
+            queued--;
+            if (queue.isEmpty()) {
+                waiting.remove(owner);
+            }
+            // The removed waiter may have blocked the head of the line.
+            dispatch();
+        }
+    }
+}
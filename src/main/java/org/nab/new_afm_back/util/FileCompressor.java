@@ -0,0 +1,78 @@
+package org.nab.new_afm_back.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Decides whether an uploaded file is worth storing gzip-compressed and produces the compressed copy.
+ * Only configured text-like types are considered, and only when a sample of the content actually shrinks.
+ */
+@Component
+@Slf4j
+public class FileCompressor {
+
+    public static final String GZIP = "gzip";
+
+    private static final int SAMPLE_SIZE = 64 * 1024;
+
+    @Value("${app.storage.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.compression.types:txt}")
+    private List<String> types;
+
+    @Value("${app.storage.compression.min-size:16384}")
+    private long minSize;
+
+    @Value("${app.storage.compression.max-ratio:0.7}")
+    private double maxRatio;
+
+    /**
+     * @return {@link #GZIP} if the content should be stored compressed, otherwise null
+     */
+    public String chooseEncoding(String extension, long size, InputStream content) throws IOException {
+        if (!enabled || size < minSize || extension == null || !types.contains(extension.toLowerCase())) {
+            return null;
+        }
+
+        byte[] sample = content.readNBytes(SAMPLE_SIZE);
+        double ratio = (double) deflatedSize(sample) / sample.length;
+        log.debug("Sample compressibility for .{} file of {} bytes: {}", extension, size, String.format("%.2f", ratio));
+        return ratio <= maxRatio ? GZIP : null;
+    }
+
+    /**
+     * Writes a gzip-compressed copy of {@code content} to {@code target}, replacing its content.
+     */
+    public void compress(InputStream content, Path target) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(target), 64 * 1024)) {
+            content.transferTo(out);
+        }
+    }
+
+    private static long deflatedSize(byte[] sample) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(sample);
+            deflater.finish();
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            while (!deflater.finished()) {
+                total += deflater.deflate(buffer);
+            }
+            return total;
+        } finally {
+            deflater.end();
+        }
+    }
+}
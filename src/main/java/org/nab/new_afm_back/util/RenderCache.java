@@ -0,0 +1,194 @@
+package org.nab.new_afm_back.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.nab.new_afm_back.jfr.RenderEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Disk cache for rendered files. Each entry is identified by a group (e.g. a case number) and a
+ * version; a newer version of a group replaces the older files. Concurrent requests for the same
+ * missing entry share a single render.
+ * <p>
+ * Callers stream the returned file after {@link #get} returns, so a replaced version is only retired:
+ * it is deleted once it has been out of use for a grace period, and deletion is retried while the file
+ * is still open (Windows refuses to delete it then).
+ */
+@Slf4j
+public class RenderCache {
+
+    @FunctionalInterface
+    public interface Renderer {
+        void render(OutputStream out) throws IOException;
+    }
+
+    public static final Duration DEFAULT_RETIRED_GRACE = Duration.ofMinutes(10);
+
+    private final Path directory;
+    private final String extension;
+    private final long retiredGraceNanos;
+    private final ConcurrentMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    // Replaced versions and when they were replaced, or last handed out.
+    private final ConcurrentMap<Path, Long> retired = new ConcurrentHashMap<>();
+
+    public RenderCache(Path directory, String extension) throws IOException {
+        this(directory, extension, DEFAULT_RETIRED_GRACE);
+    }
+
+    public RenderCache(Path directory, String extension, Duration retiredGrace) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.extension = extension;
+        this.retiredGraceNanos = retiredGrace.toNanos();
+    }
+
+    public Path get(String group, String version, Renderer renderer) throws IOException {
+        String groupKey = safeName(group);
+        Path target = directory.resolve(groupKey + "__" + versionName(version) + "." + extension);
+        if (Files.exists(target)) {
+            log.debug("Render cache hit: {}", target.getFileName());
+            // An old version asked for again (e.g. a reverted change) is in use again.
+            retired.computeIfPresent(target, (path, since) -> System.nanoTime());
+            return target;
+        }
+
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(target.toString(), mine);
+        if (running != null) {
+            log.debug("Waiting for in-flight render: {}", target.getFileName());
+            return await(running);
+        }
+
+        try {
+            Path rendered = Files.exists(target) ? target : renderTo(target, group, renderer);
+            retired.remove(target);
+            retireVersions(groupKey, target);
+            deleteRetired();
+            mine.complete(rendered);
+            return rendered;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(target.toString(), mine);
+        }
+    }
+
+    private Path renderTo(Path target, String group, Renderer renderer) throws IOException {
+        long started = System.nanoTime();
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        Path temp = directory.resolve(target.getFileName() + ".tmp-" + UUID.randomUUID());
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                renderer.render(out);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            event.bytes = Files.size(target);
+            event.succeeded = true;
+        } finally {
+            Files.deleteIfExists(temp);
+            event.end();
+            if (event.shouldCommit()) {
+                event.kind = directory.getFileName().toString();
+                event.group = group;
+                event.commit();
+            }
+        }
+
+        log.info("Rendered {} ({} bytes) in {} ms", target.getFileName(), event.bytes,
+                (System.nanoTime() - started) / 1_000_000);
+        return target;
+    }
+
+    /**
+     * Retires every version of the group except {@code current}. The glob also matches other groups whose
+     * key starts with this one followed by "__", so the remainder must be a version name of its own.
+     */
+    private void retireVersions(String groupKey, Path current) {
+        String prefix = groupKey + "__";
+        String suffix = "." + extension;
+        try (DirectoryStream<Path> versions = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path path : versions) {
+                String name = path.getFileName().toString();
+                String version = name.substring(prefix.length(), name.length() - suffix.length());
+                if (!path.equals(current) && isVersionName(version)) {
+                    retired.putIfAbsent(path, System.nanoTime());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not list renders of {}: {}", groupKey, e.getMessage());
+        }
+    }
+
+    private void deleteRetired() {
+        long now = System.nanoTime();
+        for (Map.Entry<Path, Long> entry : retired.entrySet()) {
+            if (now - entry.getValue() < retiredGraceNanos) {
+                continue;
+            }
+            Path path = entry.getKey();
+            try {
+                Files.deleteIfExists(path);
+                retired.remove(path, entry.getValue());
+                log.debug("Removed stale render: {}", path.getFileName());
+            } catch (IOException e) {
+                // Still open by a reader; tried again after the next render.
+                log.debug("Could not remove stale render {} yet: {}", path.getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    public void evict(String group) {
+        retireVersions(safeName(group), null);
+        deleteRetired();
+    }
+
+    private static Path await(CompletableFuture<Path> running) throws IOException {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Version part of a file name. It never starts with '_' or contains "__", so the "__" after the group
+     * key is unambiguous.
+     */
+    private static String versionName(String version) {
+        String safe = safeName(version);
+        if (isVersionName(safe)) {
+            return safe;
+        }
+        return safe.replaceAll("_+", "_").replaceFirst("^_", "0_") + "-" + Integer.toHexString(version.hashCode());
+    }
+
+    private static boolean isVersionName(String version) {
+        return !version.isEmpty() && !version.startsWith("_") && !version.contains("__");
+    }
+
+    private static String safeName(String value) {
+        String safe = value.replaceAll("[^A-Za-z0-9._-]", "_");
+        // keep distinct values distinct once unsafe characters are replaced
+        return safe.equals(value) ? safe : safe + "-" + Integer.toHexString(value.hashCode());
+    }
+}
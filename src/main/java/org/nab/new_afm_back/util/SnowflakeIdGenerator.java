@@ -0,0 +1,65 @@
+package org.nab.new_afm_back.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.function.LongSupplier;
+
+/**
+ * Monotonic 64-bit ids that are unique across nodes without coordination: 41 bits of milliseconds
+ * since {@link #EPOCH}, 10 bits of node id and a 12-bit per-millisecond sequence. Ids from one
+ * generator strictly increase, and two generators with different node ids never produce the same id.
+ * <p>
+ * If the wall clock steps back, ids keep counting from the last issued millisecond instead of
+ * repeating earlier ones.
+ */
+@Slf4j
+public class SnowflakeIdGenerator {
+
+    public static final Instant EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long epochMillis = EPOCH.toEpochMilli();
+    private final long node;
+    private final LongSupplier clock;
+    private long lastMillis = -1;
+    private long sequence;
+
+    public SnowflakeIdGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.node = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    public synchronized long nextId() {
+        long millis = clock.getAsLong() - epochMillis;
+        if (millis < lastMillis) {
+            // Lagging a little is normal after a burst borrowed ahead; more means the clock stepped back.
+            if (lastMillis - millis > 1000) {
+                log.warn("Clock moved back by {} ms, continuing from the last issued timestamp", lastMillis - millis);
+            }
+            millis = lastMillis;
+        }
+        if (millis == lastMillis) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                // 4096 ids in this millisecond already; borrow the next one.
+                millis = lastMillis + 1;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = millis;
+        return millis << (NODE_BITS + SEQUENCE_BITS) | node | sequence;
+    }
+}
@@ -0,0 +1,55 @@
+package org.nab.new_afm_back.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token bucket that caps background work at a fixed number of operations per second, with at most
+ * one second of burst. Callers block in {@link #acquire} until enough tokens have accumulated.
+ */
+public class Throttle {
+
+    private final double permitsPerSecond;
+    private double available;
+    private long lastRefill;
+
+    /**
+     * @param permitsPerSecond rate limit; zero or negative disables throttling
+     */
+    public Throttle(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.available = Math.max(permitsPerSecond, 0);
+        this.lastRefill = System.nanoTime();
+    }
+
+    public void acquire() {
+        acquire(1);
+    }
+
+    public void acquire(int permits) {
+        if (permitsPerSecond <= 0) {
+            return;
+        }
+        long waitNanos = reserve(permits);
+        while (waitNanos > 0) {
+            long deadline = System.nanoTime() + waitNanos;
+            LockSupport.parkNanos(waitNanos);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            waitNanos = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Takes the permits now, possibly going into debt, and returns how long the caller must wait
+     * until that debt is repaid.
+     */
+    private synchronized long reserve(int permits) {
+        long now = System.nanoTime();
+        available = Math.min(permitsPerSecond, available + (now - lastRefill) * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        lastRefill = now;
+        available -= permits;
+        return available >= 0 ? 0 : (long) (-available / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,109 @@
+package org.nab.new_afm_back;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Uploads a case with a PDF on in-memory H2, downloads the file back and builds the case bundle, which
+ * renders the dossier with iText and merges with PDFBox. Runs on the JVM with the other tests and as a
+ * native image with {@code mvn -Pnative,nativeTest test}, where it shows the runtime hints are complete.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:smoke;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "management.server.port=0",
+        "app.storage.reconcile.enabled=false",
+        "app.documents.watch=false",
+        "app.jfr.enabled=false"
+})
+class UploadDownloadSmokeTests {
+
+    private static final String CASE_NUMBER = "SMOKE-1";
+    private static final byte[] PDF = ("%PDF-1.4\n"
+            + "1 0 obj << /Type /Catalog /Pages 2 0 R >> endobj\n"
+            + "2 0 obj << /Type /Pages /Kids [3 0 R] /Count 1 >> endobj\n"
+            + "3 0 obj << /Type /Page /Parent 2 0 R /MediaBox [0 0 595 842] >> endobj\n"
+            + "trailer << /Root 1 0 R >>\n%%EOF\n").getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    static Path workDirectory;
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void directories(DynamicPropertyRegistry registry) {
+        registry.add("file.upload.directory", () -> workDirectory.resolve("uploads").toString());
+        registry.add("app.pdf.cache-directory", () -> workDirectory.resolve("render-cache").toString());
+        registry.add("app.case-tracker.file-path", () -> workDirectory.resolve("accessed_cases.json").toString());
+    }
+
+    @Test
+    void uploadedFileDownloadsUnchangedAndJoinsTheBundle() throws Exception {
+        ResponseEntity<String> upload = rest.postForEntity("/pdf/upload", uploadRequest(), String.class);
+        assertEquals(HttpStatus.CREATED, upload.getStatusCode(), upload.getBody());
+
+        JsonNode caseFiles = objectMapper.readTree(upload.getBody()).path("caseFiles");
+        assertEquals(1, caseFiles.size());
+        long fileId = caseFiles.get(0).path("id").asLong();
+
+        ResponseEntity<byte[]> download = rest.getForEntity("/case/{number}/file/{fileId}/download", byte[].class,
+                CASE_NUMBER, fileId);
+        assertEquals(HttpStatus.OK, download.getStatusCode());
+        assertArrayEquals(PDF, download.getBody());
+
+        ResponseEntity<byte[]> bundle = rest.getForEntity("/case/{number}/bundle.pdf", byte[].class, CASE_NUMBER);
+        assertEquals(HttpStatus.OK, bundle.getStatusCode());
+        assertTrue(new String(bundle.getBody(), 0, 5, StandardCharsets.US_ASCII).startsWith("%PDF-"));
+    }
+
+    private HttpEntity<MultiValueMap<String, Object>> uploadRequest() {
+        HttpHeaders jsonPart = new HttpHeaders();
+        jsonPart.setContentType(MediaType.APPLICATION_JSON);
+        HttpHeaders pdfPart = new HttpHeaders();
+        pdfPart.setContentType(MediaType.APPLICATION_PDF);
+
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        parts.add("caseData", new HttpEntity<>(
+                "{\"number\":\"" + CASE_NUMBER + "\",\"author\":\"smoke\",\"articles\":[\"190\"]}", jsonPart));
+        parts.add("additionalFiles", new HttpEntity<>(new ByteArrayResource(PDF) {
+            @Override
+            public String getFilename() {
+                return CASE_NUMBER + ".pdf";
+            }
+        }, pdfPart));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        return new HttpEntity<>(parts, headers);
+    }
+}
@@ -0,0 +1,93 @@
+package org.nab.new_afm_back.repository;
+
+import org.junit.jupiter.api.Test;
+import org.nab.new_afm_back.model.Case;
+import org.nab.new_afm_back.model.CaseFile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tombstone and purge statements of the file deletion flow, on in-memory H2 in PostgreSQL mode.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:case-files;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class CaseFileRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CaseFileRepository caseFileRepository;
+
+    @Test
+    void tombstoneIgnoresFilesOfOtherCases() {
+        CaseFile own = persistCase("C-1", "1.pdf").getCaseFiles().get(0);
+        CaseFile foreign = persistCase("C-2", "2.pdf").getCaseFiles().get(0);
+
+        int tombstoned = caseFileRepository.tombstoneByIdsAndCaseNumber(List.of(own.getId(), foreign.getId()), "C-1",
+                LocalDateTime.now());
+        entityManager.clear();
+
+        assertEquals(1, tombstoned);
+        assertEquals(List.of(own.getId()), deletedIds());
+        assertTrue(caseFileRepository.findById(own.getId()).isEmpty());
+        assertTrue(caseFileRepository.findById(foreign.getId()).isPresent());
+    }
+
+    @Test
+    void tombstoneSkipsFilesAlreadyDeleted() {
+        CaseFile file = persistCase("C-1", "1.pdf").getCaseFiles().get(0);
+
+        assertEquals(1, caseFileRepository.tombstoneByCaseNumber("C-1", LocalDateTime.now()));
+        assertEquals(0, caseFileRepository.tombstoneByIdsAndCaseNumber(List.of(file.getId()), "C-1", LocalDateTime.now()));
+    }
+
+    @Test
+    void purgeOnlyRemovesTombstonedRows() {
+        Case caseEntity = persistCase("C-1", "1.pdf", "2.pdf");
+        long deleted = caseEntity.getCaseFiles().get(0).getId();
+        long live = caseEntity.getCaseFiles().get(1).getId();
+        caseFileRepository.tombstoneByIdsAndCaseNumber(List.of(deleted), "C-1", LocalDateTime.now());
+
+        assertEquals(1, caseFileRepository.purgeDeleted(List.of(deleted, live)));
+        entityManager.clear();
+
+        assertTrue(deletedIds().isEmpty());
+        assertTrue(caseFileRepository.findById(live).isPresent());
+        assertEquals(List.of(live), caseFileRepository.findFileNamesAfter(0, 10).stream()
+                .map(CaseFileRepository.FileNameRow::getId).toList());
+    }
+
+    private Case persistCase(String number, String... fileNames) {
+        Case caseEntity = Case.builder().number(number).caseFiles(new ArrayList<>()).build();
+        for (String fileName : fileNames) {
+            caseEntity.getCaseFiles().add(CaseFile.builder()
+                    .fileName(number + "/" + fileName)
+                    .uploadedAt(LocalDateTime.now())
+                    .caseEntity(caseEntity)
+                    .build());
+        }
+        entityManager.persist(caseEntity);
+        entityManager.flush();
+        return caseEntity;
+    }
+
+    private List<Long> deletedIds() {
+        return caseFileRepository.findDeletedAfter(0, 10).stream().map(CaseFileRepository.FileNameRow::getId).toList();
+    }
+}
@@ -0,0 +1,182 @@
+package org.nab.new_afm_back.service.impl;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nab.new_afm_back.model.CaseFile;
+import org.nab.new_afm_back.repository.CaseFileRepository;
+import org.nab.new_afm_back.storage.InMemoryBlobStore;
+import org.nab.new_afm_back.util.FileCompressor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CaseBundleServiceTest {
+
+    private static final String CASE_NUMBER = "B-1";
+
+    @TempDir
+    Path cacheDirectory;
+
+    private final CountingBlobStore blobStore = new CountingBlobStore();
+    private final CaseFileRepository repository = mock(CaseFileRepository.class);
+    // PDF files of the case in upload order, as the repository returns them.
+    private final List<CaseFile> pdfFiles = new ArrayList<>();
+    private CaseBundleService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(repository.findByCaseEntityNumberAndFileTypeOrderByUploadedAtAscIdAsc(CASE_NUMBER, "pdf"))
+                .thenAnswer(invocation -> List.copyOf(pdfFiles));
+        service = new CaseBundleService(repository, blobStore);
+        ReflectionTestUtils.setField(service, "cacheDirectory", cacheDirectory.toString());
+        service.init();
+    }
+
+    @Test
+    void filesAreMergedInUploadOrderWithOneBookmarkEach() throws IOException {
+        addFile(1, "Протокол.pdf", pdf(100, 1), null);
+        addFile(2, null, pdf(200, 2), null);
+        addFile(3, "Заключение.pdf", gzip(pdf(300, 1)), FileCompressor.GZIP);
+
+        try (PDDocument bundle = PDDocument.load(service.getPdfBundle(CASE_NUMBER).toFile())) {
+            assertEquals(4, bundle.getNumberOfPages());
+            assertEquals(List.of(100f, 200f, 200f, 300f), pageWidths(bundle));
+
+            List<String> titles = new ArrayList<>();
+            List<Integer> firstPages = new ArrayList<>();
+            for (PDOutlineItem item : bundle.getDocumentCatalog().getDocumentOutline().children()) {
+                titles.add(item.getTitle());
+                firstPages.add(bundle.getPages().indexOf(((PDPageDestination) item.getDestination()).getPage()));
+            }
+            assertEquals(List.of("Протокол.pdf", "2.pdf", "Заключение.pdf"), titles);
+            assertEquals(List.of(0, 1, 3), firstPages);
+        }
+    }
+
+    @Test
+    void bundleIsRebuiltOnlyWhenThePdfFilesChange() throws IOException {
+        addFile(1, "a.pdf", pdf(100, 1), null);
+        addFile(2, "b.pdf", pdf(200, 1), null);
+
+        Path first = service.getPdfBundle(CASE_NUMBER);
+        assertEquals(2, blobStore.reads);
+        assertEquals(first, service.getPdfBundle(CASE_NUMBER));
+        assertEquals(2, blobStore.reads);
+
+        addFile(3, "c.pdf", pdf(300, 1), null);
+        Path added = service.getPdfBundle(CASE_NUMBER);
+        assertNotEquals(first, added);
+        assertEquals(List.of(100f, 200f, 300f), pageWidths(added));
+
+        // A deleted (tombstoned) file is no longer returned by the repository.
+        pdfFiles.remove(0);
+        Path removed = service.getPdfBundle(CASE_NUMBER);
+        assertNotEquals(added, removed);
+        assertEquals(List.of(200f, 300f), pageWidths(removed));
+    }
+
+    @Test
+    void unreadableFileFailsTheRenderInsteadOfCachingAPartialBundle() throws IOException {
+        addFile(1, "a.pdf", pdf(100, 1), null);
+        addFile(2, "broken.pdf", "not a pdf".getBytes(StandardCharsets.US_ASCII), null);
+
+        IOException failure = assertThrows(IOException.class, () -> service.getPdfBundle(CASE_NUMBER));
+        assertTrue(failure.getMessage().contains("2.pdf"), failure.getMessage());
+
+        // Same file set once the content is readable: the bundle is merged again, with every file.
+        byte[] repaired = pdf(200, 1);
+        blobStore.put("2.pdf", new ByteArrayInputStream(repaired), repaired.length);
+        assertEquals(List.of(100f, 200f), pageWidths(service.getPdfBundle(CASE_NUMBER)));
+    }
+
+    @Test
+    void missingStoredFileFailsTheRender() throws IOException {
+        addFile(1, "a.pdf", pdf(100, 1), null);
+        pdfFiles.add(CaseFile.builder().id(2L).fileName("2.pdf").fileSize(10L).fileType("pdf").build());
+
+        assertThrows(IOException.class, () -> service.getPdfBundle(CASE_NUMBER));
+    }
+
+    @Test
+    void caseWithoutPdfFilesIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.getPdfBundle(CASE_NUMBER));
+    }
+
+    private void addFile(long id, String originalFileName, byte[] content, String contentEncoding) throws IOException {
+        String fileName = id + ".pdf";
+        blobStore.put(fileName, new ByteArrayInputStream(content), content.length);
+        pdfFiles.add(CaseFile.builder()
+                .id(id)
+                .fileName(fileName)
+                .originalFileName(originalFileName)
+                .fileSize((long) content.length)
+                .fileType("pdf")
+                .contentEncoding(contentEncoding)
+                .build());
+    }
+
+    private static byte[] pdf(float width, int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage(new PDRectangle(width, 400)));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Float> pageWidths(Path bundle) throws IOException {
+        try (PDDocument document = PDDocument.load(bundle.toFile())) {
+            return pageWidths(document);
+        }
+    }
+
+    private static List<Float> pageWidths(PDDocument document) {
+        List<Float> widths = new ArrayList<>();
+        for (PDPage page : document.getPages()) {
+            widths.add(page.getMediaBox().getWidth());
+        }
+        return widths;
+    }
+
+    private static final class CountingBlobStore extends InMemoryBlobStore {
+
+        private int reads;
+
+        @Override
+        public InputStream get(String key) throws IOException {
+            reads++;
+            return super.get(key);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.nab.new_afm_back.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CaseFileMetadataCacheTest {
+
+    private static final CaseFileMetadataCache.Metadata METADATA =
+            new CaseFileMetadataCache.Metadata("stored.pdf", "upload.pdf", 10L, null, null);
+
+    private final CaseFileMetadataCache cache = new CaseFileMetadataCache(100, 300);
+
+    @Test
+    void putIsServedUntilInvalidated() {
+        cache.put("C-1", 1, cache.currentGeneration(), METADATA);
+        assertEquals(METADATA, cache.get("C-1", 1));
+
+        cache.invalidate("C-1", List.of(1L));
+        assertNull(cache.get("C-1", 1));
+    }
+
+    @Test
+    void putReadBeforeAnInvalidationIsRejected() {
+        long readGeneration = cache.currentGeneration();
+        // The deletion commits and invalidates while the download is reading the row.
+        cache.invalidate("C-1", List.of(1L));
+
+        cache.put("C-1", 1, readGeneration, METADATA);
+        assertNull(cache.get("C-1", 1));
+
+        cache.put("C-1", 1, cache.currentGeneration(), METADATA);
+        assertNotNull(cache.get("C-1", 1));
+    }
+
+    @Test
+    void putReadBeforeACaseInvalidationIsRejected() {
+        long readGeneration = cache.currentGeneration();
+        cache.invalidateCase("C-1");
+
+        cache.put("C-1", 7, readGeneration, METADATA);
+        assertNull(cache.get("C-1", 7));
+    }
+
+    @Test
+    void invalidationOfOtherFilesDoesNotRejectAPut() {
+        long readGeneration = cache.currentGeneration();
+        cache.invalidate("C-1", List.of(2L));
+        cache.invalidateCase("C-2");
+
+        cache.put("C-1", 1, readGeneration, METADATA);
+        assertNotNull(cache.get("C-1", 1));
+    }
+
+    @Test
+    void forgottenInvalidationsStillRejectOlderPuts() {
+        CaseFileMetadataCache small = new CaseFileMetadataCache(2, 300);
+        long readGeneration = small.currentGeneration();
+        small.invalidate("C-1", List.of(1L));
+        // Pushes the record of file 1 out of the bounded invalidation history.
+        small.invalidate("C-1", List.of(2L, 3L));
+
+        small.put("C-1", 1, readGeneration, METADATA);
+        assertNull(small.get("C-1", 1));
+    }
+}
@@ -0,0 +1,117 @@
+package org.nab.new_afm_back.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nab.new_afm_back.repository.CaseRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExistenceIndexTest {
+
+    private final CaseRepository repository = mock(CaseRepository.class);
+    private final List<CaseRepository.NumberRow> stored = new ArrayList<>();
+    private ExistenceIndex index;
+    private Runnable duringScan = () -> {
+    };
+
+    @BeforeEach
+    void setUp() {
+        when(repository.count()).thenAnswer(invocation -> (long) stored.size());
+        when(repository.findNumbersAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            duringScan.run();
+            return stored.stream().filter(row -> row.getId() > afterId).limit(limit).toList();
+        });
+
+        index = new ExistenceIndex(repository);
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(index, "minCapacity", 1000L);
+        ReflectionTestUtils.setField(index, "pageSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void findsStoredAndAddedNumbers() {
+        store("A-1", "A-2", "A-3", "A-4", "A-5");
+        index.init();
+        index.addCaseNumber("B-1");
+
+        for (String number : List.of("A-1", "A-3", "A-5", "B-1")) {
+            assertTrue(index.mightContainCaseNumber(number), number);
+        }
+        assertFalse(index.mightContainCaseNumber("C-1"));
+    }
+
+    @Test
+    void numbersAddedWhileARebuildScansAreInTheNewFilter() {
+        store("A-1", "A-2", "A-3");
+        index.init();
+        duringScan = () -> index.addCaseNumber("DURING-" + stored.size());
+
+        index.rebuild();
+
+        assertTrue(index.mightContainCaseNumber("DURING-3"));
+    }
+
+    @Test
+    void numbersOfTransactionsOpenWhenARebuildStartsAreInTheNewFilter() {
+        index.init();
+        TransactionSynchronizationManager.initSynchronization();
+        // Added in a transaction that has not committed, so the rebuild's scan does not see the row.
+        index.addCaseNumber("UNCOMMITTED");
+
+        index.rebuild();
+        assertTrue(index.mightContainCaseNumber("UNCOMMITTED"));
+
+        // Once the transaction has completed, rebuilds rely on the scan again.
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        index.rebuild();
+        assertFalse(index.mightContainCaseNumber("UNCOMMITTED"));
+    }
+
+    @Test
+    void disabledIndexDefersToTheDatabase() {
+        ReflectionTestUtils.setField(index, "enabled", false);
+        index.init();
+
+        assertTrue(index.mightContainCaseNumber("anything"));
+    }
+
+    private void store(String... numbers) {
+        for (String number : numbers) {
+            long id = stored.size() + 1;
+            stored.add(new CaseRepository.NumberRow() {
+                @Override
+                public Long getId() {
+                    return id;
+                }
+
+                @Override
+                public String getNumber() {
+                    return number;
+                }
+            });
+        }
+    }
+}
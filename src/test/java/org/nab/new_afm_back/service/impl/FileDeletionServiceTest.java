@@ -0,0 +1,156 @@
+package org.nab.new_afm_back.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nab.new_afm_back.repository.CaseFileRepository;
+import org.nab.new_afm_back.storage.InMemoryBlobStore;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FileDeletionServiceTest {
+
+    private final FailingBlobStore blobStore = new FailingBlobStore();
+    private final CaseFileRepository repository = mock(CaseFileRepository.class);
+    // Tombstoned case file rows by id.
+    private final Map<Long, String> tombstones = new TreeMap<>();
+    private final List<Collection<Long>> purges = new ArrayList<>();
+    private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+    private FileDeletionService service;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findDeletedAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return tombstones.entrySet().stream()
+                    .filter(row -> row.getKey() > afterId)
+                    .limit(limit)
+                    .map(row -> (CaseFileRepository.FileNameRow) new Row(row.getKey(), row.getValue()))
+                    .toList();
+        });
+        when(repository.purgeDeleted(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = List.copyOf(invocation.getArgument(0));
+            purges.add(ids);
+            return (int) ids.stream().filter(id -> tombstones.remove(id) != null).count();
+        });
+
+        service = new FileDeletionService(repository, blobStore);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "maxBackoffMinutes", 1L);
+        ReflectionTestUtils.setField(service, "clock", (InstantSource) () -> now);
+    }
+
+    @Test
+    void unlinkedFilesArePurgedInBatches() throws IOException {
+        store("cases/1.pdf", "cases/2.pdf", "cases/3.pdf");
+        tombstones.put(1L, "cases/1.pdf");
+        tombstones.put(2L, "cases/2.pdf");
+        tombstones.put(3L, "cases/3.pdf");
+
+        service.sweep();
+
+        assertTrue(tombstones.isEmpty());
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L)), purges);
+        assertFalse(blobStore.exists("cases/1.pdf"));
+        assertFalse(blobStore.exists("cases/3.pdf"));
+    }
+
+    @Test
+    void rowIsPurgedWhenItsFileIsAlreadyGone() {
+        tombstones.put(1L, "cases/gone.pdf");
+
+        service.sweep();
+
+        assertTrue(tombstones.isEmpty());
+    }
+
+    @Test
+    void failedUnlinkKeepsTheTombstoneUntilItsBackoffHasPassed() throws IOException {
+        store("cases/stuck.pdf", "cases/ok.pdf");
+        tombstones.put(1L, "cases/stuck.pdf");
+        tombstones.put(2L, "cases/ok.pdf");
+        blobStore.failing = "cases/stuck.pdf";
+
+        service.sweep();
+        assertEquals(Map.of(1L, "cases/stuck.pdf"), tombstones);
+        assertEquals(1, blobStore.attempts);
+
+        // The first retry waits 2 s.
+        now = now.plusSeconds(1);
+        service.sweep();
+        assertEquals(1, blobStore.attempts);
+        now = now.plusSeconds(1);
+        service.sweep();
+        assertEquals(2, blobStore.attempts);
+
+        // Doubling from there passes the one minute cap after a few more attempts.
+        for (int attempt = 3; attempt <= 8; attempt++) {
+            now = now.plus(Duration.ofMinutes(1));
+            service.sweep();
+            assertEquals(attempt, blobStore.attempts);
+        }
+        now = now.plusSeconds(59);
+        service.sweep();
+        assertEquals(8, blobStore.attempts);
+
+        blobStore.failing = null;
+        now = now.plusSeconds(1);
+        service.sweep();
+        assertTrue(tombstones.isEmpty());
+        assertFalse(blobStore.exists("cases/stuck.pdf"));
+    }
+
+    private void store(String... keys) throws IOException {
+        for (String key : keys) {
+            blobStore.put(key, new ByteArrayInputStream(new byte[]{1}), 1);
+        }
+    }
+
+    private record Row(Long id, String fileName) implements CaseFileRepository.FileNameRow {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getFileName() {
+            return fileName;
+        }
+    }
+
+    private static final class FailingBlobStore extends InMemoryBlobStore {
+
+        private String failing;
+        private int attempts;
+
+        @Override
+        public boolean delete(String key) {
+            if (key.equals(failing)) {
+                attempts++;
+                throw new UncheckedIOException(new IOException("Storage unavailable"));
+            }
+            return super.delete(key);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.nab.new_afm_back.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.nab.new_afm_back.repository.CaseFileRepository;
+import org.nab.new_afm_back.repository.CaseRepository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class FileServiceDeleteFilesTest {
+
+    private final CaseRepository caseRepository = mock(CaseRepository.class);
+    private final CaseFileRepository caseFileRepository = mock(CaseFileRepository.class);
+    private final FileDeletionService fileDeletionService = mock(FileDeletionService.class);
+    private final CaseFileMetadataCache metadataCache = mock(CaseFileMetadataCache.class);
+    private FileService fileService;
+
+    @BeforeEach
+    void setUp() {
+        fileService = new FileService(caseRepository, caseFileRepository, null, null, null, fileDeletionService,
+                null, null, null, metadataCache, null, null);
+        when(caseRepository.existsByNumber("C-1")).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void selectedFilesAreTombstonedAndSweptAfterCommit() {
+        when(caseFileRepository.tombstoneByIdsAndCaseNumber(eq(List.of(1L, 2L)), eq("C-1"), any())).thenReturn(2);
+
+        assertEquals(2, fileService.deleteFiles("C-1", List.of(1L, 2L)));
+        verify(fileDeletionService, never()).requestSweep();
+
+        commit();
+        verify(metadataCache).invalidate("C-1", List.of(1L, 2L));
+        verify(fileDeletionService).requestSweep();
+    }
+
+    @Test
+    void allFilesOfTheCaseAreTombstonedWithoutIds() {
+        when(caseFileRepository.tombstoneByCaseNumber(eq("C-1"), any())).thenReturn(3);
+
+        assertEquals(3, fileService.deleteFiles("C-1", null));
+
+        commit();
+        verify(metadataCache).invalidateCase("C-1");
+        verify(fileDeletionService).requestSweep();
+    }
+
+    @Test
+    void nothingIsSweptWhenNoFileMatched() {
+        assertEquals(0, fileService.deleteFiles("C-1", List.of(9L)));
+
+        assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+        verifyNoInteractions(fileDeletionService, metadataCache);
+    }
+
+    @Test
+    void unknownCaseIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> fileService.deleteFiles("C-2", List.of(1L)));
+
+        verify(caseFileRepository, never()).tombstoneByIdsAndCaseNumber(anyCollection(), anyString(), any());
+    }
+
+    private static void commit() {
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    }
+}
@@ -0,0 +1,136 @@
+package org.nab.new_afm_back.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nab.new_afm_back.dto.response.ReconciliationReport;
+import org.nab.new_afm_back.repository.CaseFileRepository;
+import org.nab.new_afm_back.storage.InMemoryBlobStore;
+import org.nab.new_afm_back.storage.StagingArea;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StorageReconciliationServiceTest {
+
+    @TempDir
+    Path staging;
+
+    private final InMemoryBlobStore blobStore = new InMemoryBlobStore();
+    private final CaseFileRepository repository = mock(CaseFileRepository.class);
+    // Case file rows by id, paged through findFileNamesAfter.
+    private final Map<Long, String> rows = new TreeMap<>();
+    private StorageReconciliationService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(repository.findFileNamesAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return rows.entrySet().stream()
+                    .filter(row -> row.getKey() > afterId)
+                    .limit(limit)
+                    .map(row -> (CaseFileRepository.FileNameRow) new Row(row.getKey(), row.getValue()))
+                    .toList();
+        });
+        when(repository.existsByFileName(anyString())).thenAnswer(invocation -> rows.containsValue(invocation.<String>getArgument(0)));
+        when(repository.existsById(anyLong())).thenAnswer(invocation -> rows.containsKey(invocation.<Long>getArgument(0)));
+
+        service = new StorageReconciliationService(repository, blobStore,
+                new StagingArea(staging, blobStore, Duration.ofHours(1)));
+        ReflectionTestUtils.setField(service, "maxFilesPerSecond", 1_000_000.0);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "minAgeMinutes", 0L);
+    }
+
+    @Test
+    void differenceKeepsValuesMissingFromTheOtherSide() {
+        assertArrayEquals(new long[]{-5, 3, 9}, StorageReconciliationService.difference(
+                new long[]{-5, 1, 3, 7, 9}, new long[]{-7, 1, 2, 7, 8}));
+        assertArrayEquals(new long[]{1, 2}, StorageReconciliationService.difference(new long[]{1, 2}, new long[0]));
+        assertArrayEquals(new long[0], StorageReconciliationService.difference(new long[0], new long[]{1, 2}));
+        assertArrayEquals(new long[0], StorageReconciliationService.difference(new long[]{4, 5}, new long[]{4, 5}));
+        assertArrayEquals(new long[]{Long.MIN_VALUE, Long.MAX_VALUE}, StorageReconciliationService.difference(
+                new long[]{Long.MIN_VALUE, 0, Long.MAX_VALUE}, new long[]{0}));
+    }
+
+    @Test
+    void reportsOrphanAndMissingFiles() throws IOException {
+        store("cases/a.pdf", "cases/b.pdf", "cases/c.pdf", "cases/orphan.pdf");
+        rows.put(1L, "cases/a.pdf");
+        rows.put(2L, "cases/b.pdf");
+        rows.put(3L, "cases/gone.pdf");
+        rows.put(4L, "cases/c.pdf");
+
+        ReconciliationReport report = service.reconcile(false);
+
+        assertEquals(4, report.storedFiles());
+        assertEquals(4, report.databaseFiles());
+        assertEquals(1, report.orphanFiles());
+        assertEquals(List.of("cases/orphan.pdf"), report.orphanFileSample());
+        assertEquals(1, report.missingFiles());
+        assertEquals(List.of(new ReconciliationReport.MissingFile(3L, "cases/gone.pdf")), report.missingFileSample());
+        assertTrue(blobStore.exists("cases/orphan.pdf"));
+    }
+
+    @Test
+    void quarantineMovesOrphansAside() throws IOException {
+        store("cases/a.pdf", "cases/orphan.pdf");
+        rows.put(1L, "cases/a.pdf");
+
+        ReconciliationReport report = service.reconcile(true);
+
+        assertEquals(1, report.quarantinedFiles());
+        assertFalse(blobStore.exists("cases/orphan.pdf"));
+        assertTrue(blobStore.exists(StorageReconciliationService.QUARANTINE_PREFIX + "cases/orphan.pdf"));
+        assertTrue(blobStore.exists("cases/a.pdf"));
+    }
+
+    @Test
+    void consistentStorageHasNoFindings() throws IOException {
+        store("cases/a.pdf", "cases/b.pdf");
+        rows.put(1L, "cases/a.pdf");
+        rows.put(2L, "cases/b.pdf");
+
+        ReconciliationReport report = service.reconcile(false);
+
+        assertEquals(0, report.orphanFiles());
+        assertEquals(0, report.missingFiles());
+    }
+
+    private void store(String... keys) throws IOException {
+        for (String key : keys) {
+            blobStore.put(key, new ByteArrayInputStream(new byte[]{1}), 1);
+        }
+    }
+
+    private record Row(Long id, String fileName) implements CaseFileRepository.FileNameRow {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getFileName() {
+            return fileName;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package org.nab.new_afm_back.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nab.new_afm_back.dto.response.UploadJobStatus;
+import org.nab.new_afm_back.dto.response.UploadJobStatus.FileState;
+import org.nab.new_afm_back.dto.response.UploadJobStatus.State;
+import org.nab.new_afm_back.model.Case;
+import org.nab.new_afm_back.service.UploadProgress;
+import org.nab.new_afm_back.storage.InMemoryBlobStore;
+import org.nab.new_afm_back.storage.StagingArea;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadJobServiceTest {
+
+    private static final String CASE_NUMBER = "JOB-1";
+
+    @TempDir
+    Path directory;
+
+    private final FileService fileService = mock(FileService.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private StagingArea stagingArea;
+    private UploadJobService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stagingArea = new StagingArea(directory, new InMemoryBlobStore(), Duration.ofHours(1));
+        service = newService(2, 10, 60);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        service.shutdown();
+    }
+
+    @Test
+    void committedFilesAreStoredUnlessTheirPromotionFailed() throws Exception {
+        when(fileService.addAdditionalFilesToCase(eq(CASE_NUMBER), anyList(), isNull(), any())).thenAnswer(invocation -> {
+            UploadProgress progress = invocation.getArgument(3);
+            progress.fileStaged(0, "1.pdf");
+            progress.fileStaged(1, "2.pdf");
+            progress.fileSkipped(2, "File is empty");
+            progress.filesNotPromoted(List.of("2.pdf"));
+            return Case.builder().id(7L).build();
+        });
+
+        UploadJobStatus submitted = service.submitAddFiles(CASE_NUMBER, List.of(pdf("a.pdf"), pdf("b.pdf"), pdf("c.pdf")));
+        UploadJobStatus status = awaitFinished(submitted.id());
+
+        assertEquals(State.COMPLETED, status.state());
+        assertEquals(7L, status.caseId());
+        assertEquals(FileState.STORED, status.files().get(0).state());
+        assertEquals(FileState.STAGED, status.files().get(1).state());
+        assertEquals("2.pdf", status.files().get(1).storedFileName());
+        assertNotNull(status.files().get(1).message());
+        assertEquals(FileState.SKIPPED, status.files().get(2).state());
+        awaitNoJobDirectories();
+    }
+
+    @Test
+    void rejectedJobReportsItsFilesAsFailed() throws Exception {
+        when(fileService.addAdditionalFilesToCase(eq(CASE_NUMBER), anyList(), isNull(), any()))
+                .thenThrow(new IllegalArgumentException("Case not found: " + CASE_NUMBER));
+
+        UploadJobStatus status = awaitFinished(service.submitAddFiles(CASE_NUMBER, List.of(pdf("a.pdf"))).id());
+
+        assertEquals(State.FAILED, status.state());
+        assertEquals("Case not found: " + CASE_NUMBER, status.error());
+        assertEquals(FileState.FAILED, status.files().get(0).state());
+    }
+
+    @Test
+    void fullQueueIsRefusedBeforeAnyPartIsMoved() throws Exception {
+        service.shutdown();
+        service = newService(1, 1, 60);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(fileService.addAdditionalFilesToCase(eq(CASE_NUMBER), anyList(), isNull(), any())).thenAnswer(invocation -> {
+            running.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return Case.builder().id(1L).build();
+        });
+
+        try {
+            service.submitAddFiles(CASE_NUMBER, List.of(pdf("running.pdf")));
+            assertTrue(running.await(10, TimeUnit.SECONDS));
+            service.submitAddFiles(CASE_NUMBER, List.of(pdf("queued.pdf")));
+
+            MultipartFile refused = mock(MultipartFile.class);
+            assertThrows(RejectedExecutionException.class,
+                    () -> service.submitAddFiles(CASE_NUMBER, List.of(refused)));
+            verify(refused, never()).transferTo(any(Path.class));
+            verify(refused, never()).transferTo(any(File.class));
+            assertEquals(2, jobDirectories().size());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void recoveryResubmitsQueuedJobsAndFailsInterruptedOnes() throws Exception {
+        service.shutdown();
+        Path jobs = directory.resolve("jobs");
+        writeJob(jobs, "queued", State.QUEUED, "queued content");
+        writeJob(jobs, "running", State.RUNNING, "running content");
+        Files.createDirectories(jobs.resolve("unreadable"));
+        Files.writeString(jobs.resolve("unreadable").resolve("manifest.json"), "{not json");
+
+        AtomicReference<String> resubmitted = new AtomicReference<>();
+        when(fileService.addAdditionalFilesToCase(eq(CASE_NUMBER), anyList(), isNull(), any())).thenAnswer(invocation -> {
+            List<MultipartFile> files = invocation.getArgument(1);
+            resubmitted.set(new String(files.get(0).getBytes(), StandardCharsets.UTF_8));
+            return Case.builder().id(3L).build();
+        });
+        service = newService(2, 10, 60);
+
+        assertEquals(State.COMPLETED, awaitFinished("queued").state());
+        assertEquals("queued content", resubmitted.get());
+
+        UploadJobStatus interrupted = service.getStatus("running").orElseThrow();
+        assertEquals(State.FAILED, interrupted.state());
+        assertEquals(FileState.FAILED, interrupted.files().get(0).state());
+        verify(fileService, timeout(1000).times(1)).addAdditionalFilesToCase(eq(CASE_NUMBER), anyList(), isNull(), any());
+
+        assertTrue(service.getStatus("unreadable").isEmpty());
+        awaitNoJobDirectories();
+    }
+
+    @Test
+    void finishedJobsAreForgottenAfterTheRetention() throws Exception {
+        service.shutdown();
+        service = newService(2, 10, 0);
+        when(fileService.addAdditionalFilesToCase(eq(CASE_NUMBER), anyList(), isNull(), any()))
+                .thenReturn(Case.builder().id(1L).build());
+
+        String id = service.submitAddFiles(CASE_NUMBER, List.of(pdf("a.pdf"))).id();
+        // The job directory is removed once the job has finished.
+        awaitNoJobDirectories();
+        Thread.sleep(5);
+
+        assertTrue(service.getStatus(id).isEmpty());
+    }
+
+    private UploadJobService newService(int workers, int queueCapacity, long retentionMinutes) throws IOException {
+        UploadJobService jobService = new UploadJobService(fileService, stagingArea, objectMapper);
+        ReflectionTestUtils.setField(jobService, "workers", workers);
+        ReflectionTestUtils.setField(jobService, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(jobService, "retentionMinutes", retentionMinutes);
+        jobService.init();
+        return jobService;
+    }
+
+    private void writeJob(Path jobs, String id, State state, String content) throws IOException {
+        Path job = Files.createDirectories(jobs.resolve(id));
+        Files.writeString(job.resolve("0.part"), content);
+        UploadJobService.Manifest manifest = new UploadJobService.Manifest(id, UploadJobStatus.Type.ADD_FILES,
+                CASE_NUMBER, null, List.of(new UploadJobService.ManifestFile("a.pdf", "application/pdf", content.length())),
+                state, LocalDateTime.now());
+        objectMapper.writeValue(job.resolve("manifest.json").toFile(), manifest);
+    }
+
+    private UploadJobStatus awaitFinished(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            UploadJobStatus status = service.getStatus(id).orElseThrow();
+            if (status.state() == State.COMPLETED || status.state() == State.FAILED) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Upload job " + id + " did not finish");
+    }
+
+    private void awaitNoJobDirectories() throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!jobDirectories().isEmpty()) {
+            assertFalse(System.nanoTime() > deadline, "Job directories were not removed");
+            Thread.sleep(10);
+        }
+    }
+
+    private List<Path> jobDirectories() throws IOException {
+        try (Stream<Path> paths = Files.list(directory.resolve("jobs"))) {
+            return paths.toList();
+        }
+    }
+
+    private static MockMultipartFile pdf(String name) {
+        return new MockMultipartFile("additionalFiles", name, "application/pdf",
+                "%PDF-1.4\n%%EOF\n".getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,241 @@
+package org.nab.new_afm_back.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link BlobStore} backend must share; each backend test only supplies the store.
+ */
+abstract class BlobStoreConformanceTest {
+
+    private static final int THROUGHPUT_BLOBS = 16;
+    private static final int THROUGHPUT_BLOB_SIZE = 1024 * 1024;
+
+    protected BlobStore store;
+
+    protected abstract BlobStore createStore() throws Exception;
+
+    @BeforeEach
+    void setUpStore() throws Exception {
+        store = createStore();
+    }
+
+    @Test
+    void putThenGetReturnsSameBytes() throws IOException {
+        byte[] data = randomBytes(10_000, 1);
+
+        BlobStat stat = put("statement.pdf", data);
+
+        assertEquals("statement.pdf", stat.key());
+        assertEquals(data.length, stat.size());
+        assertArrayEquals(data, read(store.get("statement.pdf")));
+    }
+
+    @Test
+    void putReplacesExistingBlob() throws IOException {
+        put("report.txt", "first version".getBytes(StandardCharsets.UTF_8));
+        put("report.txt", "second".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("second", new String(read(store.get("report.txt")), StandardCharsets.UTF_8));
+        assertEquals(6, store.stat("report.txt").orElseThrow().size());
+    }
+
+    @Test
+    void moveInStoresFileAndRemovesSource() throws IOException {
+        byte[] data = randomBytes(3000, 6);
+        Path source = Files.createTempFile("staged", ".part");
+        Files.write(source, data);
+
+        BlobStat stat = store.moveIn("moved.pdf", source);
+
+        assertEquals(data.length, stat.size());
+        assertArrayEquals(data, read(store.get("moved.pdf")));
+        assertFalse(Files.exists(source));
+    }
+
+    @Test
+    void moveInDoesNotReplaceExistingBlob() throws IOException {
+        put("taken.pdf", "original".getBytes(StandardCharsets.UTF_8));
+        Path source = Files.createTempFile("staged", ".part");
+        Files.write(source, "intruder".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(FileAlreadyExistsException.class, () -> store.moveIn("taken.pdf", source));
+
+        assertEquals("original", new String(read(store.get("taken.pdf")), StandardCharsets.UTF_8));
+        assertTrue(Files.exists(source));
+        Files.delete(source);
+    }
+
+    @Test
+    void createRefusesExistingKey() throws IOException {
+        byte[] data = "first".getBytes(StandardCharsets.UTF_8);
+        assertEquals(data.length, store.create("unique.txt", new ByteArrayInputStream(data), data.length).size());
+
+        assertThrows(FileAlreadyExistsException.class,
+                () -> store.create("unique.txt", new ByteArrayInputStream(new byte[3]), 3));
+        assertArrayEquals(data, read(store.get("unique.txt")));
+    }
+
+    @Test
+    void putRejectsSizeMismatch() {
+        byte[] data = randomBytes(100, 2);
+
+        assertThrows(IOException.class, () -> store.put("short.bin", new ByteArrayInputStream(data), 200));
+    }
+
+    @Test
+    void emptyBlobIsSupported() throws IOException {
+        put("empty.txt", new byte[0]);
+
+        assertEquals(0, store.stat("empty.txt").orElseThrow().size());
+        assertEquals(0, read(store.get("empty.txt")).length);
+    }
+
+    @Test
+    void rangedGetReturnsRequestedSlice() throws IOException {
+        byte[] data = randomBytes(4096, 3);
+        put("ranged.bin", data);
+
+        assertArrayEquals(Arrays.copyOfRange(data, 100, 1100), read(store.get("ranged.bin", 100, 1000)));
+        assertArrayEquals(Arrays.copyOfRange(data, 0, 1), read(store.get("ranged.bin", 0, 1)));
+    }
+
+    @Test
+    void rangedGetIsClippedToBlobSize() throws IOException {
+        byte[] data = randomBytes(500, 4);
+        put("tail.bin", data);
+
+        assertArrayEquals(Arrays.copyOfRange(data, 400, 500), read(store.get("tail.bin", 400, 1000)));
+        assertEquals(0, read(store.get("tail.bin", 500, 10)).length);
+        assertEquals(0, read(store.get("tail.bin", 10, 0)).length);
+    }
+
+    @Test
+    void statOfMissingBlobIsEmpty() throws IOException {
+        assertTrue(store.stat("missing.pdf").isEmpty());
+        assertFalse(store.exists("missing.pdf"));
+    }
+
+    @Test
+    void getOfMissingBlobThrowsNoSuchFile() {
+        assertThrows(NoSuchFileException.class, () -> read(store.get("missing.pdf")));
+        assertThrows(NoSuchFileException.class, () -> read(store.get("missing.pdf", 0, 10)));
+    }
+
+    @Test
+    void deleteReportsWhetherBlobExisted() throws IOException {
+        put("delete-me.txt", "x".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(store.delete("delete-me.txt"));
+        assertFalse(store.exists("delete-me.txt"));
+        assertFalse(store.delete("delete-me.txt"));
+    }
+
+    @Test
+    void nestedKeysWithSpecialCharactersAreSupported() throws IOException {
+        byte[] data = "nested".getBytes(StandardCharsets.UTF_8);
+        put(".quarantine/bank statement (1)+copy.txt", data);
+
+        assertArrayEquals(data, read(store.get(".quarantine/bank statement (1)+copy.txt")));
+        assertTrue(store.stat("bank statement (1)+copy.txt").isEmpty());
+    }
+
+    @Test
+    void forEachKeyListsCaseFilesButNotInternalKeys() throws IOException {
+        Set<String> expected = new TreeSet<>();
+        for (int i = 0; i < 12; i++) {
+            expected.add("file-" + i + ".pdf");
+            put("file-" + i + ".pdf", new byte[]{(byte) i});
+        }
+        expected.add("nested/statement (2).txt");
+        put("nested/statement (2).txt", new byte[]{1});
+        put(".quarantine/orphan.pdf", new byte[]{1});
+        put("nested/.staging/upload.part", new byte[]{1});
+
+        Set<String> listed = new ConcurrentSkipListSet<>();
+        store.forEachKey(4, key -> assertTrue(listed.add(key), "listed twice: " + key));
+
+        assertEquals(expected, listed);
+    }
+
+    @Test
+    void moveRelocatesBlob() throws IOException {
+        byte[] data = randomBytes(1500, 7);
+        put("orphan.pdf", data);
+
+        store.move("orphan.pdf", ".quarantine/orphan.pdf");
+
+        assertFalse(store.exists("orphan.pdf"));
+        assertArrayEquals(data, read(store.get(".quarantine/orphan.pdf")));
+    }
+
+    @Test
+    void keysEscapingTheStoreAreRejected() {
+        byte[] data = new byte[1];
+        assertThrows(IllegalArgumentException.class, () -> put("../outside.txt", data));
+        assertThrows(IllegalArgumentException.class, () -> put("/absolute.txt", data));
+        assertThrows(IllegalArgumentException.class, () -> store.stat("a/../../b"));
+        assertThrows(IllegalArgumentException.class, () -> store.delete(""));
+    }
+
+    @Test
+    void throughputOfSequentialPutsAndGets() throws IOException {
+        byte[] data = randomBytes(THROUGHPUT_BLOB_SIZE, 5);
+        long totalBytes = (long) THROUGHPUT_BLOBS * THROUGHPUT_BLOB_SIZE;
+
+        long writeStarted = System.nanoTime();
+        for (int i = 0; i < THROUGHPUT_BLOBS; i++) {
+            put("throughput-" + i + ".bin", data);
+        }
+        long writeNanos = System.nanoTime() - writeStarted;
+
+        long readStarted = System.nanoTime();
+        for (int i = 0; i < THROUGHPUT_BLOBS; i++) {
+            try (InputStream in = store.get("throughput-" + i + ".bin")) {
+                assertEquals(THROUGHPUT_BLOB_SIZE, in.transferTo(OutputStream.nullOutputStream()));
+            }
+        }
+        long readNanos = System.nanoTime() - readStarted;
+
+        System.out.printf("%s throughput: write %.1f MB/s, read %.1f MB/s (%d x %d KB)%n",
+                store.getClass().getSimpleName(), megabytesPerSecond(totalBytes, writeNanos),
+                megabytesPerSecond(totalBytes, readNanos), THROUGHPUT_BLOBS, THROUGHPUT_BLOB_SIZE / 1024);
+    }
+
+    private BlobStat put(String key, byte[] data) throws IOException {
+        return store.put(key, new ByteArrayInputStream(data), data.length);
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static double megabytesPerSecond(long bytes, long nanos) {
+        return bytes / 1024.0 / 1024.0 / (nanos / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,199 @@
+package org.nab.new_afm_back.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal path-style S3 endpoint for a single bucket: PUT (optionally with {@code If-None-Match: *}),
+ * GET (with Range), HEAD, DELETE and ListObjectsV2, which pages after {@value #LIST_PAGE_SIZE} keys to
+ * exercise continuation tokens.
+ * Requests without a SigV4 authorization header for the expected access key are refused.
+ */
+final class FakeS3Server {
+
+    private static final int LIST_PAGE_SIZE = 5;
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    private final HttpServer server;
+    private final String bucket;
+    private final String accessKey;
+    private final Map<String, byte[]> objects = new ConcurrentSkipListMap<>();
+
+    private FakeS3Server(String bucket, String accessKey) throws IOException {
+        this.bucket = bucket;
+        this.accessKey = accessKey;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::handle);
+    }
+
+    static FakeS3Server start(String bucket, String accessKey) throws IOException {
+        FakeS3Server fake = new FakeS3Server(bucket, accessKey);
+        fake.server.start();
+        return fake;
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization == null || !authorization.startsWith("AWS4-HMAC-SHA256 Credential=" + accessKey + "/")
+                    || exchange.getRequestHeaders().getFirst("x-amz-date") == null) {
+                respond(exchange, 403, "AccessDenied");
+                return;
+            }
+
+            String prefix = "/" + bucket + "/";
+            String path = exchange.getRequestURI().getRawPath();
+            if ((path.equals("/" + bucket) || path.equals(prefix)) && exchange.getRequestMethod().equals("GET")) {
+                list(exchange);
+                return;
+            }
+            if (!path.startsWith(prefix)) {
+                respond(exchange, 404, "NoSuchBucket");
+                return;
+            }
+            String key = decode(path.substring(prefix.length()));
+
+            switch (exchange.getRequestMethod()) {
+                case "PUT" -> put(exchange, key);
+                case "GET" -> get(exchange, key);
+                case "HEAD" -> head(exchange, key);
+                case "DELETE" -> {
+                    objects.remove(key);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> respond(exchange, 405, "MethodNotAllowed");
+            }
+        }
+    }
+
+    private void put(HttpExchange exchange, String key) throws IOException {
+        if (exchange.getRequestHeaders().getFirst("Content-Length") == null) {
+            respond(exchange, 411, "MissingContentLength");
+            return;
+        }
+        boolean ifAbsent = "*".equals(exchange.getRequestHeaders().getFirst("If-None-Match"));
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] data = body.readAllBytes();
+            if (!ifAbsent) {
+                objects.put(key, data);
+            } else if (objects.putIfAbsent(key, data) != null) {
+                respond(exchange, 412, "PreconditionFailed");
+                return;
+            }
+        }
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void get(HttpExchange exchange, String key) throws IOException {
+        byte[] data = objects.get(key);
+        if (data == null) {
+            respond(exchange, 404, "NoSuchKey");
+            return;
+        }
+
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range == null) {
+            send(exchange, 200, data);
+            return;
+        }
+
+        Matcher matcher = RANGE.matcher(range);
+        if (!matcher.matches() || Integer.parseInt(matcher.group(1)) >= data.length) {
+            respond(exchange, 416, "InvalidRange");
+            return;
+        }
+        int first = Integer.parseInt(matcher.group(1));
+        int last = Math.min(Integer.parseInt(matcher.group(2)), data.length - 1);
+        exchange.getResponseHeaders().add("Content-Range", "bytes " + first + "-" + last + "/" + data.length);
+        send(exchange, 206, Arrays.copyOfRange(data, first, last + 1));
+    }
+
+    private void list(HttpExchange exchange) throws IOException {
+        Map<String, String> query = new HashMap<>();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        for (String parameter : rawQuery == null ? new String[0] : rawQuery.split("&")) {
+            String[] pair = parameter.split("=", 2);
+            query.put(decode(pair[0]), pair.length > 1 ? decode(pair[1]) : "");
+        }
+        if (!"2".equals(query.get("list-type"))) {
+            respond(exchange, 400, "InvalidArgument");
+            return;
+        }
+
+        String after = query.get("continuation-token");
+        List<String> keys = new ArrayList<>(after == null
+                ? objects.keySet() : ((ConcurrentSkipListMap<String, byte[]>) objects).tailMap(after, false).keySet());
+        boolean truncated = keys.size() > LIST_PAGE_SIZE;
+        List<String> page = keys.subList(0, Math.min(LIST_PAGE_SIZE, keys.size()));
+
+        StringBuilder xml = new StringBuilder("<ListBucketResult><Name>").append(bucket).append("</Name>");
+        for (String key : page) {
+            xml.append("<Contents><Key>").append(escape(key)).append("</Key></Contents>");
+        }
+        xml.append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (truncated) {
+            xml.append("<NextContinuationToken>").append(escape(page.get(page.size() - 1))).append("</NextContinuationToken>");
+        }
+        xml.append("</ListBucketResult>");
+        send(exchange, 200, xml.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private void head(HttpExchange exchange, String key) throws IOException {
+        byte[] data = objects.get(key);
+        if (data == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Length", String.valueOf(data.length));
+        exchange.getResponseHeaders().add("Last-Modified",
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String code) throws IOException {
+        send(exchange, status, ("<Error><Code>" + code + "</Code></Error>").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static String decode(String rawPath) {
+        return URLDecoder.decode(rawPath.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,9 @@
+package org.nab.new_afm_back.storage;
+
+class InMemoryBlobStoreTest extends BlobStoreConformanceTest {
+
+    @Override
+    protected BlobStore createStore() {
+        return new InMemoryBlobStore();
+    }
+}
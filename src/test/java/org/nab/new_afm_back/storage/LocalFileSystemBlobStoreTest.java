@@ -0,0 +1,34 @@
+package org.nab.new_afm_back.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalFileSystemBlobStoreTest extends BlobStoreConformanceTest {
+
+    @TempDir
+    Path root;
+
+    @Override
+    protected BlobStore createStore() throws IOException {
+        return new LocalFileSystemBlobStore(root);
+    }
+
+    @Test
+    void blobsAreStoredAsPlainFilesWithoutLeftovers() throws IOException {
+        store.put("case.pdf", new ByteArrayInputStream(new byte[]{1, 2, 3}), 3);
+
+        assertTrue(Files.isRegularFile(root.resolve("case.pdf")));
+        assertEquals(root.resolve("case.pdf"), store.localPath("case.pdf").orElseThrow());
+        try (var files = Files.list(root)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
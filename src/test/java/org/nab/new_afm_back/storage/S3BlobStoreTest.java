@@ -0,0 +1,26 @@
+package org.nab.new_afm_back.storage;
+
+import org.junit.jupiter.api.AfterEach;
+
+import java.net.URI;
+
+/**
+ * Runs the conformance suite against {@link FakeS3Server}, an in-process stand-in for an S3-compatible
+ * endpoint. Point the same store at MinIO to check a real server.
+ */
+class S3BlobStoreTest extends BlobStoreConformanceTest {
+
+    private FakeS3Server server;
+
+    @Override
+    protected BlobStore createStore() throws Exception {
+        server = FakeS3Server.start("case-files", "test-access-key");
+        return new S3BlobStore(URI.create("http://127.0.0.1:" + server.port()), "case-files", "us-east-1",
+                "test-access-key", "test-secret-key", true);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+}
@@ -0,0 +1,117 @@
+package org.nab.new_afm_back.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StagingAreaTest {
+
+    @TempDir
+    Path directory;
+
+    private FlakyBlobStore store;
+    private StagingArea staging;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new FlakyBlobStore();
+        staging = new StagingArea(directory, store, Duration.ofHours(1));
+    }
+
+    @Test
+    void failedPromotionIsSetAsideAndRetriedWhileCommitted() throws IOException {
+        StagingArea.Batch batch = staging.begin();
+        Files.writeString(batch.newFile("cases/1.pdf"), "content");
+        store.failing = true;
+
+        assertEquals(List.of("cases/1.pdf"), batch.promote());
+        assertEquals(1, countParts(directory.resolve("failed")));
+        makeStale(directory.resolve("failed"));
+
+        // Still failing: the committed file is kept however old it is.
+        assertEquals(1, staging.recover(key -> true));
+        assertEquals(1, countParts(directory.resolve("failed")));
+
+        store.failing = false;
+        assertEquals(0, staging.recover(key -> true));
+        assertTrue(store.exists("cases/1.pdf"));
+        assertEquals(0, countParts(directory.resolve("failed")));
+    }
+
+    @Test
+    void staleFilesArePromotedWhenCommittedAndPurgedOtherwise() throws IOException {
+        StagingArea.Batch committed = staging.begin();
+        Files.writeString(committed.newFile("committed.pdf"), "a");
+        StagingArea.Batch abandoned = staging.begin();
+        Files.writeString(abandoned.newFile("abandoned.pdf"), "b");
+        staging.newSpoolFile();
+        makeStale(directory);
+
+        staging.recover(Set.of("committed.pdf")::contains);
+
+        assertTrue(store.exists("committed.pdf"));
+        assertFalse(store.exists("abandoned.pdf"));
+        assertEquals(0, countParts(directory));
+    }
+
+    @Test
+    void recentFilesAreLeftForUploadsInFlight() throws IOException {
+        StagingArea.Batch batch = staging.begin();
+        Files.writeString(batch.newFile("in-flight.pdf"), "a");
+
+        staging.recover(key -> false);
+
+        assertEquals(1, countParts(directory));
+    }
+
+    @Test
+    void keyIsRecoveredFromTheFileName() throws IOException {
+        Path staged = staging.begin().newFile("dir/name with ~ and %.pdf");
+
+        assertEquals("dir/name with ~ and %.pdf", StagingArea.keyOf(staged));
+        assertNull(StagingArea.keyOf(staging.newSpoolFile()));
+    }
+
+    private static long countParts(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(".part")).count();
+        }
+    }
+
+    private static void makeStale(Path dir) throws IOException {
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofHours(2)));
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                Files.setLastModifiedTime(file, old);
+            }
+        }
+    }
+
+    private static final class FlakyBlobStore extends InMemoryBlobStore {
+
+        private boolean failing;
+
+        @Override
+        public BlobStat moveIn(String key, Path source) throws IOException {
+            if (failing) {
+                throw new IOException("Storage unavailable");
+            }
+            return super.moveIn(key, source);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.nab.new_afm_back.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void addedValuesAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("CASE-" + i));
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("CASE-" + i), "CASE-" + i);
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheConfiguredRateAtCapacity() {
+        BloomFilter filter = new BloomFilter(50_000, 0.01);
+        IntStream.range(0, 50_000).forEach(i -> filter.add("CASE-" + i));
+
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> filter.mightContain("OTHER-" + i))
+                .count();
+
+        double rate = falsePositives / 100_000.0;
+        assertTrue(rate < 0.02, "false-positive rate " + rate);
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        IntStream.range(0, 100_000).parallel().forEach(i -> filter.add("CASE-" + i));
+
+        assertTrue(IntStream.range(0, 100_000).allMatch(i -> filter.mightContain("CASE-" + i)));
+    }
+}
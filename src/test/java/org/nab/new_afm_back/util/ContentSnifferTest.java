@@ -0,0 +1,106 @@
+package org.nab.new_afm_back.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentSnifferTest {
+
+    private static final byte[] ZIP = {'P', 'K', 3, 4, 20, 0, 6, 0};
+    private static final byte[] OLE2 = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1, 0};
+
+    @Test
+    void pdfSignatureMayFollowJunkWithinTheHeader() throws IOException {
+        assertTrue(matches("pdf", ascii("%PDF-1.7\n...")));
+        assertTrue(matches("PDF", concat(new byte[1000], ascii("%PDF-1.4"))));
+        assertFalse(matches("pdf", concat(new byte[1020], ascii("%PDF-1.4"))));
+        assertFalse(matches("pdf", ascii("PK not a pdf")));
+    }
+
+    @Test
+    void officeFormatsNeedTheirContainerSignature() throws IOException {
+        assertTrue(matches("docx", ZIP));
+        assertTrue(matches("xlsx", ZIP));
+        assertTrue(matches("doc", OLE2));
+        assertFalse(matches("docx", OLE2));
+        assertFalse(matches("doc", ZIP));
+        assertFalse(matches("docx", ascii("%PDF-1.4")));
+    }
+
+    @Test
+    void filesShorterThanTheSignatureDoNotMatch() throws IOException {
+        assertFalse(matches("pdf", ascii("%PDF")));
+        assertFalse(matches("docx", new byte[]{'P', 'K', 3}));
+        assertFalse(matches("doc", Arrays.copyOf(OLE2, 7)));
+        assertFalse(matches("pdf", new byte[0]));
+    }
+
+    @Test
+    void textAllowsWhitespaceAndSomeControlCharacters() throws IOException {
+        assertTrue(matches("txt", "line 1\r\n\tline 2\f\u001b[0m Кириллица".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(matches("txt", new byte[0]));
+
+        byte[] mostlyText = ascii("a".repeat(100));
+        mostlyText[10] = 1;
+        assertTrue(matches("txt", mostlyText));
+    }
+
+    @Test
+    void nulBytesOrManyControlCharactersAreBinary() throws IOException {
+        assertFalse(matches("txt", ascii("text\0more")));
+
+        byte[] noisy = ascii("a".repeat(100));
+        for (int i = 0; i < 10; i++) {
+            noisy[i * 10] = 2;
+        }
+        assertFalse(matches("txt", noisy));
+        assertFalse(matches("txt", ZIP));
+    }
+
+    @Test
+    void utf16TextWithAByteOrderMarkIsText() throws IOException {
+        String text = "Выписка по счёту\r\nAccount statement";
+        assertTrue(matches("txt", concat(new byte[]{(byte) 0xFF, (byte) 0xFE}, text.getBytes(StandardCharsets.UTF_16LE))));
+        // Java's UTF-16 encoder writes a big-endian byte order mark.
+        assertTrue(matches("txt", text.getBytes(StandardCharsets.UTF_16)));
+
+        // Without a byte order mark the NUL bytes mark it as binary.
+        assertFalse(matches("txt", text.getBytes(StandardCharsets.UTF_16LE)));
+        assertFalse(matches("txt", concat(new byte[]{(byte) 0xFF, (byte) 0xFE}, new byte[]{'a', 0, 0, 0})));
+    }
+
+    @Test
+    void unknownExtensionsNeverMatch() throws IOException {
+        assertFalse(matches("exe", ascii("MZ")));
+        assertFalse(matches(null, ascii("%PDF-1.4")));
+    }
+
+    @Test
+    void onlyTheHeaderIsRead() throws IOException {
+        ByteArrayInputStream content = new ByteArrayInputStream(concat(ascii("%PDF-1.4"), new byte[4096]));
+
+        assertTrue(ContentSniffer.matches("pdf", content));
+        assertEquals(4096 + 8 - ContentSniffer.HEADER_SIZE, content.available());
+    }
+
+    private static boolean matches(String extension, byte[] content) throws IOException {
+        return ContentSniffer.matches(extension, new ByteArrayInputStream(content));
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+}
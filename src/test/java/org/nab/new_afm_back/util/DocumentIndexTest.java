@@ -0,0 +1,96 @@
+package org.nab.new_afm_back.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentIndexTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void documentsAreReadFromTheirByteRanges() throws IOException {
+        // Multi-byte characters before and inside documents shift byte offsets away from char offsets.
+        Path file = write("""
+                {
+                  "190": {"header": "Мошенничество", "predicates": [{"label": "a", "text": "{not json}"}]},
+                  "skipped": [1, 2, 3],
+                  "191": {"header": "Присвоение € \\" }", "risks": []},
+                  "200": {}
+                }
+                """);
+
+        DocumentIndex index = DocumentIndex.open(objectMapper, file, 16);
+
+        assertEquals(3, index.size());
+        assertEquals("Мошенничество", index.get("190").path("header").asText());
+        assertEquals("{not json}", index.get("190").path("predicates").get(0).path("text").asText());
+        assertEquals("Присвоение € \" }", index.get("191").path("header").asText());
+        assertTrue(index.get("200").isEmpty());
+        assertFalse(index.contains("skipped"));
+        assertNull(index.get("999"));
+    }
+
+    @Test
+    void emptyFileHasNoDocuments() throws IOException {
+        DocumentIndex index = DocumentIndex.open(objectMapper, write(""), 16);
+
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void topLevelArrayIsRejected() throws IOException {
+        Path file = write("[{\"header\": \"x\"}]");
+
+        assertThrows(IOException.class, () -> DocumentIndex.open(objectMapper, file, 16));
+    }
+
+    @Test
+    void leastRecentlyUsedDocumentIsEvicted() throws IOException {
+        DocumentIndex index = DocumentIndex.open(objectMapper, write("{\"a\": {}, \"b\": {}, \"c\": {}}"), 2);
+
+        JsonNode a = index.get("a");
+        index.get("b");
+        assertSame(a, index.get("a"));
+
+        JsonNode b = index.get("b");
+        index.get("a");
+        // b is the least recently used and makes room for c.
+        index.get("c");
+        assertSame(a, index.get("a"));
+        assertNotSame(b, index.get("b"));
+    }
+
+    @Test
+    void fileTooLargeToMapIsRejectedWithoutScanning() throws IOException {
+        Path file = directory.resolve("huge.json");
+        // Sparse, so no disk space is used; scanning it would fail on the NUL bytes instead.
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(Integer.MAX_VALUE + 1L);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> DocumentIndex.open(objectMapper, file, 16));
+        assertTrue(e.getMessage().contains("too large"), e.getMessage());
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(directory.resolve("documents.json"), content);
+    }
+}
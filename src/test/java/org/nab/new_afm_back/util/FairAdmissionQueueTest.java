@@ -0,0 +1,219 @@
+package org.nab.new_afm_back.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class FairAdmissionQueueTest {
+
+    private static final Duration LONG_WAIT = Duration.ofSeconds(10);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void admitsUpToTheConcurrencyBudget() throws Exception {
+        FairAdmissionQueue queue = new FairAdmissionQueue(2, 1000, 4);
+
+        FairAdmissionQueue.Permit first = queue.tryAcquire("a", 1, Duration.ZERO);
+        FairAdmissionQueue.Permit second = queue.tryAcquire("b", 1, Duration.ZERO);
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(queue.tryAcquire("c", 1, Duration.ofMillis(20)));
+        assertEquals(0, queue.getQueued());
+
+        second.close();
+        second.close();
+        assertEquals(1, queue.getActive());
+        assertNotNull(queue.tryAcquire("c", 1, Duration.ZERO));
+    }
+
+    @Test
+    void admitsUpToTheByteBudget() throws Exception {
+        FairAdmissionQueue queue = new FairAdmissionQueue(10, 100, 4);
+
+        FairAdmissionQueue.Permit large = queue.tryAcquire("a", 60, Duration.ZERO);
+        assertNotNull(large);
+        assertNull(queue.tryAcquire("b", 60, Duration.ofMillis(20)));
+        assertNotNull(queue.tryAcquire("b", 40, Duration.ZERO));
+        assertEquals(100, queue.getActiveBytes());
+
+        large.close();
+        assertEquals(40, queue.getActiveBytes());
+    }
+
+    @Test
+    void oversizedWorkTakesTheWholeByteBudget() throws Exception {
+        FairAdmissionQueue queue = new FairAdmissionQueue(10, 100, 4);
+
+        FairAdmissionQueue.Permit huge = queue.tryAcquire("a", 5000, Duration.ZERO);
+        assertNotNull(huge);
+        assertEquals(100, queue.getActiveBytes());
+        assertNull(queue.tryAcquire("b", 1, Duration.ofMillis(20)));
+    }
+
+    @Test
+    void waiterIsAdmittedWhenBudgetIsReturned() throws Exception {
+        FairAdmissionQueue queue = new FairAdmissionQueue(1, 1000, 4);
+        FairAdmissionQueue.Permit held = queue.tryAcquire("a", 1, Duration.ZERO);
+
+        Future<FairAdmissionQueue.Permit> waiting = executor.submit(() -> queue.tryAcquire("b", 1, LONG_WAIT));
+        awaitCondition(() -> queue.getQueued() == 1);
+        held.close();
+
+        assertNotNull(waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(0, queue.getQueued());
+        assertEquals(1, queue.getActive());
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFull() throws Exception {
+        FairAdmissionQueue queue = new FairAdmissionQueue(1, 1000, 1);
+        FairAdmissionQueue.Permit held = queue.tryAcquire("a", 1, Duration.ZERO);
+        executor.submit(() -> queue.tryAcquire("b", 1, LONG_WAIT));
+        awaitCondition(() -> queue.getQueued() == 1);
+
+        long started = System.nanoTime();
+        assertNull(queue.tryAcquire("c", 1, LONG_WAIT));
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(1), "rejected without waiting");
+        held.close();
+    }
+
+    @Test
+    void timedOutWaiterLeavesTheQueue() throws Exception {
+        FairAdmissionQueue queue = new FairAdmissionQueue(1, 1000, 4);
+        queue.tryAcquire("a", 1, Duration.ZERO);
+
+        assertNull(queue.tryAcquire("b", 1, Duration.ofMillis(50)));
+        assertEquals(0, queue.getQueued());
+        assertEquals(1, queue.getActive());
+    }
+
+    @Test
+    void ownersAreServedInTurn() throws Exception {
+        FairAdmissionQueue queue = new FairAdmissionQueue(1, 1000, 10);
+        FairAdmissionQueue.Permit held = queue.tryAcquire("first", 1, Duration.ZERO);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        List<Future<?>> waiters = new ArrayList<>();
+        for (String owner : List.of("burst", "burst", "burst", "other")) {
+            int queuedBefore = queue.getQueued();
+            waiters.add(executor.submit(() -> {
+                // Each waiter holds its permit while recording, so grants are recorded in order.
+                try (FairAdmissionQueue.Permit permit = queue.tryAcquire(owner, 1, LONG_WAIT)) {
+                    assertNotNull(permit);
+                    order.add(owner);
+                }
+                return null;
+            }));
+            awaitCondition(() -> queue.getQueued() == queuedBefore + 1);
+        }
+        held.close();
+        for (Future<?> waiter : waiters) {
+            waiter.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of("burst", "other", "burst", "burst"), order);
+    }
+
+    @Test
+    void largeHeadWaiterIsNotOvertakenBySmallOnes() throws Exception {
+        FairAdmissionQueue queue = new FairAdmissionQueue(10, 100, 10);
+        FairAdmissionQueue.Permit held = queue.tryAcquire("a", 50, Duration.ZERO);
+
+        Future<FairAdmissionQueue.Permit> large = executor.submit(() -> queue.tryAcquire("b", 100, LONG_WAIT));
+        awaitCondition(() -> queue.getQueued() == 1);
+        // Would fit in the remaining budget, but the large upload is ahead of it.
+        assertNull(queue.tryAcquire("c", 10, Duration.ofMillis(20)));
+
+        held.close();
+        assertNotNull(large.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void asynchronousWaiterIsAdmittedWhenBudgetIsReturned() throws Exception {
+        FairAdmissionQueue queue = new FairAdmissionQueue(1, 1000, 4);
+        FairAdmissionQueue.Permit held = queue.tryAcquire("a", 1, Duration.ZERO);
+
+        CompletableFuture<FairAdmissionQueue.Permit> waiting = queue.acquire("b", 1, LONG_WAIT);
+        assertFalse(waiting.isDone());
+        assertEquals(1, queue.getQueued());
+
+        held.close();
+        assertNotNull(waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(1, queue.getActive());
+    }
+
+    @Test
+    void blockingAndAsynchronousCallersShareOneQueue() throws Exception {
+        FairAdmissionQueue queue = new FairAdmissionQueue(1, 1000, 1);
+        CompletableFuture<FairAdmissionQueue.Permit> admitted = queue.acquire("a", 1, LONG_WAIT);
+        assertTrue(admitted.isDone());
+        CompletableFuture<FairAdmissionQueue.Permit> queued = queue.acquire("b", 1, LONG_WAIT);
+
+        assertNull(queue.tryAcquire("c", 1, Duration.ZERO));
+        assertNull(queue.acquire("c", 1, LONG_WAIT).getNow(null));
+
+        admitted.get().close();
+        queued.get(5, TimeUnit.SECONDS).close();
+        assertEquals(0, queue.getActive());
+    }
+
+    @Test
+    void asynchronousWaiterTimesOutAndLeavesTheQueue() throws Exception {
+        FairAdmissionQueue queue = new FairAdmissionQueue(1, 1000, 4);
+        FairAdmissionQueue.Permit held = queue.tryAcquire("a", 1, Duration.ZERO);
+
+        assertNull(queue.acquire("b", 1, Duration.ofMillis(50)).get(5, TimeUnit.SECONDS));
+        assertEquals(0, queue.getQueued());
+
+        held.close();
+        assertEquals(0, queue.getActive());
+    }
+
+    @Test
+    void cancelledWaiterGivesUpItsPlace() throws Exception {
+        FairAdmissionQueue queue = new FairAdmissionQueue(1, 1000, 4);
+        FairAdmissionQueue.Permit held = queue.tryAcquire("a", 1, Duration.ZERO);
+        CompletableFuture<FairAdmissionQueue.Permit> cancelled = queue.acquire("b", 1, LONG_WAIT);
+        CompletableFuture<FairAdmissionQueue.Permit> next = queue.acquire("c", 1, LONG_WAIT);
+
+        cancelled.cancel(false);
+        assertEquals(1, queue.getQueued());
+
+        held.close();
+        assertNotNull(next.get(5, TimeUnit.SECONDS));
+        assertEquals(1, queue.getActive());
+    }
+
+    static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("condition not reached");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.nab.new_afm_back.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FileCompressorTest {
+
+    private static final byte[] LOG = "2024-05-01 12:00:00 INFO transfer 1000.00 KZT from 1234 to 5678\n"
+            .repeat(2000).getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path directory;
+
+    private final FileCompressor compressor = new FileCompressor();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(compressor, "enabled", true);
+        ReflectionTestUtils.setField(compressor, "types", List.of("txt", "csv"));
+        ReflectionTestUtils.setField(compressor, "minSize", 16384L);
+        ReflectionTestUtils.setField(compressor, "maxRatio", 0.7);
+    }
+
+    @Test
+    void compressibleTextIsStoredCompressed() throws IOException {
+        assertEquals(FileCompressor.GZIP, choose("txt", LOG));
+        assertEquals(FileCompressor.GZIP, choose("CSV", LOG));
+    }
+
+    @Test
+    void incompressibleContentIsStoredAsIs() throws IOException {
+        assertNull(choose("txt", random(LOG.length)));
+    }
+
+    @Test
+    void smallFilesOtherTypesAndDisabledCompressionAreStoredAsIs() throws IOException {
+        assertNull(choose("txt", new byte[16383]));
+        assertNull(choose("pdf", LOG));
+        assertNull(choose(null, LOG));
+
+        ReflectionTestUtils.setField(compressor, "enabled", false);
+        assertNull(choose("txt", LOG));
+    }
+
+    @Test
+    void onlyTheSampleIsReadAndDecides() throws IOException {
+        byte[] content = new byte[64 * 1024 + LOG.length];
+        System.arraycopy(LOG, 0, content, 0, 64 * 1024);
+        System.arraycopy(random(LOG.length), 0, content, 64 * 1024, LOG.length);
+        InputStream in = new ByteArrayInputStream(content);
+
+        assertEquals(FileCompressor.GZIP, compressor.chooseEncoding("txt", content.length, in));
+        assertEquals(LOG.length, in.available());
+
+        byte[] randomFirst = new byte[content.length];
+        System.arraycopy(random(64 * 1024), 0, randomFirst, 0, 64 * 1024);
+        System.arraycopy(LOG, 0, randomFirst, 64 * 1024, LOG.length);
+        assertNull(choose("txt", randomFirst));
+    }
+
+    @Test
+    void compressedCopyRoundTrips() throws IOException {
+        Path target = directory.resolve("log.txt.gz");
+        Files.write(target, new byte[]{1, 2, 3});
+
+        compressor.compress(new ByteArrayInputStream(LOG), target);
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(target))) {
+            assertArrayEquals(LOG, in.readAllBytes());
+        }
+    }
+
+    private String choose(String extension, byte[] content) throws IOException {
+        return compressor.chooseEncoding(extension, content.length, new ByteArrayInputStream(content));
+    }
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,89 @@
+package org.nab.new_afm_back.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RenderCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @Test
+    void sameVersionIsRenderedOnce() throws IOException {
+        RenderCache cache = new RenderCache(directory, "pdf");
+
+        Path first = cache.get("A", "1", renderer("a1"));
+        Path second = cache.get("A", "1", renderer("other"));
+
+        assertEquals(first, second);
+        assertEquals("a1", Files.readString(second));
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void replacedVersionIsKeptForReadersDuringTheGracePeriod() throws IOException {
+        RenderCache cache = new RenderCache(directory, "pdf", Duration.ofHours(1));
+
+        Path old = cache.get("A", "1", renderer("a1"));
+        Path current = cache.get("A", "2", renderer("a2"));
+
+        assertTrue(Files.exists(old));
+        assertTrue(Files.exists(current));
+    }
+
+    @Test
+    void replacedVersionIsDeletedAfterTheGracePeriod() throws IOException {
+        RenderCache cache = new RenderCache(directory, "pdf", Duration.ZERO);
+
+        Path old = cache.get("A", "1", renderer("a1"));
+        Path current = cache.get("A", "2", renderer("a2"));
+
+        assertFalse(Files.exists(old));
+        assertTrue(Files.exists(current));
+    }
+
+    @Test
+    void groupsSharingAPrefixAreLeftAlone() throws IOException {
+        RenderCache cache = new RenderCache(directory, "pdf", Duration.ZERO);
+
+        Path nested = cache.get("A__B", "1", renderer("ab"));
+        Path underscored = cache.get("A_", "1", renderer("a_"));
+        cache.get("A", "1", renderer("a1"));
+        cache.get("A", "2", renderer("a2"));
+
+        assertTrue(Files.exists(nested));
+        assertTrue(Files.exists(underscored));
+    }
+
+    @Test
+    void versionsContainingTheSeparatorStayDistinct() throws IOException {
+        RenderCache cache = new RenderCache(directory, "pdf", Duration.ZERO);
+
+        Path separator = cache.get("A", "x__y", renderer("xy"));
+        Path leading = cache.get("B", "_y", renderer("y"));
+
+        assertNotEquals(separator, cache.get("A", "x_y", renderer("x_y")));
+        assertFalse(leading.getFileName().toString().startsWith("B___"));
+    }
+
+    private RenderCache.Renderer renderer(String content) {
+        return out -> {
+            renders.incrementAndGet();
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+}
@@ -0,0 +1,126 @@
+package org.nab.new_afm_back.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final long START = SnowflakeIdGenerator.EPOCH.toEpochMilli() + 1_000_000;
+
+    private final AtomicLong now = new AtomicLong(START);
+
+    @Test
+    void idCarriesTimestampNodeAndSequence() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, now::get);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertEquals(1_000_000, millisOf(first));
+        assertEquals(5, nodeOf(first));
+        assertEquals(0, sequenceOf(first));
+        assertEquals(1, sequenceOf(second));
+    }
+
+    @Test
+    void clockSteppingBackDoesNotRepeatIds() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, now::get);
+        long before = generator.nextId();
+
+        now.set(START - 5_000);
+        long after = generator.nextId();
+
+        assertTrue(after > before);
+        assertEquals(millisOf(before), millisOf(after));
+
+        now.set(START + 1);
+        assertEquals(1_000_001, millisOf(generator.nextId()));
+    }
+
+    @Test
+    void sequenceOverflowBorrowsTheNextMillisecond() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, now::get);
+
+        long previous = -1;
+        for (int i = 0; i < 4096; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertEquals(1_000_000, millisOf(id));
+            previous = id;
+        }
+        long borrowed = generator.nextId();
+
+        assertTrue(borrowed > previous);
+        assertEquals(1_000_001, millisOf(borrowed));
+        assertEquals(0, sequenceOf(borrowed));
+    }
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = IntStream.range(0, 8)
+                    .<Future<?>>mapToObj(worker -> executor.submit(() -> {
+                        for (int i = 0; i < 20_000; i++) {
+                            ids.add(generator.nextId());
+                        }
+                    }))
+                    .toList();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(160_000, ids.size());
+    }
+
+    @Test
+    void nodesNeverCollide() {
+        SnowflakeIdGenerator first = new SnowflakeIdGenerator(1, now::get);
+        SnowflakeIdGenerator second = new SnowflakeIdGenerator(2, now::get);
+
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(first.nextId());
+            ids.add(second.nextId());
+        }
+
+        assertEquals(20_000, ids.size());
+    }
+
+    @Test
+    void nodeIdMustFitTenBits() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1));
+    }
+
+    private static long millisOf(long id) {
+        return id >>> 22;
+    }
+
+    private static long nodeOf(long id) {
+        return (id >>> 12) & SnowflakeIdGenerator.MAX_NODE_ID;
+    }
+
+    private static long sequenceOf(long id) {
+        return id & 0xFFF;
+    }
+}